@@ -0,0 +1,265 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir;
+
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+
+/**
+ * A timed event emitted by the learners and predictors at semantic points of interest, e.g., when
+ * fitting an ensemble or a tree, predicting a batch of examples or evaluating a fold. Events are
+ * only recorded if a {@linkplain #setListener(Listener) listener} is registered. Otherwise,
+ * {@link #begin(Kind, String)} returns a shared disabled event and the cost of emitting an event is
+ * a volatile read.
+ *
+ * <p>
+ * The events follow the begin/commit protocol of flight recorders and carry the size of the
+ * problem (examples, features, classes and ensemble members) as fields, which allows for
+ * correlating latency outliers with a specific model and batch. For example, to forward the events
+ * to a custom flight recorder event:
+ *
+ * <pre>
+ * TraceEvent.setListener(event -&gt; {
+ *   MimirEvent e = new MimirEvent(); // a jdk.jfr.Event
+ *   e.kind = event.getKind().name();
+ *   e.examples = event.getExamples();
+ *   e.commit();
+ * });
+ * </pre>
+ *
+ * @author Isak Karlsson
+ */
+public final class TraceEvent {
+
+  private static final TraceEvent DISABLED = new TraceEvent(null, null, null);
+  private static volatile Listener listener = null;
+
+  /**
+   * The kind of event
+   */
+  public enum Kind {
+    /**
+     * Fitting a learner, e.g., an ensemble
+     */
+    FIT,
+
+    /**
+     * Fitting a single tree
+     */
+    TREE_FIT,
+
+    /**
+     * Predicting (or estimating) a batch of examples
+     */
+    PREDICT,
+
+    /**
+     * Calibrating a conformal predictor
+     */
+    CALIBRATION,
+
+    /**
+     * Fitting and predicting a validation fold
+     */
+    FOLD
+  }
+
+  private final Listener target;
+  private final Kind kind;
+  private final String name;
+  private final long startTime;
+  private final Thread thread;
+  private long duration = -1;
+  private int examples = -1;
+  private int features = -1;
+  private int classes = -1;
+  private int members = -1;
+
+  private TraceEvent(Listener target, Kind kind, String name) {
+    this.target = target;
+    this.kind = kind;
+    this.name = name;
+    this.startTime = target != null ? System.nanoTime() : 0;
+    this.thread = target != null ? Thread.currentThread() : null;
+  }
+
+  /**
+   * Set the listener which receives the committed events, or {@code null} to disable the events
+   *
+   * @param listener the listener
+   */
+  public static void setListener(Listener listener) {
+    TraceEvent.listener = listener;
+  }
+
+  /**
+   * @return true if events are recorded
+   */
+  public static boolean isEnabled() {
+    return listener != null;
+  }
+
+  /**
+   * Begin an event of the given kind
+   *
+   * @param kind the kind of event
+   * @param name the name of the source of the event, e.g., the class of the learner
+   * @return a new event (or a disabled event if no listener is registered)
+   */
+  public static TraceEvent begin(Kind kind, String name) {
+    Listener listener = TraceEvent.listener;
+    return listener != null ? new TraceEvent(listener, kind, name) : DISABLED;
+  }
+
+  /**
+   * Set the number of examples and, if the input is multidimensional, the number of features
+   *
+   * @param x the input
+   * @return this event
+   */
+  public TraceEvent input(Input<?> x) {
+    if (target != null) {
+      examples = x.size();
+      if (x.getSchema() instanceof MultidimensionalSchema) {
+        features = ((MultidimensionalSchema) x.getSchema()).attributes();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * @param examples the number of examples
+   * @return this event
+   */
+  public TraceEvent examples(int examples) {
+    if (target != null) {
+      this.examples = examples;
+    }
+    return this;
+  }
+
+  /**
+   * @param classes the number of classes
+   * @return this event
+   */
+  public TraceEvent classes(int classes) {
+    if (target != null) {
+      this.classes = classes;
+    }
+    return this;
+  }
+
+  /**
+   * @param members the number of ensemble members (e.g., trees)
+   * @return this event
+   */
+  public TraceEvent members(int members) {
+    if (target != null) {
+      this.members = members;
+    }
+    return this;
+  }
+
+  /**
+   * End the event and pass it to the listener registered when the event began. A disabled event
+   * is ignored.
+   */
+  public void commit() {
+    if (target != null) {
+      duration = System.nanoTime() - startTime;
+      target.accept(this);
+    }
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the start time of the event (as given by {@link System#nanoTime()})
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return the duration of the event in nanoseconds (or {@code -1} if not committed)
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  public Thread getThread() {
+    return thread;
+  }
+
+  /**
+   * @return the number of examples (or {@code -1} if unknown)
+   */
+  public int getExamples() {
+    return examples;
+  }
+
+  /**
+   * @return the number of features (or {@code -1} if unknown)
+   */
+  public int getFeatures() {
+    return features;
+  }
+
+  /**
+   * @return the number of classes (or {@code -1} if unknown)
+   */
+  public int getClasses() {
+    return classes;
+  }
+
+  /**
+   * @return the number of ensemble members (or {@code -1} if unknown)
+   */
+  public int getMembers() {
+    return members;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TraceEvent(%s, %s, duration=%.3fms, examples=%d, features=%d, "
+        + "classes=%d, members=%d)", kind, name, duration / 1e6, examples, features, classes,
+        members);
+  }
+
+  /**
+   * Receives committed events. The listener is called from the thread that committed the event
+   * and must be thread-safe.
+   */
+  @FunctionalInterface
+  public interface Listener {
+
+    /**
+     * @param event the committed event
+     */
+    void accept(TraceEvent event);
+  }
+}
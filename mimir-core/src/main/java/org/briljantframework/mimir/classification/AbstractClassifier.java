@@ -26,6 +26,7 @@ import java.util.Objects;
 import java.util.stream.IntStream;
 
 import org.briljantframework.array.Array;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.data.Input;
 
 /**
@@ -54,9 +55,11 @@ public abstract class AbstractClassifier<In, Out> implements Classifier<In, Out>
   @Override
   @SuppressWarnings("unchecked")
   public List<Out> predict(Input<In> x) {
+    TraceEvent event = TraceEvent.begin(TraceEvent.Kind.PREDICT, getClass().getName());
     // This guarantees that the order of predictions is the same as the input
     Object[] labels = new Object[x.size()];
     IntStream.range(0, x.size()).parallel().forEach(i -> labels[i] = predict(x.get(i)));
+    event.input(x).classes(classes.size()).commit();
     return Arrays.asList((Out[]) labels);
   }
 
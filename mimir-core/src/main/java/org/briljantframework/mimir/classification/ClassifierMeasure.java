@@ -20,12 +20,8 @@
  */
 package org.briljantframework.mimir.classification;
 
-import static org.briljantframework.array.Arrays.doubleVector;
-import static org.briljantframework.array.Arrays.mean;
-
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.briljantframework.Check;
 import org.briljantframework.array.Array;
@@ -36,6 +32,12 @@ import org.briljantframework.data.series.DoubleSeries;
 import org.briljantframework.data.series.Series;
 
 /**
+ * Common classifier measures. The labels are encoded to integer codes (i.e., the index of the
+ * label in the classes) once, after which the accuracy, precision and recall are computed in a
+ * single pass over the codes, followed by a pass for the Brier score. The area under ROC curve is
+ * computed for each class (in parallel) by sorting the primitive scores of the positive and
+ * negative examples.
+ *
  * @author Isak Karlsson <isak-kar@dsv.su.se>
  */
 public class ClassifierMeasure {
@@ -76,19 +78,64 @@ public class ClassifierMeasure {
 
     if (scores != null) {
       Check.argument(scores.rows() == predicted.size(), "Illegal score matrix (illegal rows)");
+      Check.argument(scores.isMatrix() && scores.columns() == classes.size(),
+          ILLEGAL_SCORE_MATRIX);
     }
 
-    this.accuracy = accuracy(predicted, truth);
-    this.precision = averagePrecision(predicted, truth, classes);
-    this.recall = averageRecall(predicted, truth, classes);
-    this.fMeasure = 2 * precision * recall / (precision + recall);
+    int n = predicted.size();
+    int k = classes.size();
+    Map<Object, Integer> codes = encode(classes);
+    int[] p = encode(predicted, codes);
+    int[] t = encode(truth, codes);
+
+    // One pass over the codes to compute the (diagonal of the) confusion matrix and its marginals
+    long[] predictedCount = new long[k];
+    long[] actualCount = new long[k];
+    long[] truePositive = new long[k];
+    double correct = 0;
+    for (int i = 0; i < n; i++) {
+      int pc = p[i];
+      int tc = t[i];
+      boolean isCorrect;
+      if (pc >= 0) {
+        predictedCount[pc]++;
+        isCorrect = pc == tc;
+        if (isCorrect) {
+          truePositive[pc]++;
+        }
+      } else {
+        isCorrect = Is.equal(predicted.get(i), truth.get(i));
+      }
+      if (tc >= 0) {
+        actualCount[tc]++;
+      }
+      if (isCorrect) {
+        correct++;
+      }
+    }
+
+    double precision = 0, recall = 0;
+    for (int j = 0; j < k; j++) {
+      precision += predictedCount[j] > 0 ? (double) truePositive[j] / predictedCount[j] : 0;
+      recall += actualCount[j] > 0 ? (double) truePositive[j] / actualCount[j] : 0;
+    }
+    this.accuracy = correct / n;
+    this.precision = precision / k;
+    this.recall = recall / k;
+    this.fMeasure = 2 * this.precision * this.recall / (this.precision + this.recall);
 
     if (scores != null) {
-      areaUnderRocCurve = averageAreaUnderRocCurve(predicted, truth, scores, classes);
-      brierScore = brierScore(predicted, truth, scores, classes);
+      double[][] columns = columns(scores);
+      double[] auc = areaUnderRocCurve(t, columns);
+      double averageAuc = 0;
+      for (int j = 0; j < k; j++) {
+        averageAuc += auc[j] * ((double) actualCount[j] / n);
+      }
+      this.areaUnderRocCurve = averageAuc;
+      this.brierScore = brierScore(predicted, p, t, columns);
     } else {
-      brierScore = Na.DOUBLE;
-      areaUnderRocCurve = Na.DOUBLE;
+      this.brierScore = Na.DOUBLE;
+      this.areaUnderRocCurve = Na.DOUBLE;
     }
   }
 
@@ -96,28 +143,68 @@ public class ClassifierMeasure {
     this(classes, predicted, truth, null);
   }
 
-  private double averageRecall(List<?> prediction, List<?> truth, Array<?> classes) {
-    Check.argument(prediction.size() == truth.size(), "illegal size");
-    double[] recall = new double[classes.size()];
-    for (int i = 0; i < classes.size(); i++) {
-      Object cls = classes.get(i);
-      int predicted = 0, truePositive = 0;
-      for (int j = 0; j < prediction.size(); j++) {
-        if (Is.equal(truth.get(j), cls)) {
-          predicted++;
-          if (Is.equal(prediction.get(j), cls)) {
-            truePositive++;
-          }
-        }
+  /**
+   * Returns the code of each class, i.e., the index of the first occurrence of the class
+   */
+  private static Map<Object, Integer> encode(Collection<?> classes) {
+    Map<Object, Integer> codes = new HashMap<>();
+    int i = 0;
+    for (Object cls : classes) {
+      codes.putIfAbsent(cls, i++);
+    }
+    return codes;
+  }
+
+  /**
+   * Returns the code of each value or {@code -1} if the value is not a class
+   */
+  private static int[] encode(List<?> values, Map<Object, Integer> codes) {
+    int[] encoded = new int[values.size()];
+    int i = 0;
+    for (Object value : values) {
+      Integer code = codes.get(value);
+      encoded[i++] = code != null ? code : -1;
+    }
+    return encoded;
+  }
+
+  /**
+   * Returns the mean squared difference between the score of the predicted class and {@code 1} if
+   * the prediction is correct or {@code 0} otherwise
+   */
+  private static double brierScore(List<?> predicted, int[] p, int[] t, double[][] columns) {
+    double brier = 0;
+    for (int i = 0; i < p.length; i++) {
+      if (p[i] < 0) {
+        throw new IllegalStateException("Missing class " + predicted.get(i));
+      }
+      double prob = columns[p[i]][i];
+      brier += p[i] == t[i] ? (1 - prob) * (1 - prob) : prob * prob;
+    }
+    return brier / p.length;
+  }
+
+  private static double[][] columns(DoubleArray scores) {
+    double[][] columns = new double[scores.columns()][];
+    for (int j = 0; j < columns.length; j++) {
+      DoubleArray column = scores.getColumn(j);
+      double[] values = new double[column.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = column.get(i);
       }
-      recall[i] = predicted > 0 ? (double) truePositive / predicted : 0;
+      columns[j] = values;
     }
-    return mean(doubleVector(recall));
+    return columns;
   }
 
   public static double averagePrecision(List<?> prediction, List<?> truth, Array<?> classes) {
     Check.argument(prediction.size() == truth.size(), "illegal size");
-    return mean(precision(prediction, truth, classes));
+    double[] precision = computePrecision(prediction, truth, classes);
+    double sum = 0;
+    for (double v : precision) {
+      sum += v;
+    }
+    return sum / precision.length;
   }
 
   public static DoubleArray precision(List<?> pred, List<?> actual, Collection<?> classes) {
@@ -134,19 +221,26 @@ public class ClassifierMeasure {
 
   private static double[] computePrecision(List<?> prediction, List<?> truth,
       Collection<?> classes) {
+    Map<Object, Integer> codes = encode(classes);
+    int[] p = encode(prediction, codes);
+    int[] t = encode(truth, codes);
+    long[] predicted = new long[codes.size()];
+    long[] truePositive = new long[codes.size()];
+    for (int i = 0; i < p.length; i++) {
+      if (p[i] >= 0) {
+        predicted[p[i]]++;
+        if (p[i] == t[i]) {
+          truePositive[p[i]]++;
+        }
+      }
+    }
+
+    // Duplicate classes have the same precision
     double[] precision = new double[classes.size()];
     int i = 0;
     for (Object cls : classes) {
-      int predicted = 0, truePositive = 0;
-      for (int j = 0; j < prediction.size(); j++) {
-        if (Is.equal(prediction.get(j), cls)) {
-          predicted++;
-          if (Is.equal(truth.get(j), cls)) {
-            truePositive++;
-          }
-        }
-      }
-      precision[i++] = predicted > 0 ? (double) truePositive / predicted : 0;
+      int code = codes.get(cls);
+      precision[i++] = predicted[code] > 0 ? (double) truePositive[code] / predicted[code] : 0;
     }
     return precision;
   }
@@ -187,24 +281,8 @@ public class ClassifierMeasure {
         ILLEGAL_SCORE_MATRIX);
 
     Check.argument(p.size() == t.size(), PREDICTED_ACTUAL_SIZE);
-
-    int n = p.size();
-    double brier = 0;
-    for (int i = 0; i < n; i++) {
-      // int classIndex = find(c, p, i);
-      int classIndex = c.indexOf(p.get(i));
-      if (classIndex < 0 || classIndex > c.size()) {
-        throw new IllegalStateException("Missing class " + p.get(i));
-      }
-
-      double prob = scores.get(i, classIndex);
-      if (Is.equal(p.get(i), t.get(i))) {
-        brier += Math.pow(1 - prob, 2);
-      } else {
-        brier += prob * prob;
-      }
-    }
-    return brier / n;
+    Map<Object, Integer> codes = encode(c);
+    return brierScore(p, encode(p, codes), encode(t, codes), columns(scores));
   }
 
   /**
@@ -218,16 +296,21 @@ public class ClassifierMeasure {
    */
   public static double averageAreaUnderRocCurve(List<?> p, List<?> a, DoubleArray score,
       Array<?> c) {
-    Series auc = areaUnderRocCurve(p, a, score, c);
-    Map<Object, Long> dist =
-        a.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-    double averageAuc = 0;
-    for (Object classKey : auc.index()) {
-      if (dist.containsKey(classKey)) {
-        double classCount = dist.get(classKey);
-        averageAuc += auc.getDouble(classKey) * (classCount / a.size());
+    Check.argument(score.isMatrix() && score.columns() == c.size() && score.rows() == p.size(),
+        ILLEGAL_SCORE_MATRIX);
+    Check.argument(p.size() == a.size(), PREDICTED_ACTUAL_SIZE);
+    int[] t = encode(a, encode(c));
+    double[] auc = areaUnderRocCurve(t, columns(score));
+    long[] count = new long[c.size()];
+    for (int code : t) {
+      if (code >= 0) {
+        count[code]++;
       }
     }
+    double averageAuc = 0;
+    for (int j = 0; j < auc.length; j++) {
+      averageAuc += auc[j] * ((double) count[j] / a.size());
+    }
     return averageAuc;
   }
 
@@ -244,63 +327,75 @@ public class ClassifierMeasure {
     Check.argument(score.isMatrix() && score.columns() == c.size() && score.rows() == p.size(),
         ILLEGAL_SCORE_MATRIX);
     Check.argument(p.size() == t.size(), PREDICTED_ACTUAL_SIZE);
+    double[] auc = areaUnderRocCurve(encode(t, encode(c)), columns(score));
     Series.Builder builder = new DoubleSeries.Builder();
     for (int i = 0; i < c.size(); i++) {
-      Object value = c.get(i);
-      DoubleArray s = score.getColumn(i);
-      builder.set(value, computeAuc(p, t, s, value));
+      builder.set(c.get(i), auc[i]);
     }
     return builder.build();
   }
 
-  private static double computeAuc(List<?> p, List<?> t, DoubleArray score, Object label) {
-    double truePositives = 0, falsePositives = 0, positives = 0;
-    PredictionProbability[] pairs = new PredictionProbability[p.size()];
-    for (int i = 0; i < t.size(); i++) {
-      boolean positiveness = Is.equal(t.get(i), label);
-      if (positiveness) {
+  /**
+   * Computes the area under ROC curve of each class (in parallel)
+   *
+   * @param truth the true class codes
+   * @param columns the score of each class
+   * @return the area under ROC curve of each class
+   */
+  private static double[] areaUnderRocCurve(int[] truth, double[][] columns) {
+    double[] auc = new double[columns.length];
+    IntStream.range(0, columns.length).parallel()
+        .forEach(j -> auc[j] = computeAuc(truth, columns[j], j));
+    return auc;
+  }
+
+  /**
+   * Computes the area under ROC curve as the probability that a randomly chosen positive example
+   * is scored higher than a randomly chosen negative example (with ties counted as one half). This
+   * is the same as the area given by the trapezoidal rule over the ROC curve.
+   */
+  private static double computeAuc(int[] truth, double[] score, int label) {
+    int positives = 0;
+    for (int code : truth) {
+      if (code == label) {
         positives++;
       }
-      pairs[i] = new PredictionProbability(positiveness, score.get(i));
+    }
+    int negatives = truth.length - positives;
+    if (positives == 0) {
+      return 0;
+    } else if (negatives == 0) {
+      return 1;
     }
 
-    // Sort in decreasing order of posterior probability
-    Arrays.sort(pairs);
-
-    double negatives = p.size() - positives;
-    double previousProbability = -1;
-    double auc = 0.0;
-    double previousTruePositive = 0.0;
-    double previousFalsePositive = 0.0;
-
-    // Calculates the auc using trapezoidal rule
-    for (PredictionProbability pair : pairs) {
-      double probability = pair.probability;
-      if (probability != previousProbability) {
-        double falseChange = Math.abs(falsePositives - previousFalsePositive);
-        double trueChange = truePositives + previousTruePositive;
-        auc += falseChange * trueChange / 2;
-
-        previousFalsePositive = falsePositives;
-        previousTruePositive = truePositives;
-        previousProbability = probability;
-      }
-
-      if (pair.positive) {
-        truePositives++;
+    double[] pos = new double[positives];
+    double[] neg = new double[negatives];
+    for (int i = 0, pi = 0, ni = 0; i < truth.length; i++) {
+      if (truth[i] == label) {
+        pos[pi++] = score[i];
       } else {
-        falsePositives++;
+        neg[ni++] = score[i];
       }
     }
-    if (truePositives == 0) {
-      return 0;
-    } else if (falsePositives == 0) {
-      return 1;
-    } else {
-      double negChange = Math.abs(negatives - previousFalsePositive);
-      double posChange = positives + previousTruePositive;
-      return (auc + negChange * posChange / 2) / (positives * negatives);
+    Arrays.sort(pos);
+    Arrays.sort(neg);
+
+    // For each positive (in increasing order), count the negatives with a smaller and equal score
+    double auc = 0;
+    int smaller = 0, smallerOrEqual = 0;
+    for (double s : pos) {
+      while (smaller < negatives && Double.compare(neg[smaller], s) < 0) {
+        smaller++;
+      }
+      if (smallerOrEqual < smaller) {
+        smallerOrEqual = smaller;
+      }
+      while (smallerOrEqual < negatives && Double.compare(neg[smallerOrEqual], s) <= 0) {
+        smallerOrEqual++;
+      }
+      auc += smaller + (smallerOrEqual - smaller) / 2.0;
     }
+    return auc / ((double) positives * negatives);
   }
 
   /**
@@ -370,20 +465,4 @@ public class ClassifierMeasure {
         + areaUnderRocCurve + ", brierScore=" + brierScore + ", precision=" + precision
         + ", recall=" + recall + '}';
   }
-
-  private static final class PredictionProbability implements Comparable<PredictionProbability> {
-
-    public final boolean positive;
-    public final double probability;
-
-    private PredictionProbability(boolean positive, double probability) {
-      this.positive = positive;
-      this.probability = probability;
-    }
-
-    @Override
-    public int compareTo(PredictionProbability o) {
-      return Double.compare(o.probability, this.probability);
-    }
-  }
 }
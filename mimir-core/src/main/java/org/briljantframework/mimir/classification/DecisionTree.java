@@ -27,6 +27,7 @@ import org.briljantframework.Check;
 import org.briljantframework.array.Array;
 import org.briljantframework.mimir.Properties;
 import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.classification.tree.*;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.data.Schema;
@@ -51,8 +52,8 @@ public class DecisionTree<Out> extends TreeClassifier<Instance, Out> {
 
 
   private DecisionTree(Array<Out> classes, Schema<Instance> schema, TreeNode<Instance> root,
-      TreeVisitor<Instance> predictionVisitor) {
-    super(schema, classes, root, predictionVisitor);
+      TreeVisitor<Instance> predictionVisitor, TrainingProfile profile) {
+    super(schema, classes, root, predictionVisitor, profile);
   }
 
   public int getDepth() {
@@ -86,6 +87,7 @@ public class DecisionTree<Out> extends TreeClassifier<Instance, Out> {
     @SuppressWarnings("unchecked")
     public DecisionTree<Out> fit(Input<Instance> in, List<Out> out) {
       Check.argument(in.getSchema() instanceof MultidimensionalSchema, "illegal schema");
+      TraceEvent event = TraceEvent.begin(TraceEvent.Kind.TREE_FIT, DecisionTree.class.getName());
       ClassSet classSet = this.classSet;
       Array<Out> classes =
           this.classes != null ? this.classes : Array.copyOf(new HashSet<Out>(out));
@@ -93,8 +95,10 @@ public class DecisionTree<Out> extends TreeClassifier<Instance, Out> {
         classSet = new ClassSet(out, classes);
       }
 
-      TreeNode<Instance> node = build(in, out, classSet);
-      return new DecisionTree<>(classes, in.getSchema(), node, new TreeVisitor<>());
+      TrainingProfile profile = TrainingProfile.newProfile(getParameters());
+      TreeNode<Instance> node = build(in, out, classSet, 1, profile);
+      event.input(in).classes(classes.size()).commit();
+      return new DecisionTree<>(classes, in.getSchema(), node, new TreeVisitor<>(), profile);
     }
 
     protected TreeNode<Instance> build(Input<? extends Instance> frame, List<?> target,
@@ -104,30 +108,46 @@ public class DecisionTree<Out> extends TreeClassifier<Instance, Out> {
 
     protected TreeNode<Instance> build(Input<? extends Instance> frame, List<?> target,
         ClassSet classSet, int depth) {
+      return build(frame, target, classSet, depth, TrainingProfile.disabled());
+    }
+
+    protected TreeNode<Instance> build(Input<? extends Instance> frame, List<?> target,
+        ClassSet classSet, int depth, TrainingProfile profile) {
       if (classSet.getTotalWeight() <= getOrDefault(MIN_LEAF_SIZE)
           || depth >= getOrDefault(MAX_DEPTH) || classSet.getTargetCount() == 1) {
-        return TreeLeaf.fromExamples(classSet);
+        return leaf(classSet, depth, profile);
       }
       Splitter<Instance> instanceSplitter = get(SPLITTER);
+
+      // The splitter both searches for the threshold and materializes the split
+      long start = profile.start();
       TreeSplit<Instance> maxSplit = instanceSplitter.find(classSet, frame, target);
+      profile.stop(TrainingProfile.Phase.THRESHOLD_SCAN, start);
       if (maxSplit == null) {
-        return TreeLeaf.fromExamples(classSet);
+        return leaf(classSet, depth, profile);
       } else {
+        profile.count(TrainingProfile.Counter.SPLITS, 1);
         ClassSet left = maxSplit.getLeft();
         ClassSet right = maxSplit.getRight();
         if (left.isEmpty()) {
-          return TreeLeaf.fromExamples(right);
+          return leaf(right, depth, profile);
         } else if (right.isEmpty()) {
-          return TreeLeaf.fromExamples(left);
+          return leaf(left, depth, profile);
         } else {
-          TreeNode<Instance> leftNode = build(frame, target, left, depth + 1);
-          TreeNode<Instance> rightNode = build(frame, target, right, depth + 1);
+          profile.branch(depth - 1);
+          TreeNode<Instance> leftNode = build(frame, target, left, depth + 1, profile);
+          TreeNode<Instance> rightNode = build(frame, target, right, depth + 1, profile);
           return new TreeBranch<>(leftNode, rightNode, classes, maxSplit.getThreshold(), 1,
               maxSplit.getImpurity());
         }
       }
     }
 
+    private static TreeLeaf<Instance> leaf(ClassSet classSet, int depth, TrainingProfile profile) {
+      profile.leaf(depth - 1, classSet.getTotalWeight());
+      return TreeLeaf.fromExamples(classSet);
+    }
+
   }
 
   // private static final class SimplePredictionVisitor extends TreeVisitor<Instance> {
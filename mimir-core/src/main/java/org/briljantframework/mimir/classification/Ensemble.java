@@ -32,17 +32,21 @@ import java.util.stream.Collectors;
 
 import org.briljantframework.Check;
 import org.briljantframework.array.Array;
+import org.briljantframework.array.Arrays;
 import org.briljantframework.array.BooleanArray;
 import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.classification.tree.ClassSet;
+import org.briljantframework.mimir.classification.tree.TrainingProfile;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.supervised.Predictor;
 
 /**
  * @author Isak Karlsson <isak-kar@dsv.su.se>
  */
 public abstract class Ensemble<In, Out> extends AbstractClassifier<In, Out>
-    implements ProbabilityEstimator<In, Out> {
+    implements ProbabilityEstimator<In, Out>, TrainingProfile.Profiled {
 
   /**
    * The number of members in the ensemble
@@ -50,20 +54,72 @@ public abstract class Ensemble<In, Out> extends AbstractClassifier<In, Out>
   public static final Property<Integer> SIZE =
       Property.of("ensemble_size", Integer.class, 100, i -> i > 0);
 
+  /**
+   * If larger than zero, members are added in batches of {@link #BATCH_SIZE} until the mean
+   * absolute change of the out-of-bag probability estimates between two batches is below the
+   * tolerance for {@link #PATIENCE} consecutive batches. {@link #SIZE} is the maximum number of
+   * members.
+   */
+  public static final Property<Double> OOB_TOLERANCE =
+      Property.of("ensemble_oob_tolerance", Double.class, 0.0, d -> d >= 0);
+
+  /**
+   * The number of members added between two evaluations of the stopping criteria
+   */
+  public static final Property<Integer> BATCH_SIZE =
+      Property.of("ensemble_batch_size", Integer.class, 10, i -> i > 0);
+
+  /**
+   * The number of consecutive batches the out-of-bag estimates must be stable
+   */
+  public static final Property<Integer> PATIENCE =
+      Property.of("ensemble_patience", Integer.class, 2, i -> i > 0);
+
+  /**
+   * The maximum time (in milliseconds) spent adding members. The budget is checked between
+   * batches, so at least one batch is always fitted.
+   */
+  public static final Property<Long> MAX_TIME =
+      Property.of("ensemble_max_time", Long.class, Long.MAX_VALUE, t -> t > 0);
+
   private final List<? extends ProbabilityEstimator<In, Out>> members;
   private final BooleanArray oobIndicator;
+  private final OutOfBagAccumulator outOfBag;
 
   protected Ensemble(Array<Out> classes, List<? extends ProbabilityEstimator<In, Out>> members,
       BooleanArray oobIndicator) {
+    this(classes, members, oobIndicator, null);
+  }
+
+  /**
+   * @param classes the classes
+   * @param members the members
+   * @param oobIndicator the out-of-bag indicator matrix
+   * @param outOfBag the out-of-bag estimates accumulated during training (or {@code null})
+   */
+  protected Ensemble(Array<Out> classes, List<? extends ProbabilityEstimator<In, Out>> members,
+      BooleanArray oobIndicator, OutOfBagAccumulator outOfBag) {
     super(classes);
     this.members = members;
     this.oobIndicator = oobIndicator;
+    this.outOfBag = outOfBag;
   }
 
+  /**
+   * Estimate the out-of-bag probabilities of the training data {@code x}. If the estimates were
+   * accumulated during training, no member is evaluated.
+   *
+   * @param ensemble the ensemble
+   * @param x the training data
+   * @return shape = {@code [no training samples, no classes]}
+   */
   public static <In> DoubleArray estimateOutOfBagProbabilities(Ensemble<In, ?> ensemble,
       Input<? extends In> x) {
     BooleanArray ind = ensemble.getOobIndicator();
     Check.argument(ind.rows() == x.size(), "input and oob indicator does not match");
+    if (ensemble.hasOutOfBagEstimates()) {
+      return ensemble.getOutOfBagEstimates();
+    }
 
     List<? extends ProbabilityEstimator<In, ?>> members = ensemble.getEnsembleMembers();
     DoubleArray estimates = DoubleArray.zeros(x.size(), ensemble.getClasses().size());
@@ -93,10 +149,164 @@ public abstract class Ensemble<In, Out> extends AbstractClassifier<In, Out>
     return oobIndicator;
   }
 
+  /**
+   * Returns true if the out-of-bag estimates were accumulated during training
+   *
+   * @return true if the out-of-bag estimates are available
+   */
+  public boolean hasOutOfBagEstimates() {
+    return outOfBag != null;
+  }
+
+  /**
+   * Returns the out-of-bag probability estimates accumulated during training
+   *
+   * @return shape = {@code [no training samples, no classes]}
+   * @throws IllegalStateException if the estimates were not accumulated during training
+   */
+  public DoubleArray getOutOfBagEstimates() {
+    Check.state(outOfBag != null, "out-of-bag estimates are not available");
+    return outOfBag.getEstimates();
+  }
+
+  /**
+   * Returns the out-of-bag error of the ensemble
+   *
+   * @param y the training target
+   * @return the out-of-bag error
+   * @throws IllegalStateException if the estimates were not accumulated during training
+   */
+  public double getOutOfBagError(List<?> y) {
+    Check.state(outOfBag != null, "out-of-bag estimates are not available");
+    return outOfBag.getError(y, getClasses());
+  }
+
   public List<ProbabilityEstimator<In, Out>> getEnsembleMembers() {
     return Collections.unmodifiableList(members);
   }
 
+  /**
+   * Returns the merged training profiles of the {@linkplain TrainingProfile.Profiled profiled}
+   * members of the ensemble
+   *
+   * @return the training profile (which is disabled if no member recorded a profile)
+   */
+  @Override
+  public TrainingProfile getTrainingProfile() {
+    List<TrainingProfile> profiles = new ArrayList<>();
+    for (ProbabilityEstimator<In, Out> member : members) {
+      if (member instanceof TrainingProfile.Profiled) {
+        profiles.add(((TrainingProfile.Profiled) member).getTrainingProfile());
+      }
+    }
+    return TrainingProfile.merge(profiles);
+  }
+
+  /**
+   * Estimate the class probabilities of {@code record} by evaluating the members in order and
+   * stopping as soon as the leading class cannot be overtaken by the remaining members.
+   *
+   * @param record the record
+   * @return the estimate and the number of evaluated members
+   * @see #estimateSequential(Object, double)
+   */
+  public SequentialEstimate estimateSequential(In record) {
+    return estimateSequential(record, 0);
+  }
+
+  /**
+   * Estimate the class probabilities of {@code record} by evaluating the members in order. The
+   * evaluation stops as soon as the leading class cannot be overtaken by the remaining members,
+   * or, if {@code alpha > 0}, when the Hoeffding bound on the probability that the mean margin
+   * between the leading and the second class is non-positive falls below {@code alpha}.
+   *
+   * <p>
+   * The returned estimate is the average of the evaluated members. With {@code alpha = 0} the
+   * predicted class is always the same as for {@link #estimate(Object)}.
+   *
+   * @param record the record
+   * @param alpha the significance of the confidence bound (0 disables the bound)
+   * @return the estimate and the number of evaluated members
+   */
+  public SequentialEstimate estimateSequential(In record, double alpha) {
+    Check.argument(alpha >= 0 && alpha < 1, "illegal alpha: %s", alpha);
+    double threshold = alpha > 0 ? 2 * Math.log(1 / alpha) : Double.POSITIVE_INFINITY;
+    int size = members.size();
+    double[] sum = new double[getClasses().size()];
+    int used = 0;
+    while (used < size) {
+      members.get(used++).accumulate(record, 1, sum, 0);
+      double first = Double.NEGATIVE_INFINITY;
+      double second = Double.NEGATIVE_INFINITY;
+      for (int j = 0; j < sum.length; j++) {
+        if (sum[j] > first) {
+          second = first;
+          first = sum[j];
+        } else if (sum[j] > second) {
+          second = sum[j];
+        }
+      }
+
+      double lead = first - second;
+      if (lead > size - used || lead * lead / used >= threshold) {
+        break;
+      }
+    }
+
+    DoubleArray estimate = DoubleArray.zeros(sum.length);
+    for (int j = 0; j < sum.length; j++) {
+      estimate.set(j, sum[j] / used);
+    }
+    return new SequentialEstimate(estimate, used);
+  }
+
+  /**
+   * Returns a view of the first {@code size} members of this ensemble. The members are shared
+   * with this ensemble and the out-of-bag indicator of the view only covers the retained members.
+   * Since the accumulated out-of-bag estimates cover all members, the view recomputes them when
+   * needed (see {@link #estimateOutOfBagProbabilities(Ensemble, Input)}).
+   *
+   * @param size the number of members
+   * @return an ensemble of the first {@code size} members
+   */
+  public abstract Ensemble<In, Out> subEnsemble(int size);
+
+  /**
+   * Returns the first {@code size} members of this ensemble
+   *
+   * @param size the number of members
+   * @return the first {@code size} members
+   */
+  protected List<? extends ProbabilityEstimator<In, Out>> getEnsembleMembers(int size) {
+    Check.argument(size > 0 && size <= members.size(), "illegal ensemble size: %s", size);
+    return members.subList(0, size);
+  }
+
+  /**
+   * Returns the out-of-bag indicator matrix of the first {@code size} members
+   *
+   * @param size the number of members
+   * @return shape = {@code [no training samples, size]}
+   */
+  protected BooleanArray getOobIndicator(int size) {
+    Check.argument(size > 0 && size <= members.size(), "illegal ensemble size: %s", size);
+    BooleanArray indicator = Arrays.booleanArray(oobIndicator.rows(), size);
+    copyColumns(oobIndicator, size, indicator, 0);
+    return indicator;
+  }
+
+  private static void copyColumns(BooleanArray from, int columns, BooleanArray to, int offset) {
+    for (int j = 0; j < columns; j++) {
+      BooleanArray src = from.getColumn(j);
+      BooleanArray dst = to.getColumn(offset + j);
+      for (int i = 0; i < src.size(); i++) {
+        if (src.get(i)) {
+          dst.set(i, true);
+        }
+      }
+    }
+  }
+
   protected DoubleArray averageProbabilities(In record) {
     List<DoubleArray> predictions =
         members.parallelStream().map(model -> model.estimate(record)).collect(Collectors.toList());
@@ -110,6 +320,23 @@ public abstract class Ensemble<In, Out> extends AbstractClassifier<In, Out>
     return m;
   }
 
+  @Override
+  public void estimate(In record, double[] out, int offset) {
+    int classes = getClasses().size();
+    for (int i = 0; i < classes; i++) {
+      out[offset + i] = 0;
+    }
+    accumulate(record, 1, out, offset);
+  }
+
+  @Override
+  public void accumulate(In record, double weight, double[] out, int offset) {
+    double memberWeight = weight / members.size();
+    for (ProbabilityEstimator<In, Out> member : members) {
+      member.accumulate(record, memberWeight, out, offset);
+    }
+  }
+
   /**
    * @author Isak Karlsson
    */
@@ -137,6 +364,169 @@ public abstract class Ensemble<In, Out> extends AbstractClassifier<In, Out>
       set(SIZE, size);
     }
 
+    /**
+     * Create a task fitting a single member. The task is responsible for marking the examples
+     * not used for fitting the member in {@code oobIndicator} and for adding the member's
+     * estimates of those examples to {@code outOfBag}.
+     *
+     * @param x the input
+     * @param y the output
+     * @param classes the classes
+     * @param classSet the class set of the input
+     * @param oobIndicator the out-of-bag indicator vector of the member
+     * @param outOfBag the out-of-bag accumulator of the ensemble
+     * @return a task producing a fitted member
+     */
+    protected abstract Callable<? extends ProbabilityEstimator<In, Out>> newFitTask(Input<In> x,
+        List<Out> y, Array<Out> classes, ClassSet classSet, BooleanArray oobIndicator,
+        OutOfBagAccumulator outOfBag);
+
+    /**
+     * Create an ensemble of the fitted members
+     *
+     * @param x the input
+     * @param classes the classes
+     * @param members the fitted members
+     * @param oobIndicator the out-of-bag indicator matrix
+     * @param outOfBag the out-of-bag accumulator
+     * @return a new ensemble
+     */
+    protected abstract P newEnsemble(Input<In> x, Array<Out> classes,
+        List<? extends ProbabilityEstimator<In, Out>> members, BooleanArray oobIndicator,
+        OutOfBagAccumulator outOfBag);
+
+    /**
+     * Fit an ensemble of at most {@code size} members. If {@link #OOB_TOLERANCE} or
+     * {@link #MAX_TIME} is set, members are added in batches until the out-of-bag estimates are
+     * stable or the time budget is exhausted.
+     *
+     * @param x the input
+     * @param y the output
+     * @param classes the classes
+     * @param size the (maximum) number of members
+     * @return a fitted ensemble
+     */
+    protected P fit(Input<In> x, List<Out> y, Array<Out> classes, int size) {
+      TraceEvent event = TraceEvent.begin(TraceEvent.Kind.FIT, getClass().getName());
+      P ensemble = fitEnsemble(x, y, classes, size);
+      event.input(x).classes(classes.size()).members(ensemble.getEnsembleMembers().size())
+          .commit();
+      return ensemble;
+    }
+
+    private P fitEnsemble(Input<In> x, List<Out> y, Array<Out> classes, int size) {
+      BooleanArray oobIndicator = Arrays.booleanArray(x.size(), size);
+      OutOfBagAccumulator outOfBag = new OutOfBagAccumulator(x.size(), classes.size());
+      double tolerance = getOrDefault(OOB_TOLERANCE);
+      long maxTime = getOrDefault(MAX_TIME);
+      if (tolerance <= 0 && maxTime == Long.MAX_VALUE) {
+        List<ProbabilityEstimator<In, Out>> members =
+            fitMembers(x, y, classes, 0, size, oobIndicator, outOfBag);
+        return newEnsemble(x, classes, members, oobIndicator, outOfBag);
+      }
+
+      int batchSize = getOrDefault(BATCH_SIZE);
+      int patience = getOrDefault(PATIENCE);
+      long start = System.currentTimeMillis();
+      List<ProbabilityEstimator<In, Out>> members = new ArrayList<>(size);
+      DoubleArray previous = null;
+      int stable = 0;
+      while (members.size() < size) {
+        int batch = Math.min(batchSize, size - members.size());
+        members.addAll(fitMembers(x, y, classes, members.size(), batch, oobIndicator, outOfBag));
+        if (System.currentTimeMillis() - start >= maxTime) {
+          break;
+        }
+        if (tolerance > 0) {
+          DoubleArray current = outOfBag.getEstimates();
+          if (previous != null && meanAbsoluteChange(previous, current) < tolerance) {
+            if (++stable >= patience) {
+              break;
+            }
+          } else {
+            stable = 0;
+          }
+          previous = current;
+        }
+      }
+
+      if (members.size() < size) {
+        BooleanArray indicator = Arrays.booleanArray(x.size(), members.size());
+        copyColumns(oobIndicator, members.size(), indicator, 0);
+        oobIndicator = indicator;
+      }
+      return newEnsemble(x, classes, members, oobIndicator, outOfBag);
+    }
+
+    private static double meanAbsoluteChange(DoubleArray previous, DoubleArray current) {
+      double change = 0;
+      for (int i = 0; i < current.rows(); i++) {
+        for (int j = 0; j < current.columns(); j++) {
+          change += Math.abs(current.get(i, j) - previous.get(i, j));
+        }
+      }
+      return change / current.size();
+    }
+
+    /**
+     * Grow an ensemble fitted on {@code x} and {@code y} with {@code size} additional members.
+     * The fitted ensemble is left unchanged; the returned ensemble shares its members, extends its
+     * out-of-bag indicator matrix with the new members and continues accumulating its out-of-bag
+     * estimates.
+     *
+     * @param ensemble the fitted ensemble
+     * @param x the input used to fit the ensemble
+     * @param y the output used to fit the ensemble
+     * @param size the number of members to add
+     * @return a new ensemble with {@code size} additional members
+     */
+    public P grow(P ensemble, Input<In> x, List<Out> y, int size) {
+      Check.argument(size > 0, "illegal number of members: %s", size);
+      Check.argument(x.size() == y.size(), "input and output must have the same size");
+      Ensemble<In, Out> fitted = ensemble;
+      BooleanArray fittedIndicator = fitted.getOobIndicator();
+      Check.argument(fittedIndicator.rows() == x.size(), "input and oob indicator does not match");
+
+      Array<Out> classes = fitted.getClasses();
+      int fittedSize = fitted.members.size();
+      OutOfBagAccumulator outOfBag;
+      if (fitted.outOfBag != null) {
+        outOfBag = new OutOfBagAccumulator(fitted.outOfBag);
+      } else {
+        outOfBag = new OutOfBagAccumulator(x.size(), classes.size());
+        for (int j = 0; j < fittedSize; j++) {
+          outOfBag.add(fitted.members.get(j), x, fittedIndicator.getColumn(j));
+        }
+      }
+
+      BooleanArray indicator = Arrays.booleanArray(x.size(), size);
+      List<ProbabilityEstimator<In, Out>> members = new ArrayList<>(fittedSize + size);
+      members.addAll(fitted.members);
+      members.addAll(fitMembers(x, y, classes, 0, size, indicator, outOfBag));
+
+      BooleanArray oobIndicator = Arrays.booleanArray(x.size(), fittedSize + size);
+      copyColumns(fittedIndicator, fittedSize, oobIndicator, 0);
+      copyColumns(indicator, size, oobIndicator, fittedSize);
+      return newEnsemble(x, classes, members, oobIndicator, outOfBag);
+    }
+
+    private List<ProbabilityEstimator<In, Out>> fitMembers(Input<In> x, List<Out> y,
+        Array<Out> classes, int offset, int size, BooleanArray oobIndicator,
+        OutOfBagAccumulator outOfBag) {
+      ClassSet classSet = new ClassSet(y, classes);
+      List<Callable<ProbabilityEstimator<In, Out>>> tasks = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        Callable<? extends ProbabilityEstimator<In, Out>> task =
+            newFitTask(x, y, classes, classSet, oobIndicator.getColumn(offset + i), outOfBag);
+        tasks.add(task::call);
+      }
+      try {
+        return execute(tasks);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+
     /**
      * Executes {@code callable} either sequential or in parallel depending on the number of
      * available cores.
@@ -161,4 +551,33 @@ public abstract class Ensemble<In, Out> extends AbstractClassifier<In, Out>
       return models;
     }
   }
+
+  /**
+   * The result of a sequential estimate
+   *
+   * @see Ensemble#estimateSequential(Object, double)
+   */
+  public static final class SequentialEstimate {
+    private final DoubleArray estimate;
+    private final int membersUsed;
+
+    private SequentialEstimate(DoubleArray estimate, int membersUsed) {
+      this.estimate = estimate;
+      this.membersUsed = membersUsed;
+    }
+
+    /**
+     * @return the average estimate of the evaluated members
+     */
+    public DoubleArray getEstimate() {
+      return estimate;
+    }
+
+    /**
+     * @return the number of evaluated members
+     */
+    public int getMembersUsed() {
+      return membersUsed;
+    }
+  }
 }
@@ -21,11 +21,12 @@
 package org.briljantframework.mimir.classification;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.DoubleAdder;
 import java.util.stream.IntStream;
 
-import org.briljantframework.array.*;
+import org.briljantframework.Check;
+import org.briljantframework.array.Array;
+import org.briljantframework.array.BooleanArray;
+import org.briljantframework.array.DoubleArray;
 import org.briljantframework.data.Is;
 import org.briljantframework.mimir.data.Input;
 
@@ -91,154 +92,216 @@ public class EnsembleClassifierMeasure {
         + mse + ", baseModelError=" + baseModelError + '}';
   }
 
-  private static int argmaxExcluding(DoubleArray m, int not) {
+  /**
+   * Returns the index of the largest of the {@code k} elements starting at {@code offset}
+   * (excluding the element {@code not}), or {@code -1} if no element is larger than negative
+   * infinity.
+   */
+  private static int argmaxExcluding(double[] m, int offset, int k, int not) {
     double max = Double.NEGATIVE_INFINITY;
     int argMax = -1;
-    for (int i = 0; i < m.size(); i++) {
-      if (not != i && m.get(i) > max) {
+    for (int i = 0; i < k; i++) {
+      if (not != i && m[offset + i] > max) {
         argMax = i;
-        max = m.get(i);
+        max = m[offset + i];
       }
     }
     return argMax;
   }
 
+  /**
+   * Returns the index of the first largest of the {@code k} elements starting at {@code offset}
+   */
+  private static int argmax(double[] m, int offset, int k) {
+    int argMax = 0;
+    for (int i = 1; i < k; i++) {
+      if (m[offset + i] > m[offset + argMax]) {
+        argMax = i;
+      }
+    }
+    return argMax;
+  }
+
+  private static int[] encode(Array<?> classes, List<?> y) {
+    int[] codes = new int[y.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = classes.indexOf(y.get(i));
+    }
+    return codes;
+  }
+
   private <In> void initializeStrengthCorrelation(Ensemble<In, ?> ensemble, Input<? extends In> x,
       List<?> y) {
     Array<?> classes = ensemble.getClasses();
     BooleanArray oobIndicator = ensemble.getOobIndicator();
     List<? extends ProbabilityEstimator<In, ?>> members = ensemble.getEnsembleMembers();
+    int n = x.size();
+    int m = members.size();
+    int k = classes.size();
+    int[] truth = encode(classes, y);
 
-    // Store the out-of-bag and in-bag probability estimates
-    DoubleArray oobEstimates = DoubleArray.zeros(x.size(), classes.size());
-    DoubleArray inbEstimates = DoubleArray.zeros(x.size(), classes.size());
-
-    // Count the number of times each training sample have been included
-    IntArray counts = Arrays.sum(1, oobIndicator.intArray());
+    // If the out-of-bag estimates were accumulated during training, they are reused
+    boolean accumulated = ensemble.hasOutOfBagEstimates() && oobIndicator.rows() == n;
+    DoubleArray accumulatedEstimates = accumulated ? ensemble.getOutOfBagEstimates() : null;
 
-    // Compute the in-bag and out-of-bag estimates for all examples
-    DoubleAdder oobAccuracy = new DoubleAdder();
-    IntStream.range(0, x.size()).parallel().forEach(i -> {
-      int inbSize = members.size() - counts.get(i);
-      int oobSize = counts.get(i);
+    // Evaluate each member once for each example. The mean out-of-bag and in-bag estimates are
+    // stored per example (shape [n, k]) and the out-of-bag predictions of each member in a member
+    // major matrix (shape [m, n]), which is all that is needed to compute the strength and
+    // correlation.
+    double[] oobEstimates = new double[n * k];
+    double[] inbEstimates = new double[n * k];
+    int[] oobPredictions = new int[m * n];
+    IntStream.range(0, n).parallel().forEach(i -> {
+      int oobSize = 0;
+      for (int j = 0; j < m; j++) {
+        if (oobIndicator.get(i, j)) {
+          oobSize++;
+        }
+      }
+      int inbSize = m - oobSize;
       In record = x.get(i);
-      for (int j = 0; j < members.size(); j++) {
-        DoubleArray estimate = members.get(j).estimate(record);
+      double[] estimate = new double[k];
+      int offset = i * k;
+      for (int j = 0; j < m; j++) {
+        members.get(j).estimate(record, estimate, 0);
         if (oobIndicator.get(i, j)) {
-          oobEstimates.getRow(i).combineAssign(estimate, (e, v) -> e + v / oobSize);
+          oobPredictions[j * n + i] = argmax(estimate, 0, k);
+          if (!accumulated) {
+            for (int c = 0; c < k; c++) {
+              oobEstimates[offset + c] += estimate[c] / oobSize;
+            }
+          }
         } else {
-          inbEstimates.getRow(i).combineAssign(estimate, (e, v) -> e + v / inbSize);
+          oobPredictions[j * n + i] = -1;
+          for (int c = 0; c < k; c++) {
+            inbEstimates[offset + c] += estimate[c] / inbSize;
+          }
+        }
+      }
+      if (accumulated) {
+        for (int c = 0; c < k; c++) {
+          oobEstimates[offset + c] = accumulatedEstimates.get(i, c);
         }
       }
-      // Vectors.find(classes, y, i)
-      oobAccuracy.add(classes.indexOf(y.get(i)) == Arrays.argmax(oobEstimates.getRow(i)) ? 1 : 0);
-    });
-    double avgOobAccuracy = oobAccuracy.sum() / x.size();
-    this.oobError = 1 - avgOobAccuracy;
-
-    DoubleAdder strengthA = new DoubleAdder();
-    DoubleAdder strengthSquareA = new DoubleAdder();
-    IntStream.range(0, oobEstimates.rows()).parallel().forEach(i -> {
-      DoubleArray estimation = oobEstimates.getRow(i);
-      int c = classes.indexOf(y.get(i)); // Vectors.find(classes, y, i);
-      double ma = estimation.get(c) - Arrays.maxExcluding(estimation, c);
-      strengthA.add(ma);
-      strengthSquareA.add(ma * ma);
     });
 
-    double strength = strengthA.doubleValue() / y.size();
-    double strengthSquare = strengthSquareA.doubleValue() / y.size();
+    double oobAccuracy = 0;
+    double strength = 0;
+    double strengthSquare = 0;
+    int[] inbRival = new int[n];
+    for (int i = 0; i < n; i++) {
+      int c = truth[i];
+      Check.argument(c >= 0, "unknown class: %s", y.get(i));
+      int offset = i * k;
+      oobAccuracy += c == argmax(oobEstimates, offset, k) ? 1 : 0;
+
+      int rival = argmaxExcluding(oobEstimates, offset, k, c);
+      double ma = oobEstimates[offset + c] - (rival >= 0 ? oobEstimates[offset + rival] : 0);
+      strength += ma;
+      strengthSquare += ma * ma;
+      inbRival[i] = argmaxExcluding(inbEstimates, offset, k, c);
+    }
+    this.oobError = 1 - oobAccuracy / n;
+
+    strength /= y.size();
+    strengthSquare /= y.size();
     double s2 = strength * strength;
     double variance = strengthSquare - s2;
-    double std = 0;
-    for (int j = 0; j < members.size(); j++) {
-      ProbabilityEstimator<In,?> member = members.get(j);
-      AtomicInteger oobSizeA = new AtomicInteger(0);
-      DoubleAdder p1A = new DoubleAdder();
-      DoubleAdder p2A = new DoubleAdder();
-      final int memberIndex = j;
-      IntStream.range(0, x.size()).parallel().forEach(i -> {
-        if (oobIndicator.get(i, memberIndex)) {
-          oobSizeA.getAndIncrement();
-          int c = classes.indexOf(y.get(i)); // Vectors.find(classes, y, i);
-          DoubleArray memberEstimation = member.estimate(x.get(i));
-          DoubleArray ibEstimation = inbEstimates.getRow(i);
-          p1A.add(Arrays.argmax(memberEstimation) == c ? 1 : 0);
-          p2A.add(Arrays.argmax(memberEstimation) == argmaxExcluding(ibEstimation, c) ? 1 : 0);
+
+    // The standard deviation of each member is computed in parallel and summed in member order
+    double[] memberStd = new double[m];
+    IntStream.range(0, m).parallel().forEach(j -> {
+      int oobSize = 0;
+      double p1 = 0, p2 = 0;
+      for (int i = 0, offset = j * n; i < n; i++) {
+        int prediction = oobPredictions[offset + i];
+        if (prediction >= 0) {
+          oobSize++;
+          p1 += prediction == truth[i] ? 1 : 0;
+          p2 += prediction == inbRival[i] ? 1 : 0;
         }
-      });
-      double p1 = p1A.sum() / oobSizeA.get();
-      double p2 = p2A.sum() / oobSizeA.get();
-      std += Math.sqrt(p1 + p2 + Math.pow(p1 - p2, 2));
+      }
+      p1 /= oobSize;
+      p2 /= oobSize;
+      memberStd[j] = Math.sqrt(p1 + p2 + Math.pow(p1 - p2, 2));
+    });
+    double std = 0;
+    for (double v : memberStd) {
+      std += v;
     }
-    std = Math.pow(std / members.size(), 2);
-    double correlation = variance / std;
+    std = Math.pow(std / m, 2);
     this.strength = strength;
-    this.correlation = correlation;
-    // measureCollection.add("ensembleStrength", strength);
-    // measureCollection.add("ensembleCorrelation", correlation);
-
-
+    this.correlation = variance / std;
   }
 
-  private <In> void initializeBiasVarianceDecomposition(Ensemble<In,?> ensemble,
+  private <In> void initializeBiasVarianceDecomposition(Ensemble<In, ?> ensemble,
       Input<? extends In> x, List<?> y) {
     Array<?> classes = ensemble.getClasses();
+    List<? extends ProbabilityEstimator<In, ?>> members = ensemble.getEnsembleMembers();
+    int n = x.size();
+    int m = members.size();
+    int k = classes.size();
+    int[] truth = encode(classes, y);
 
-    DoubleAdder meanVariance = new DoubleAdder();
-    DoubleAdder meanSquareError = new DoubleAdder();
-    DoubleAdder meanBias = new DoubleAdder();
-    DoubleAdder baseAccuracy = new DoubleAdder();
-    IntStream.range(0, x.size()).parallel().forEach(i -> {
+    double[] exampleVariance = new double[n];
+    double[] exampleMse = new double[n];
+    double[] exampleBias = new double[n];
+    double[] exampleAccuracy = new double[n];
+    IntStream.range(0, n).parallel().forEach(i -> {
       In record = x.get(i);
-      DoubleArray c = createTrueClassVector(classes, y.get(i));
-
+      double[] c = createTrueClassVector(classes, y.get(i));
 
-      /* Stores the probability of the m:th member for the j:th class */
-      List<? extends ProbabilityEstimator<In, ?>> members = ensemble.getEnsembleMembers();
-      int estimators = members.size();
-      DoubleArray memberEstimates = DoubleArray.zeros(estimators, classes.size());
-      for (int j = 0; j < estimators; j++) {
-        ProbabilityEstimator<In,?> member = members.get(j);
-        memberEstimates.setRow(j, member.estimate(record));
+      /* Stores the probability of the j:th member for the c:th class at [j * k + c] */
+      double[] memberEstimates = new double[m * k];
+      double[] meanEstimate = new double[k];
+      for (int j = 0; j < m; j++) {
+        members.get(j).estimate(record, memberEstimates, j * k);
+        for (int l = 0; l < k; l++) {
+          meanEstimate[l] += memberEstimates[j * k + l];
+        }
+      }
+      for (int l = 0; l < k; l++) {
+        meanEstimate[l] /= m;
       }
 
-      /* Get the mean probability vector for the i:th example */
-      DoubleArray meanEstimate = Arrays.mean(0, memberEstimates);
       double variance = 0, mse = 0, accuracy = 0;
-      for (int j = 0; j < memberEstimates.rows(); j++) {
-        DoubleArray r = memberEstimates.getRow(j);
-        double meanDiff = 0;
-        double trueDiff = 0;
-        for (int k = 0; k < c.size(); k++) {
-          trueDiff += Math.pow(r.get(k) - c.get(k), 2);
-          meanDiff += Math.pow(r.get(k) - meanEstimate.get(k), 2);
+      for (int j = 0; j < m; j++) {
+        int offset = j * k;
+        for (int l = 0; l < k; l++) {
+          double r = memberEstimates[offset + l];
+          mse += (r - c[l]) * (r - c[l]);
+          variance += (r - meanEstimate[l]) * (r - meanEstimate[l]);
         }
-        variance += meanDiff;
-        mse += trueDiff;
-        accuracy += Arrays.argmax(r) == classes.indexOf(y.get(i)) ? 1 : 0;
+        accuracy += argmax(memberEstimates, offset, k) == truth[i] ? 1 : 0;
       }
       double meanTrueDiff = 0;
-      for (int k = 0; k < c.size(); k++) {
-        meanTrueDiff += Math.pow(meanEstimate.get(k) - c.get(k), 2);
+      for (int l = 0; l < k; l++) {
+        meanTrueDiff += (meanEstimate[l] - c[l]) * (meanEstimate[l] - c[l]);
       }
-      meanBias.add(meanTrueDiff);
-      meanVariance.add(variance / estimators);
-      meanSquareError.add(mse / estimators);
-      baseAccuracy.add(accuracy / estimators);
+      exampleBias[i] = meanTrueDiff;
+      exampleVariance[i] = variance / m;
+      exampleMse[i] = mse / m;
+      exampleAccuracy[i] = accuracy / m;
     });
 
-    this.variance = meanVariance.doubleValue() / x.size();
-    this.bias = meanBias.doubleValue() / x.size();
-    this.mse = meanSquareError.doubleValue() / x.size();
-    this.baseModelError = 1 - baseAccuracy.doubleValue() / x.size();
+    double variance = 0, bias = 0, mse = 0, accuracy = 0;
+    for (int i = 0; i < n; i++) {
+      variance += exampleVariance[i];
+      bias += exampleBias[i];
+      mse += exampleMse[i];
+      accuracy += exampleAccuracy[i];
+    }
+    this.variance = variance / n;
+    this.bias = bias / n;
+    this.mse = mse / n;
+    this.baseModelError = 1 - accuracy / n;
   }
 
-  private static DoubleArray createTrueClassVector(Array<?> classes, Object label) {
-    DoubleArray c = DoubleArray.zeros(classes.size());
+  private static double[] createTrueClassVector(Array<?> classes, Object label) {
+    double[] c = new double[classes.size()];
     for (int j = 0; j < classes.size(); j++) {
       if (Is.equal(classes.get(j), label)) {
-        c.set(j, 1);
+        c[j] = 1;
       }
     }
     return c;
@@ -82,42 +82,45 @@ public class LogisticRegression<Out> extends AbstractClassifier<Instance, Out>
 
   @Override
   public DoubleArray estimate(Instance record) {
-    Check.argument(schema.isValid(record), "illegal input");
-    return estimateProbability(record.getNumericalAttributes());
+    double[] estimate = new double[getClasses().size()];
+    estimate(record, estimate, 0);
+    return DoubleArray.of(estimate);
   }
 
-  private DoubleArray estimateProbability(DoubleVector record) {
-    DoubleArray x = DoubleArray.zeros(record.size() + 1);
-    x.set(0, 1); // set the intercept
-    for (int i = 0; i < record.size(); i++) {
-      x.set(i + 1, record.getDouble(i));
-    }
-    Array<?> classes = getClasses();
-    int k = classes.size();
+  @Override
+  public void estimate(Instance record, double[] out, int offset) {
+    Check.argument(schema.isValid(record), "illegal input");
+    DoubleVector x = record.getNumericalAttributes();
+    int k = getClasses().size();
     if (k > 2) {
-      DoubleArray probs = DoubleArray.zeros(k);
       double max = Double.NEGATIVE_INFINITY;
-      for (int i = 0; i < k; i++) {
-        double prob = Arrays.inner(x, coefficients.getColumn(i));
+      for (int j = 0; j < k; j++) {
+        double prob = coefficients.get(0, j); // the intercept
+        for (int i = 0; i < x.size(); i++) {
+          prob += coefficients.get(i + 1, j) * x.getDouble(i);
+        }
         if (prob > max) {
           max = prob;
         }
-        probs.set(i, prob);
+        out[offset + j] = prob;
       }
 
       double z = 0;
-      for (int i = 0; i < k; i++) {
-        probs.set(i, Math.exp(probs.get(i) - max));
-        z += probs.get(i);
+      for (int j = 0; j < k; j++) {
+        out[offset + j] = Math.exp(out[offset + j] - max);
+        z += out[offset + j];
+      }
+      for (int j = 0; j < k; j++) {
+        out[offset + j] /= z;
       }
-      Arrays.scal(1 / z, probs);
-      return probs;
     } else {
-      double prob = logistic(Arrays.inner(x, coefficients));
-      DoubleArray probs = DoubleArray.zeros(2);
-      probs.set(0, 1 - prob);
-      probs.set(1, prob);
-      return probs;
+      double prob = coefficients.get(0); // the intercept
+      for (int i = 0; i < x.size(); i++) {
+        prob += coefficients.get(i + 1) * x.getDouble(i);
+      }
+      prob = logistic(prob);
+      out[offset] = 1 - prob;
+      out[offset + 1] = prob;
     }
   }
 
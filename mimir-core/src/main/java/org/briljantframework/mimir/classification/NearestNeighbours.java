@@ -26,11 +26,18 @@ import java.util.List;
 import org.briljantframework.Check;
 import org.briljantframework.array.Array;
 import org.briljantframework.array.DoubleArray;
-import org.briljantframework.data.Is;
+import org.briljantframework.mimir.Properties;
 import org.briljantframework.mimir.Property;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.distance.Distance;
+import org.briljantframework.mimir.neighbours.HnswGraph;
+import org.briljantframework.mimir.neighbours.KDTree;
+import org.briljantframework.mimir.neighbours.LinearSearch;
+import org.briljantframework.mimir.neighbours.NeighbourSearch;
+import org.briljantframework.mimir.neighbours.Neighbours;
+import org.briljantframework.mimir.neighbours.VantagePointTree;
 import org.briljantframework.mimir.supervised.Predictor;
+import org.briljantframework.mimir.supervised.data.Instance;
 
 /**
  * In pattern recognition, the k-Nearest Neighbors algorithm (or k-NN for short) is a non-parametric
@@ -55,43 +62,119 @@ public class NearestNeighbours<In, Out> extends AbstractClassifier<In, Out>
 
   public static final Property<Integer> NEIGHBORS = Property.of("neighbours", Integer.class, 1);
 
+  /**
+   * The weighting of the neighbours' votes
+   */
+  public static final Property<Weighting> WEIGHTING =
+      Property.of("neighbours_weighting", Weighting.class, Weighting.UNIFORM);
+
+  /**
+   * The index used to search for the nearest neighbours
+   */
+  public static final Property<Index> INDEX =
+      Property.of("neighbours_index", Index.class, Index.LINEAR);
+
+  /**
+   * The number of connections per example and layer of the {@linkplain Index#HNSW HNSW graph}
+   */
+  public static final Property<Integer> HNSW_M =
+      Property.of("hnsw_m", Integer.class, 16, i -> i > 1);
+
+  /**
+   * The search width used when constructing the {@linkplain Index#HNSW HNSW graph}
+   */
+  public static final Property<Integer> HNSW_EF_CONSTRUCTION =
+      Property.of("hnsw_ef_construction", Integer.class, 200, i -> i > 0);
+
+  /**
+   * The search width used when querying the {@linkplain Index#HNSW HNSW graph}
+   */
+  public static final Property<Integer> HNSW_EF_SEARCH =
+      Property.of("hnsw_ef_search", Integer.class, 50, i -> i > 0);
+
   private final Input<In> x;
   private final List<Out> y;
+  private final int[] targets;
   private final Distance<? super In> distance;
+  private final NeighbourSearch<In> search;
+  private final Weighting weighting;
 
   private final int k;
 
   private NearestNeighbours(Array<Out> classes, Input<In> x, List<Out> y,
-      Distance<? super In> distance, int k) {
+      Distance<? super In> distance, NeighbourSearch<In> search, int k, Weighting weighting) {
     super(classes);
     this.x = x;
     this.y = y;
     this.distance = distance;
+    this.search = search;
     this.k = k;
+    this.weighting = weighting;
+    this.targets = new int[y.size()];
+    for (int i = 0; i < targets.length; i++) {
+      targets[i] = classes.indexOf(y.get(i));
+    }
   }
 
   @Override
   public DoubleArray estimate(In record) {
+    double[] estimate = new double[getClasses().size()];
+    estimate(record, estimate, 0);
+    return DoubleArray.of(estimate);
+  }
+
+  @Override
+  public void estimate(In record, double[] out, int offset) {
+    int classes = getClasses().size();
+    for (int i = 0; i < classes; i++) {
+      out[offset + i] = 0;
+    }
+    accumulate(record, 1, out, offset);
+  }
+
+  @Override
+  public void accumulate(In record, double weight, double[] out, int offset) {
     Check.argument(x.getSchema().isValid(record), "illegal instance");
+    Neighbours neighbours = search.search(record, k);
+    int n = neighbours.size();
+    if (n == 0) {
+      return;
+    }
 
-    // Only 1nn
-    // TODO: 3/14/16 fix k
-    Object cls = null;
-    double bestSoFar = Double.POSITIVE_INFINITY;
-    for (int i = 0; i < x.size(); i++) {
-      double distance = this.distance.compute(x.get(i), record);
-      if (distance < bestSoFar) {
-        cls = y.get(i);
-        bestSoFar = distance;
+    if (weighting == Weighting.DISTANCE && neighbours.getDistance(0) > 0) {
+      double total = 0;
+      for (int i = 0; i < n; i++) {
+        total += 1 / neighbours.getDistance(i);
+      }
+      for (int i = 0; i < n; i++) {
+        double w = 1 / neighbours.getDistance(i) / total;
+        out[offset + targets[neighbours.getIndex(i)]] += weight * w;
+      }
+    } else {
+      if (weighting == Weighting.DISTANCE) {
+        // only the exact matches vote
+        int matches = 1;
+        while (matches < n && neighbours.getDistance(matches) == 0) {
+          matches++;
+        }
+        n = matches;
+      }
+      for (int i = 0; i < n; i++) {
+        out[offset + targets[neighbours.getIndex(i)]] += weight / n;
       }
     }
+  }
 
-    Array<?> classes = getClasses();
-    DoubleArray estimate = DoubleArray.zeros(classes.size());
-    for (int i = 0; i < classes.size(); i++) {
-      estimate.set(i, Is.equal(classes.get(i), cls) ? 1 : 0);
-    }
-    return estimate;
+  /**
+   * Returns the {@code k} nearest neighbours of the given example in the search space represented
+   * by this classifier
+   *
+   * @param example the given example
+   * @param k the number of neighbours
+   * @return the neighbours ordered by increasing distance
+   */
+  public Neighbours getNeighbours(In example, int k) {
+    return search.search(example, k);
   }
 
   public DoubleArray pairwiseDistance(Input<? extends In> x) {
@@ -127,6 +210,105 @@ public class NearestNeighbours<In, Out> extends AbstractClassifier<In, Out>
     return y;
   }
 
+  /**
+   * @return the examples of the search space represented by this classifier
+   */
+  public Input<In> getInput() {
+    return x;
+  }
+
+  /**
+   * @return the distance used to search for neighbours
+   */
+  public Distance<? super In> getDistance() {
+    return distance;
+  }
+
+  /**
+   * The weighting of the neighbours' votes
+   */
+  public enum Weighting {
+    /**
+     * Each neighbour has the same vote
+     */
+    UNIFORM,
+
+    /**
+     * Each neighbour's vote is proportional to the inverse of its distance
+     */
+    DISTANCE
+  }
+
+  /**
+   * The index used to search for the nearest neighbours. The index is built when the classifier is
+   * fit.
+   */
+  public enum Index {
+    /**
+     * Exhaustive parallel scan of the training data
+     */
+    LINEAR {
+      @Override
+      public <T> NeighbourSearch<T> newSearch(List<? extends T> x, Distance<? super T> distance,
+          Properties properties) {
+        return new LinearSearch<>(x, distance);
+      }
+    },
+
+    /**
+     * Vantage-point tree; exact if the distance is a metric
+     */
+    VP_TREE {
+      @Override
+      public <T> NeighbourSearch<T> newSearch(List<? extends T> x, Distance<? super T> distance,
+          Properties properties) {
+        return new VantagePointTree<>(x, distance);
+      }
+    },
+
+    /**
+     * k-d tree over the numerical attributes of {@link Instance} examples. The tree only supports
+     * the euclidean distance, i.e., the distance must be {@link KDTree#EUCLIDEAN}.
+     */
+    KD_TREE {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <T> NeighbourSearch<T> newSearch(List<? extends T> x, Distance<? super T> distance,
+          Properties properties) {
+        Check.argument(KDTree.EUCLIDEAN.equals(distance),
+            "k-d tree requires the distance KDTree.EUCLIDEAN");
+        Check.argument(x.stream().allMatch(e -> e instanceof Instance),
+            "k-d tree requires Instance examples");
+        return (NeighbourSearch<T>) new KDTree((List<? extends Instance>) x);
+      }
+    },
+
+    /**
+     * Hierarchical navigable small world graph for approximate search, configured by
+     * {@link #HNSW_M}, {@link #HNSW_EF_CONSTRUCTION} and {@link #HNSW_EF_SEARCH}
+     */
+    HNSW {
+      @Override
+      public <T> NeighbourSearch<T> newSearch(List<? extends T> x, Distance<? super T> distance,
+          Properties properties) {
+        return new HnswGraph<>(x, distance, properties.getOrDefault(HNSW_M),
+            properties.getOrDefault(HNSW_EF_CONSTRUCTION), properties.getOrDefault(HNSW_EF_SEARCH));
+      }
+    };
+
+    /**
+     * Build a search index over {@code x}
+     *
+     * @param x the examples to search
+     * @param distance the distance
+     * @param properties the parameters of the index
+     * @param <T> the type of examples
+     * @return a new search index
+     */
+    public abstract <T> NeighbourSearch<T> newSearch(List<? extends T> x,
+        Distance<? super T> distance, Properties properties);
+  }
+
   public static class Learner<In, Out>
       extends Predictor.Learner<In, Out, NearestNeighbours<In, Out>> {
     private final Distance<? super In> distance;
@@ -141,7 +323,8 @@ public class NearestNeighbours<In, Out> extends AbstractClassifier<In, Out>
       Check.argument(x.size() == y.size(), "The size of x and y don't match: %s != %s.", x.size(),
           y.size());
       return new NearestNeighbours<>(Array.copyOf(new HashSet<>(y)), x, y, distance,
-          get(NEIGHBORS));
+          getOrDefault(INDEX).newSearch(x, distance, getParameters()), get(NEIGHBORS),
+          getOrDefault(WEIGHTING));
     }
 
     @Override
@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification;
+
+import java.util.List;
+
+import org.briljantframework.Check;
+import org.briljantframework.array.Array;
+import org.briljantframework.array.BooleanArray;
+import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.data.Input;
+
+/**
+ * Accumulates the out-of-bag probability estimates of the members of an ensemble. Each member adds
+ * its estimates for the training examples excluded from its bootstrap sample as soon as it has been
+ * fitted, which makes the out-of-bag estimates a by-product of training.
+ *
+ * <p/>
+ * The accumulator is thread-safe. Members are evaluated without holding a lock and their estimates
+ * are merged in a single synchronized step.
+ *
+ * @author Isak Karlsson
+ */
+public final class OutOfBagAccumulator {
+
+  private final int size;
+  private final int classes;
+  private final double[] sums;
+  private final int[] counts;
+
+  /**
+   * Create a new accumulator for the specified number of training examples and classes
+   *
+   * @param size the number of training examples
+   * @param classes the number of classes
+   */
+  public OutOfBagAccumulator(int size, int classes) {
+    Check.argument(size >= 0 && classes > 0, "illegal size");
+    this.size = size;
+    this.classes = classes;
+    this.sums = new double[size * classes];
+    this.counts = new int[size];
+  }
+
+  /**
+   * Create a copy of the given accumulator
+   *
+   * @param accumulator the accumulator to copy
+   */
+  public OutOfBagAccumulator(OutOfBagAccumulator accumulator) {
+    synchronized (accumulator) {
+      this.size = accumulator.size;
+      this.classes = accumulator.classes;
+      this.sums = accumulator.sums.clone();
+      this.counts = accumulator.counts.clone();
+    }
+  }
+
+  /**
+   * Add the estimates of the given member for the training examples that are out-of-bag according
+   * to the given indicator.
+   *
+   * @param member the ensemble member
+   * @param x the training data
+   * @param oobIndicator shape = {@code [no training samples]}; {@code true} if the i:th training
+   *        sample is out-of-bag for the member
+   */
+  public <In> void add(ProbabilityEstimator<In, ?> member, Input<? extends In> x,
+      BooleanArray oobIndicator) {
+    Check.argument(x.size() == size && oobIndicator.size() == size,
+        "input and oob indicator does not match");
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      if (oobIndicator.get(i)) {
+        n++;
+      }
+    }
+
+    int[] index = new int[n];
+    double[] estimates = new double[n * classes];
+    for (int i = 0, j = 0; i < size; i++) {
+      if (oobIndicator.get(i)) {
+        DoubleArray estimate = member.estimate(x.get(i));
+        for (int k = 0; k < classes; k++) {
+          estimates[j * classes + k] = estimate.get(k);
+        }
+        index[j++] = i;
+      }
+    }
+
+    synchronized (this) {
+      for (int j = 0; j < n; j++) {
+        int offset = index[j] * classes;
+        for (int k = 0; k < classes; k++) {
+          sums[offset + k] += estimates[j * classes + k];
+        }
+        counts[index[j]]++;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of training examples
+   *
+   * @return the number of training examples
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of members for which the i:th training example is out-of-bag
+   *
+   * @param i the index of the training example
+   * @return the number of members
+   */
+  public synchronized int getCount(int i) {
+    Check.index(i, size);
+    return counts[i];
+  }
+
+  /**
+   * Returns the out-of-bag probability estimates. Training examples that have not been out-of-bag
+   * for any member have an all-zero estimate.
+   *
+   * @return shape = {@code [no training samples, no classes]}
+   */
+  public synchronized DoubleArray getEstimates() {
+    DoubleArray estimates = DoubleArray.zeros(size, classes);
+    for (int i = 0; i < size; i++) {
+      int count = counts[i];
+      if (count > 0) {
+        int offset = i * classes;
+        for (int k = 0; k < classes; k++) {
+          estimates.set(i, k, sums[offset + k] / count);
+        }
+      }
+    }
+    return estimates;
+  }
+
+  /**
+   * Returns the out-of-bag error, i.e., the fraction of training examples for which the out-of-bag
+   * estimate does not predict the true class. Training examples that have not been out-of-bag for
+   * any member are ignored.
+   *
+   * @param y the training target
+   * @param classes the classes (the j:th class corresponds to the j:th column of the estimates)
+   * @return the out-of-bag error
+   */
+  public synchronized double getError(List<?> y, Array<?> classes) {
+    Check.argument(y.size() == size, "input and oob indicator does not match");
+    int errors = 0, n = 0;
+    for (int i = 0; i < size; i++) {
+      if (counts[i] > 0) {
+        int offset = i * this.classes;
+        int argmax = 0;
+        for (int k = 1; k < this.classes; k++) {
+          if (sums[offset + k] > sums[offset + argmax]) {
+            argmax = k;
+          }
+        }
+        if (argmax != classes.indexOf(y.get(i))) {
+          errors++;
+        }
+        n++;
+      }
+    }
+    return n > 0 ? (double) errors / n : Double.NaN;
+  }
+}
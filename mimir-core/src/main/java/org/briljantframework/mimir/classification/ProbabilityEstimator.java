@@ -24,6 +24,7 @@ import java.util.stream.IntStream;
 
 import org.briljantframework.array.Arrays;
 import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.data.Input;
 
 /**
@@ -48,8 +49,10 @@ public interface ProbabilityEstimator<In, Out> extends Classifier<In, Out> {
    * @return a matrix with probability estimates; shape = {@code [x.rows(), getClasses().size()]}.
    */
   default DoubleArray estimate(Input<In> x) {
+    TraceEvent event = TraceEvent.begin(TraceEvent.Kind.PREDICT, getClass().getName());
     DoubleArray estimations = DoubleArray.zeros(x.size(), getClasses().size());
     IntStream.range(0, x.size()).parallel().forEach(i -> estimations.setRow(i, estimate(x.get(i))));
+    event.input(x).classes(getClasses().size()).commit();
     return estimations;
   }
 
@@ -64,4 +67,41 @@ public interface ProbabilityEstimator<In, Out> extends Classifier<In, Out> {
    * @return an array with probability estimates; shape = {@code [1, this.getClasses().size()]}.
    */
   DoubleArray estimate(In input);
+
+  /**
+   * Estimates the posterior probability for the supplied input and writes it to {@code out},
+   * overwriting the elements {@code out[offset]} to {@code out[offset + getClasses().size() - 1]}.
+   *
+   * <p>
+   * The default implementation delegates to {@link #estimate(Object)}; implementations should
+   * override it to avoid allocating intermediate arrays.
+   *
+   * @param input the input to estimate the posterior probability for
+   * @param out the destination buffer
+   * @param offset the position in {@code out} of the first class
+   */
+  default void estimate(In input, double[] out, int offset) {
+    DoubleArray estimate = estimate(input);
+    for (int i = 0; i < estimate.size(); i++) {
+      out[offset + i] = estimate.get(i);
+    }
+  }
+
+  /**
+   * Estimates the posterior probability for the supplied input and adds it, multiplied by
+   * {@code weight}, to the elements {@code out[offset]} to
+   * {@code out[offset + getClasses().size() - 1]}.
+   *
+   * @param input the input to estimate the posterior probability for
+   * @param weight the weight of the estimate
+   * @param out the destination buffer
+   * @param offset the position in {@code out} of the first class
+   * @see #estimate(Object, double[], int)
+   */
+  default void accumulate(In input, double weight, double[] out, int offset) {
+    DoubleArray estimate = estimate(input);
+    for (int i = 0; i < estimate.size(); i++) {
+      out[offset + i] += weight * estimate.get(i);
+    }
+  }
 }
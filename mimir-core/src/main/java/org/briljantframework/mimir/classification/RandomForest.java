@@ -20,7 +20,6 @@
  */
 package org.briljantframework.mimir.classification;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
@@ -28,7 +27,6 @@ import java.util.concurrent.Callable;
 
 import org.briljantframework.Check;
 import org.briljantframework.array.Array;
-import org.briljantframework.array.Arrays;
 import org.briljantframework.array.BooleanArray;
 import org.briljantframework.array.DoubleArray;
 import org.briljantframework.mimir.Properties;
@@ -47,8 +45,9 @@ public final class RandomForest<Out> extends Ensemble<Instance, Out> {
   private final MultidimensionalSchema schema;
 
   private RandomForest(Array<Out> classes, MultidimensionalSchema schema,
-      List<? extends DecisionTree<Out>> members, BooleanArray oobIndicator) {
-    super(classes, members, oobIndicator);
+      List<? extends ProbabilityEstimator<Instance, Out>> members, BooleanArray oobIndicator,
+      OutOfBagAccumulator outOfBag) {
+    super(classes, members, oobIndicator, outOfBag);
     this.schema = schema;
   }
 
@@ -63,6 +62,12 @@ public final class RandomForest<Out> extends Ensemble<Instance, Out> {
     return averageProbabilities(input);
   }
 
+  @Override
+  public RandomForest<Out> subEnsemble(int size) {
+    return new RandomForest<>(getClasses(), schema, getEnsembleMembers(size),
+        getOobIndicator(size), null);
+  }
+
   /**
    * @author Isak Karlsson
    */
@@ -80,22 +85,22 @@ public final class RandomForest<Out> extends Ensemble<Instance, Out> {
 
       Array<Out> classes = Array.copyOf(new HashSet<>(y));
       Check.argument(classes.size() > 1, "require more than 1 output.");
+      return fit(x, y, classes, get(SIZE));
+    }
 
-      ClassSet classSet = new ClassSet(y, classes);
-      int size = get(SIZE);
-      BooleanArray oobIndicator = Arrays.booleanArray(x.size(), size);
-      List<FitTask<Out>> fitTasks = new ArrayList<>(size);
-      for (int i = 0; i < size; i++) {
-        fitTasks.add(
-            new FitTask<>(classSet, getParameters(), x, y, classes, oobIndicator.getColumn(i)));
-      }
-      try {
-        return new RandomForest<>(classes, (MultidimensionalSchema) x.getSchema(),
-            execute(fitTasks), oobIndicator);
-      } catch (Exception e) {
-        e.printStackTrace();
-        return null;
-      }
+    @Override
+    protected Callable<DecisionTree<Out>> newFitTask(Input<Instance> x, List<Out> y,
+        Array<Out> classes, ClassSet classSet, BooleanArray oobIndicator,
+        OutOfBagAccumulator outOfBag) {
+      return new FitTask<>(classSet, getParameters(), x, y, classes, oobIndicator, outOfBag);
+    }
+
+    @Override
+    protected RandomForest<Out> newEnsemble(Input<Instance> x, Array<Out> classes,
+        List<? extends ProbabilityEstimator<Instance, Out>> members, BooleanArray oobIndicator,
+        OutOfBagAccumulator outOfBag) {
+      return new RandomForest<>(classes, (MultidimensionalSchema) x.getSchema(), members,
+          oobIndicator, outOfBag);
     }
 
     @Override
@@ -110,15 +115,17 @@ public final class RandomForest<Out> extends Ensemble<Instance, Out> {
       private final List<Out> y;
       private final Array<Out> classes;
       private final BooleanArray oobIndicator;
+      private final OutOfBagAccumulator outOfBag;
       private final Properties properties;
 
       private FitTask(ClassSet classSet, Properties properties, Input<Instance> x, List<Out> y,
-          Array<Out> classes, BooleanArray oobIndicator) {
+          Array<Out> classes, BooleanArray oobIndicator, OutOfBagAccumulator outOfBag) {
         this.classSet = classSet;
         this.x = x;
         this.y = y;
         this.classes = classes;
         this.oobIndicator = oobIndicator;
+        this.outOfBag = outOfBag;
         this.properties = properties;
       }
 
@@ -128,7 +135,9 @@ public final class RandomForest<Out> extends Ensemble<Instance, Out> {
         ClassSet bootstrap = sample(classSet, random);
         DecisionTree.Learner<Out> learner =
             new DecisionTree.Learner<>(classes, properties, bootstrap);
-        return learner.fit(x, y);
+        DecisionTree<Out> tree = learner.fit(x, y);
+        outOfBag.add(tree, x, oobIndicator);
+        return tree;
       }
 
       public ClassSet sample(ClassSet classSet, Random random) {
@@ -0,0 +1,85 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.briljantframework.array.Array;
+import org.briljantframework.array.DoubleArray;
+
+/**
+ * A conformal classifier with a single nonconformity measure and a single set of calibration
+ * scores, e.g., an inductive or an online conformal classifier.
+ *
+ * @author Isak Karlsson
+ */
+public abstract class AbstractInductiveConformalClassifier<In, Out>
+    extends ConformalClassifier<In, Out> {
+
+  /**
+   * Create a new inductive conformal classifier.
+   *
+   * @param classes the classes
+   * @param stochasticSmoothing enable stochastic smoothing
+   */
+  protected AbstractInductiveConformalClassifier(Array<Out> classes, boolean stochasticSmoothing) {
+    super(classes, stochasticSmoothing);
+  }
+
+  /**
+   * Return the non conformity scorer
+   *
+   * @return a classifier nonconformity
+   */
+  protected abstract Nonconformity<In, Out> getClassifierNonconformity();
+
+  /**
+   * Get the calibration
+   *
+   * @return a classifier calibration
+   */
+  protected abstract CalibratorScores<In, Out> getCalibrationScores();
+
+  @Override
+  public DoubleArray estimate(In in) {
+    DoubleArray significance = DoubleArray.zeros(getClasses().size());
+    double tau = isStochasticSmoothing() ? ThreadLocalRandom.current().nextDouble() : 1;
+    DoubleArray scores = getClassifierNonconformity().estimate(in, getClasses());
+    for (int i = 0; i < significance.size(); i++) {
+      significance.set(i, getPValue(in, getClasses().get(i), scores.get(i), tau));
+    }
+    return significance;
+  }
+
+  /**
+   * Returns the p-value of the nonconformity score of the given example and label. The default
+   * implementation uses the {@linkplain #getCalibrationScores() calibration scores}.
+   *
+   * @param example the example
+   * @param label the label
+   * @param score the nonconformity score of the example and label
+   * @param tau the smoothing factor
+   * @return the p-value
+   */
+  protected double getPValue(In example, Out label, double score, double tau) {
+    return getCalibrationScores().getSorted(example, label).getPValue(score, tau);
+  }
+}
@@ -32,7 +32,8 @@ import java.util.List;
 /**
  * @author Isak Karlsson
  */
-public class BootstrapConformalClassifier<In, Out> extends ConformalClassifier<In, Out> {
+public class BootstrapConformalClassifier<In, Out>
+    extends AbstractInductiveConformalClassifier<In, Out> {
 
   private final CalibratorScores<In, Out> calibratorScores;
   private final Nonconformity<In, Out> nonconformity;
@@ -70,11 +71,11 @@ public class BootstrapConformalClassifier<In, Out> extends ConformalClassifier<I
       @SuppressWarnings("unchecked")
       Ensemble<In, Out> ensemble = (Ensemble<In, Out>) pen.getProbabilityEstimator();
       DoubleArray estimate = Ensemble.estimateOutOfBagProbabilities(ensemble, x);
-      DoubleArray calibrationScores = ProbabilityCostFunction
-          .estimate(pen.getProbabilityCostFunction(), estimate, y, ensemble.getClasses());
+      SortedCalibrationScores calibrationScores = SortedCalibrationScores.of(ProbabilityCostFunction
+          .estimate(pen.getProbabilityCostFunction(), estimate, y, ensemble.getClasses()));
       return new BootstrapConformalClassifier<>(
           getOrDefault(ConformalClassifier.STOCHASTIC_SMOOTHING), ensemble.getClasses(),
-          (example, label) -> calibrationScores, pen);
+          CalibratorScores.of((example, label) -> calibrationScores), pen);
     }
   }
 
@@ -0,0 +1,272 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.apache.commons.math3.util.Precision;
+import org.briljantframework.Check;
+import org.briljantframework.array.DoubleArray;
+
+/**
+ * A bounded window of calibration scores, to which scores are added one at a time. When the window
+ * is full, the oldest score is evicted, and scores older than the maximum age are evicted when new
+ * scores are added or when {@link #evict(long)} is called.
+ *
+ * <p>
+ * The scores are kept in an order-statistics tree (a randomized binary search tree augmented with
+ * subtree sizes) such that both adding a score and computing a p-value require {@code O(log n)}
+ * time. The p-values are identical to those computed by {@link SortedCalibrationScores}.
+ *
+ * <p>
+ * The window is thread-safe.
+ *
+ * @author Isak Karlsson
+ */
+public final class CalibrationWindow {
+
+  private final int capacity;
+  private final long maxAge;
+
+  private final Deque<Entry> entries = new ArrayDeque<>();
+  private final Random random = new Random();
+  private Node root = null;
+
+  /**
+   * Create a new calibration window
+   *
+   * @param capacity the maximum number of scores
+   * @param maxAge the maximum age of a score (in the unit of the time stamps)
+   */
+  public CalibrationWindow(int capacity, long maxAge) {
+    Check.argument(capacity > 0, "capacity must be positive");
+    Check.argument(maxAge > 0, "max age must be positive");
+    this.capacity = capacity;
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Create a new calibration window without time-based eviction
+   *
+   * @param capacity the maximum number of scores
+   */
+  public CalibrationWindow(int capacity) {
+    this(capacity, Long.MAX_VALUE);
+  }
+
+  /**
+   * Add a calibration score observed at the given time. Scores that are older than the maximum age
+   * relative to {@code time} are evicted, and the oldest score is evicted if the window is full.
+   *
+   * @param score the calibration score
+   * @param time the time stamp of the score (non-decreasing)
+   */
+  public synchronized void add(double score, long time) {
+    evict(time);
+    if (entries.size() == capacity) {
+      remove(entries.removeFirst());
+    }
+    entries.addLast(new Entry(score, time));
+    if (!Double.isNaN(score)) {
+      root = insert(root, score);
+    }
+  }
+
+  /**
+   * Evict all scores older than the maximum age relative to {@code time}.
+   *
+   * @param time the current time
+   */
+  public synchronized void evict(long time) {
+    while (!entries.isEmpty() && isExpired(entries.peekFirst(), time)) {
+      remove(entries.removeFirst());
+    }
+  }
+
+  private boolean isExpired(Entry entry, long time) {
+    return maxAge != Long.MAX_VALUE && time - entry.time > maxAge;
+  }
+
+  /**
+   * @return the number of calibration scores in the window
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the calibration scores in the window (in the order they were added)
+   */
+  public synchronized DoubleArray getScores() {
+    DoubleArray scores = DoubleArray.zeros(entries.size());
+    int i = 0;
+    for (Entry entry : entries) {
+      scores.set(i++, entry.score);
+    }
+    return scores;
+  }
+
+  /**
+   * Returns the (smoothed) p-value of the nonconformity score {@code nc}.
+   *
+   * @param nc the nonconformity score
+   * @param tau the smoothing factor in {@code [0, 1]} (1 for no smoothing)
+   * @return the p-value
+   * @see SortedCalibrationScores#getPValue(double, double)
+   */
+  public synchronized double getPValue(double nc, double tau) {
+    double gt = 0;
+    double ge = 0;
+    Node node = root;
+    while (node != null) {
+      if (node.key > nc) {
+        gt += node.count + size(node.right);
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+    node = root;
+    while (node != null) {
+      if (node.key > nc || Precision.equals(node.key, nc, SortedCalibrationScores.EPSILON)) {
+        ge += node.count + size(node.right);
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+    double eq = ge - gt + 1;
+    return (gt + eq * tau) / (entries.size() + 1);
+  }
+
+  private void remove(Entry entry) {
+    if (!Double.isNaN(entry.score)) {
+      root = remove(root, entry.score);
+    }
+  }
+
+  private Node insert(Node node, double key) {
+    if (node == null) {
+      return new Node(key, random.nextInt());
+    }
+    if (key == node.key) {
+      node.count++;
+    } else if (key < node.key) {
+      node.left = insert(node.left, key);
+      if (node.left.priority > node.priority) {
+        node = rotateRight(node);
+      }
+    } else {
+      node.right = insert(node.right, key);
+      if (node.right.priority > node.priority) {
+        node = rotateLeft(node);
+      }
+    }
+    node.update();
+    return node;
+  }
+
+  private Node remove(Node node, double key) {
+    if (node == null) {
+      return null;
+    }
+    if (key == node.key) {
+      if (node.count > 1) {
+        node.count--;
+      } else {
+        return merge(node.left, node.right);
+      }
+    } else if (key < node.key) {
+      node.left = remove(node.left, key);
+    } else {
+      node.right = remove(node.right, key);
+    }
+    node.update();
+    return node;
+  }
+
+  private static Node merge(Node left, Node right) {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+    if (left.priority > right.priority) {
+      left.right = merge(left.right, right);
+      left.update();
+      return left;
+    } else {
+      right.left = merge(left, right.left);
+      right.update();
+      return right;
+    }
+  }
+
+  private static Node rotateRight(Node node) {
+    Node left = node.left;
+    node.left = left.right;
+    left.right = node;
+    node.update();
+    return left;
+  }
+
+  private static Node rotateLeft(Node node) {
+    Node right = node.right;
+    node.right = right.left;
+    right.left = node;
+    node.update();
+    return right;
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private static final class Entry {
+    private final double score;
+    private final long time;
+
+    private Entry(double score, long time) {
+      this.score = score;
+      this.time = time;
+    }
+  }
+
+  private static final class Node {
+    private final double key;
+    private final int priority;
+    private int count = 1;
+    private int size = 1;
+    private Node left, right;
+
+    private Node(double key, int priority) {
+      this.key = key;
+      this.priority = priority;
+    }
+
+    private void update() {
+      size = count + size(left) + size(right);
+    }
+  }
+}
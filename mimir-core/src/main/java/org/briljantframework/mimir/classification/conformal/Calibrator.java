@@ -25,7 +25,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.briljantframework.array.DoubleArray;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.util.primitive.DoubleList;
 
@@ -41,8 +40,8 @@ public interface Calibrator<In, Out> {
    */
   static <In, Out> Calibrator<In, Out> unconditional() {
     return (nc, x, y) -> {
-      DoubleArray calibration = nc.estimate(x, y);
-      return (example, label) -> calibration;
+      SortedCalibrationScores calibration = SortedCalibrationScores.of(nc.estimate(x, y));
+      return CalibratorScores.of((example, label) -> calibration);
     };
 
   }
@@ -65,9 +64,10 @@ public interface Calibrator<In, Out> {
         }
         l.add(nc.estimate(e, c));
       }
-      Map<Out, DoubleArray> classNc = tmpClassNc.entrySet().stream()
-          .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toDoubleArray()));
-      return (example, label) -> classNc.get(label);
+      Map<Out, SortedCalibrationScores> classNc =
+          tmpClassNc.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+              e -> SortedCalibrationScores.of(e.getValue().toDoubleArray())));
+      return CalibratorScores.of((example, label) -> classNc.get(label));
 
     };
   }
@@ -20,6 +20,8 @@
  */
 package org.briljantframework.mimir.classification.conformal;
 
+import java.util.function.BiFunction;
+
 import org.briljantframework.array.DoubleArray;
 
 /**
@@ -37,4 +39,38 @@ public interface CalibratorScores<In, Out> {
    * @return the calibration scores
    */
   DoubleArray get(In example, Out label);
+
+  /**
+   * Return the sorted calibration scores used to estimate the p-values for the given example and
+   * label. The default implementation sorts the scores returned by {@link #get(Object, Object)}.
+   *
+   * @param example the example
+   * @param label the label
+   * @return the sorted calibration scores
+   */
+  default SortedCalibrationScores getSorted(In example, Out label) {
+    return SortedCalibrationScores.of(get(example, label));
+  }
+
+  /**
+   * Returns calibration scores backed by the given pre-sorted calibration scores
+   *
+   * @param scores the sorted calibration scores of an example and label
+   * @return the calibration scores
+   */
+  static <In, Out> CalibratorScores<In, Out> of(
+      BiFunction<? super In, ? super Out, SortedCalibrationScores> scores) {
+    return new CalibratorScores<In, Out>() {
+      @Override
+      public DoubleArray get(In example, Out label) {
+        SortedCalibrationScores sorted = scores.apply(example, label);
+        return sorted != null ? sorted.getScores() : null;
+      }
+
+      @Override
+      public SortedCalibrationScores getSorted(In example, Out label) {
+        return scores.apply(example, label);
+      }
+    };
+  }
 }
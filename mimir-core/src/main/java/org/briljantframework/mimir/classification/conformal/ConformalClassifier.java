@@ -24,13 +24,12 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 
-import org.apache.commons.math3.util.Precision;
 import org.briljantframework.array.Array;
 import org.briljantframework.array.DoubleArray;
 import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.supervised.Parameterized;
 
@@ -71,6 +70,13 @@ public abstract class ConformalClassifier<In, Out> {
     return classes;
   }
 
+  /**
+   * @return true if stochastic smoothing is enabled
+   */
+  public boolean isStochasticSmoothing() {
+    return stochasticSmoothing;
+  }
+
   /**
    * Returns the prediction of the given example or {@code NA}.
    *
@@ -86,48 +92,13 @@ public abstract class ConformalClassifier<In, Out> {
     return predict(x, SIGNIFICANCE);
   }
 
-  /**
-   * Return the non conformity scorer
-   *
-   * @return a classifier nonconformity
-   */
-  protected abstract Nonconformity<In, Out> getClassifierNonconformity();
-
-  /**
-   * Get the calibration
-   *
-   * @return a classifier calibration
-   */
-  protected abstract CalibratorScores<In, Out> getCalibrationScores();
-
   /**
    * Estimates the the p-values associated with each class.
    *
    * @param in the vector to estimate the posterior probability for
    * @return the p-values
    */
-  public DoubleArray estimate(In in) {
-    DoubleArray significance = DoubleArray.zeros(getClasses().size());
-    double tau = stochasticSmoothing ? ThreadLocalRandom.current().nextDouble() : 1;
-    for (int i = 0; i < significance.size(); i++) {
-      Out label = getClasses().get(i);
-      DoubleArray calibration = getCalibrationScores().get(in, label);
-      double n = calibration.size() + 1;
-      double nc = getClassifierNonconformity().estimate(in, label);
-      double gt = 0;
-      double eq = 1;
-      for (int j = 0; j < calibration.size(); j++) {
-        double v = calibration.get(j);
-        if (v > nc) {
-          gt++;
-        } else if (Precision.equals(v, nc, 10e-6)) {
-          eq++;
-        }
-      }
-      significance.set(i, (gt + eq * tau) / n);
-    }
-    return significance;
-  }
+  public abstract DoubleArray estimate(In in);
 
   /**
    * Returns the conformal predictions for the records in the given data frame using the given
@@ -170,8 +141,10 @@ public abstract class ConformalClassifier<In, Out> {
    * @return the p-values
    */
   public DoubleArray estimate(Input<? extends In> x) {
+    TraceEvent event = TraceEvent.begin(TraceEvent.Kind.PREDICT, getClass().getName());
     DoubleArray estimations = DoubleArray.zeros(x.size(), getClasses().size());
     IntStream.range(0, x.size()).parallel().forEach(i -> estimations.setRow(i, estimate(x.get(i))));
+    event.input(x).classes(getClasses().size()).commit();
     return estimations;
   }
 
@@ -0,0 +1,229 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import org.briljantframework.Check;
+import org.briljantframework.array.Array;
+import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.TraceEvent;
+import org.briljantframework.mimir.classification.ProbabilityEstimator;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.evaluation.partition.Partition;
+import org.briljantframework.mimir.evaluation.partition.StratifiedFoldPartitioner;
+import org.briljantframework.mimir.supervised.Predictor;
+
+/**
+ * A cross-conformal (or aggregated conformal) classifier. The training data is shuffled and split
+ * into {@code k} stratified folds and, for each fold, a nonconformity measure is fitted on the
+ * remaining folds and calibrated on the fold. The folds are fitted and calibrated in parallel.
+ *
+ * <p>
+ * When predicting, each nonconformity measure scores all labels of an example at once and the
+ * p-values are merged according to the {@linkplain Aggregation aggregation}.
+ *
+ * <h1>Publications</h1>
+ * <ul>
+ * <li>Vovk, V. Cross-conformal predictors. Annals of Mathematics and Artificial Intelligence,
+ * 2015</li>
+ * <li>Carlsson, L., Eklund, M., Norinder, U. Aggregated conformal prediction. In Proc. AIAI
+ * Workshops, 2014</li>
+ * </ul>
+ *
+ * @author Isak Karlsson
+ */
+public class CrossConformalClassifier<In, Out> extends ConformalClassifier<In, Out> {
+
+  /**
+   * The number of folds
+   */
+  public static final Property<Integer> FOLDS =
+      Property.of("cross_conformal_folds", Integer.class, 10, i -> i > 1);
+
+  /**
+   * The method used to merge the p-values of the folds
+   */
+  public static final Property<Aggregation> AGGREGATION =
+      Property.of("cross_conformal_aggregation", Aggregation.class, Aggregation.CROSS);
+
+  /**
+   * The seed used to shuffle the examples before they are assigned to the (stratified) folds. If
+   * unset, a random seed is used.
+   */
+  public static final Property<Long> SEED = Property.of("cross_conformal_seed", Long.class);
+
+  private final List<Nonconformity<In, Out>> nonconformity;
+  private final List<CalibratorScores<In, Out>> calibration;
+  private final Aggregation aggregation;
+
+  private CrossConformalClassifier(Array<Out> classes, List<Nonconformity<In, Out>> nonconformity,
+      List<CalibratorScores<In, Out>> calibration, Aggregation aggregation,
+      boolean stochasticSmoothing) {
+    super(classes, stochasticSmoothing);
+    this.nonconformity = nonconformity;
+    this.calibration = calibration;
+    this.aggregation = aggregation;
+  }
+
+  /**
+   * @return the number of folds
+   */
+  public int getFolds() {
+    return nonconformity.size();
+  }
+
+  @Override
+  public DoubleArray estimate(In in) {
+    Array<Out> classes = getClasses();
+    double tau = isStochasticSmoothing() ? ThreadLocalRandom.current().nextDouble() : 1;
+    double[] greater = new double[classes.size()];
+    double[] equal = new double[classes.size()];
+    double[] size = new double[classes.size()];
+    double[] pValue = new double[classes.size()];
+    for (int k = 0; k < nonconformity.size(); k++) {
+      DoubleArray scores = nonconformity.get(k).estimate(in, classes);
+      CalibratorScores<In, Out> calibratorScores = calibration.get(k);
+      for (int i = 0; i < classes.size(); i++) {
+        SortedCalibrationScores sorted = calibratorScores.getSorted(in, classes.get(i));
+        if (aggregation == Aggregation.CROSS) {
+          if (sorted != null) {
+            greater[i] += sorted.getGreaterCount(scores.get(i));
+            equal[i] += sorted.getEqualCount(scores.get(i));
+            size[i] += sorted.size();
+          }
+        } else {
+          pValue[i] += sorted != null ? sorted.getPValue(scores.get(i), tau) : tau;
+        }
+      }
+    }
+
+    DoubleArray significance = DoubleArray.zeros(classes.size());
+    for (int i = 0; i < classes.size(); i++) {
+      if (aggregation == Aggregation.CROSS) {
+        significance.set(i, (greater[i] + (equal[i] + 1) * tau) / (size[i] + 1));
+      } else {
+        significance.set(i, pValue[i] / nonconformity.size());
+      }
+    }
+    return significance;
+  }
+
+  /**
+   * The method used to merge the p-values of the folds.
+   */
+  public enum Aggregation {
+    /**
+     * The cross-conformal p-value, i.e., the counts of larger and equal calibration scores are
+     * summed over the folds and divided by the total number of calibration scores.
+     */
+    CROSS,
+
+    /**
+     * The aggregated conformal p-value, i.e., the mean of the p-values of the folds.
+     */
+    MEAN
+  }
+
+  /**
+   * @author Isak Karlsson
+   */
+  public static class Learner<In, Out>
+      extends ConformalClassifier.Learner<In, Out, CrossConformalClassifier<In, Out>> {
+
+    private final Nonconformity.Learner<In, Out> learner;
+    private final Calibrator<In, Out> calibrator;
+
+    public Learner(Nonconformity.Learner<In, Out> learner, Calibrator<In, Out> calibrator,
+        boolean stochasticSmoothing) {
+      set(STOCHASTIC_SMOOTHING, stochasticSmoothing);
+      this.calibrator = Objects.requireNonNull(calibrator, "Calibrator is required.");
+      this.learner = Objects.requireNonNull(learner, "Nonconformity learner is required.");
+    }
+
+    public Learner(Nonconformity.Learner<In, Out> learner, Calibrator<In, Out> calibrator) {
+      this(learner, calibrator, true);
+    }
+
+    public Learner(Nonconformity.Learner<In, Out> learner) {
+      this(learner, Calibrator.unconditional());
+    }
+
+    public Learner(Predictor.Learner<In, Out, ? extends ProbabilityEstimator<In, Out>> pet) {
+      this(new ProbabilityEstimateNonconformity.Learner<>(pet));
+    }
+
+    @Override
+    public CrossConformalClassifier<In, Out> fit(Input<In> in, List<Out> out) {
+      Objects.requireNonNull(in, "Input data is required.");
+      Objects.requireNonNull(out, "Input target is required.");
+      Check.argument(in.size() == out.size(),
+          "The size of input data and input target don't match.");
+      Random random = getParameters().contains(SEED) ? new Random(get(SEED)) : new Random();
+      List<Partition<In, Out>> partitions = new ArrayList<>(
+          new StratifiedFoldPartitioner<In, Out>(getOrDefault(FOLDS), random).partition(in, out));
+
+      // Fit and calibrate the folds in parallel (in fold order)
+      List<FittedFold<In, Out>> folds =
+          partitions.parallelStream().map(this::fitFold).collect(Collectors.toList());
+
+      Array<Out> classes = folds.get(0).nonconformity.getUniqueOutputs();
+      List<Nonconformity<In, Out>> nonconformity = new ArrayList<>(folds.size());
+      List<CalibratorScores<In, Out>> calibration = new ArrayList<>(folds.size());
+      for (FittedFold<In, Out> fold : folds) {
+        Check.state(fold.nonconformity.getUniqueOutputs().size() == classes.size(),
+            "All classes must be present in the training data of each fold.");
+        nonconformity.add(fold.nonconformity);
+        calibration.add(fold.calibration);
+      }
+      return new CrossConformalClassifier<>(classes, nonconformity, calibration,
+          getOrDefault(AGGREGATION), getOrDefault(STOCHASTIC_SMOOTHING));
+    }
+
+    private FittedFold<In, Out> fitFold(Partition<In, Out> partition) {
+      Nonconformity<In, Out> nc =
+          learner.fit(partition.getTrainingData(), partition.getTrainingTarget());
+      TraceEvent event =
+          TraceEvent.begin(TraceEvent.Kind.CALIBRATION, CrossConformalClassifier.class.getName());
+      CalibratorScores<In, Out> scores = calibrator.calibrate(nc, partition.getValidationData(),
+          partition.getValidationTarget());
+      event.input(partition.getValidationData()).classes(nc.getUniqueOutputs().size()).commit();
+      return new FittedFold<>(nc, scores);
+    }
+
+    private static final class FittedFold<In, Out> {
+      private final Nonconformity<In, Out> nonconformity;
+      private final CalibratorScores<In, Out> calibration;
+
+      private FittedFold(Nonconformity<In, Out> nonconformity,
+          CalibratorScores<In, Out> calibration) {
+        this.nonconformity = nonconformity;
+        this.calibration = calibration;
+      }
+    }
+  }
+}
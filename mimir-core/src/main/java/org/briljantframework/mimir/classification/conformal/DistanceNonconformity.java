@@ -20,50 +20,131 @@
  */
 package org.briljantframework.mimir.classification.conformal;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
 import org.briljantframework.array.Array;
-import org.briljantframework.array.Arrays;
 import org.briljantframework.array.DoubleArray;
-import org.briljantframework.array.IntArray;
-import org.briljantframework.data.Is;
 import org.briljantframework.mimir.classification.NearestNeighbours;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.distance.Distance;
-
-import java.util.List;
+import org.briljantframework.mimir.neighbours.LinearSearch;
+import org.briljantframework.mimir.neighbours.NeighbourHeap;
+import org.briljantframework.mimir.neighbours.NeighbourSearch;
+import org.briljantframework.mimir.neighbours.Neighbours;
+import org.briljantframework.mimir.supervised.Parameterized;
 
 /**
  * @author Isak Karlsson <isak-kar@dsv.su.se>
  */
 public class DistanceNonconformity<In, Out> implements Nonconformity<In, Out> {
 
-  private final NearestNeighbours<? super In, Out> nnSearch;
+  private final Array<Out> classes;
+  private final List<? extends NeighbourSearch<? super In>> searches;
   private final int k;
 
+  /**
+   * Create a nonconformity scorer using the examples and the distance of the given classifier. The
+   * examples of each class are searched linearly.
+   *
+   * @param nnSearch the nearest neighbours classifier
+   * @param k the number of neighbours
+   */
   public DistanceNonconformity(NearestNeighbours<? super In, Out> nnSearch, int k) {
-    this.nnSearch = nnSearch;
+    this(nnSearch.getClasses(), newLinearSearches(nnSearch), k);
+  }
+
+  /**
+   * @param classes the classes
+   * @param searches the search index of the examples of each class
+   * @param k the number of neighbours
+   */
+  private DistanceNonconformity(Array<Out> classes,
+      List<? extends NeighbourSearch<? super In>> searches, int k) {
+    this.classes = classes;
+    this.searches = searches;
     this.k = k;
   }
 
+  private static <T> List<NeighbourSearch<T>> newLinearSearches(NearestNeighbours<T, ?> nnSearch) {
+    List<NeighbourSearch<T>> searches = new ArrayList<>();
+    for (List<T> examples : groupByClass(nnSearch.getClasses(), nnSearch.getInput(),
+        nnSearch.getTarget())) {
+      searches.add(new LinearSearch<>(examples, nnSearch.getDistance()));
+    }
+    return searches;
+  }
+
+  /**
+   * Returns the examples of each class (in the order of the classes)
+   */
+  private static <T> List<List<T>> groupByClass(Array<?> classes, List<? extends T> x,
+      List<?> y) {
+    List<List<T>> examples = new ArrayList<>(classes.size());
+    for (int c = 0; c < classes.size(); c++) {
+      examples.add(new ArrayList<>());
+    }
+    for (int i = 0; i < x.size(); i++) {
+      examples.get(classes.indexOf(y.get(i))).add(x.get(i));
+    }
+    return examples;
+  }
+
   @Override
   public double estimate(In example, Out label) {
-    List<?> labels = nnSearch.getTarget();
-    DoubleArray distances = nnSearch.distance(example);
-    IntArray order = Arrays.order(distances);
+    Neighbours[] neighbours = search(example);
+    return estimate(neighbours, classes.indexOf(label));
+  }
+
+  /**
+   * Estimate the nonconformity score of the given example w.r.t. each label from a single search
+   * for the {@code k} nearest neighbours of each class.
+   */
+  @Override
+  public DoubleArray estimate(In example, Array<? extends Out> labels) {
+    Neighbours[] neighbours = search(example);
+    DoubleArray scores = DoubleArray.zeros(labels.size());
+    for (int i = 0; i < labels.size(); i++) {
+      scores.set(i, estimate(neighbours, classes.indexOf(labels.get(i))));
+    }
+    return scores;
+  }
+
+  private Neighbours[] search(In example) {
+    Neighbours[] neighbours = new Neighbours[classes.size()];
+    for (int c = 0; c < neighbours.length; c++) {
+      neighbours[c] = searches.get(c).search(example, k);
+    }
+    return neighbours;
+  }
+
+  /**
+   * Compute the nonconformity score from the {@code k} nearest neighbours of each class, where
+   * {@code label} is the index of the label (or {@code -1} if the label is unknown)
+   */
+  private double estimate(Neighbours[] neighbours, int label) {
     double posDist = 0;
     double negDist = 0;
-    int kp = 0;
-    int kn = 0;
-    for (int i = 0; i < order.size() && (kp < k || kn < k); i++) {
-      int o = order.get(i);
-      double distance = distances.get(o);
-      if (Is.equal(labels.get(o), label) && kp < k) {
-        posDist += distance;
-        kp++;
-      } else if (!Is.equal(labels.get(o), label) && kn < k) {
-        negDist += distance;
-        kn++;
+    NeighbourHeap negative = new NeighbourHeap(k);
+    for (int c = 0; c < neighbours.length; c++) {
+      Neighbours classNeighbours = neighbours[c];
+      if (c == label) {
+        for (int i = 0; i < classNeighbours.size(); i++) {
+          posDist += classNeighbours.getDistance(i);
+        }
+      } else {
+        for (int i = 0; i < classNeighbours.size(); i++) {
+          if (!negative.offer(classNeighbours.getIndex(i), classNeighbours.getDistance(i))) {
+            break; // the remaining neighbours of the class are further away
+          }
+        }
       }
     }
+    Neighbours negativeNeighbours = negative.toNeighbours();
+    for (int i = 0; i < negativeNeighbours.size(); i++) {
+      negDist += negativeNeighbours.getDistance(i);
+    }
 
     if (Double.isNaN(posDist)) {
       return Double.POSITIVE_INFINITY;
@@ -75,7 +156,7 @@ public class DistanceNonconformity<In, Out> implements Nonconformity<In, Out> {
 
   @Override
   public Array<Out> getUniqueOutputs() {
-    return nnSearch.getClasses();
+    return classes;
   }
 
   /**
@@ -87,6 +168,10 @@ public class DistanceNonconformity<In, Out> implements Nonconformity<In, Out> {
    * closest neighbours of the specified label and the distance of the {@code k} closest neighbours
    * of instances with a different label.
    *
+   * <p/>
+   * The examples of each class are indexed using the {@linkplain NearestNeighbours#INDEX index}
+   * (default: linear search) when the learner is fit.
+   *
    * <h3>References</h3>
    * <ul>
    * <li>Vovk, V., Gammerman, A., Shafer, G. (2005) Algorithmic Learning in a Random World. New
@@ -95,19 +180,26 @@ public class DistanceNonconformity<In, Out> implements Nonconformity<In, Out> {
    *
    * @author Isak Karlsson <isak-kar@dsv.su.se>
    */
-  public static class Learner<In, Out> implements Nonconformity.Learner<In, Out> {
+  public static class Learner<In, Out> extends Parameterized
+      implements Nonconformity.Learner<In, Out> {
 
-    private final NearestNeighbours.Learner<In, Out> nearestNeighbors;
+    private final Distance<? super In> distance;
     private final int k;
 
     public Learner(int k, Distance<? super In> distance) {
-      this.nearestNeighbors = new NearestNeighbours.Learner<>(k, distance);
+      this.distance = distance;
       this.k = k;
     }
 
     @Override
     public DistanceNonconformity<In, Out> fit(Input<In> x, List<Out> y) {
-      return new DistanceNonconformity<>(nearestNeighbors.fit(x, y), k);
+      Array<Out> classes = Array.copyOf(new HashSet<>(y));
+      NearestNeighbours.Index index = getOrDefault(NearestNeighbours.INDEX);
+      List<NeighbourSearch<In>> searches = new ArrayList<>(classes.size());
+      for (List<In> classExamples : DistanceNonconformity.<In>groupByClass(classes, x, y)) {
+        searches.add(index.newSearch(classExamples, distance, getParameters()));
+      }
+      return new DistanceNonconformity<>(classes, searches, k);
     }
   }
 }
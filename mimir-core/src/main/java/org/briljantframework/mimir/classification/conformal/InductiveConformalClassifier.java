@@ -25,6 +25,7 @@ import java.util.Objects;
 
 import org.briljantframework.Check;
 import org.briljantframework.array.Array;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.classification.ProbabilityEstimator;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.supervised.Predictor;
@@ -32,7 +33,8 @@ import org.briljantframework.mimir.supervised.Predictor;
 /**
  * @author Isak Karlsson <isak-kar@dsv.su.se>
  */
-public class InductiveConformalClassifier<In, Out> extends ConformalClassifier<In, Out> {
+public class InductiveConformalClassifier<In, Out>
+    extends AbstractInductiveConformalClassifier<In, Out> {
 
   private final Nonconformity<In, Out> nonconformity;
   private Calibrator<In, Out> calibrator;
@@ -52,7 +54,9 @@ public class InductiveConformalClassifier<In, Out> extends ConformalClassifier<I
    * @param y the calibration target
    */
   public void calibrate(Input<In> x, List<Out> y) {
+    TraceEvent event = TraceEvent.begin(TraceEvent.Kind.CALIBRATION, getClass().getName());
     calibration = calibrator.calibrate(nonconformity, x, y);
+    event.input(x).classes(getClasses().size()).commit();
   }
 
   @Override
@@ -57,6 +57,26 @@ public interface Nonconformity<In, Out> {
    */
   double estimate(In example, Out label);
 
+  /**
+   * Estimate the nonconformity score for the given example and each of the given labels
+   *
+   * <p>
+   * The default implementation calls {@link #estimate(Object, Object)} for each label;
+   * implementations should override it if the scores of all labels can be computed at once.
+   *
+   * @param example the given example
+   * @param labels the given labels
+   * @return a {@code [no labels]} double array of nonconformity scores; the i:th element is the
+   *         score w.r.t. the i:th label
+   */
+  default DoubleArray estimate(In example, Array<? extends Out> labels) {
+    DoubleArray scores = DoubleArray.zeros(labels.size());
+    for (int i = 0; i < labels.size(); i++) {
+      scores.set(i, estimate(example, labels.get(i)));
+    }
+    return scores;
+  }
+
   /**
    * Get the classes used by this nonconformity scorer
    * 
@@ -0,0 +1,225 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.briljantframework.Check;
+import org.briljantframework.array.Array;
+import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.TraceEvent;
+import org.briljantframework.mimir.classification.ProbabilityEstimator;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.supervised.Predictor;
+
+/**
+ * A conformal classifier that is calibrated online, i.e., labeled examples are added to the
+ * calibration set one at a time. The calibration scores are kept in a bounded (and optionally
+ * class conditional) {@linkplain CalibrationWindow window}, where the oldest scores are evicted
+ * when the window is full or when the scores are older than the maximum age.
+ *
+ * <p>
+ * Both calibrating and computing a p-value require {@code O(log n)} time for a window of size
+ * {@code n}, so the classifier can be recalibrated continuously without rebuilding the
+ * calibration set.
+ *
+ * @author Isak Karlsson
+ */
+public class OnlineConformalClassifier<In, Out>
+    extends AbstractInductiveConformalClassifier<In, Out> {
+
+  /**
+   * The maximum number of calibration scores in the window (per class if the calibration is class
+   * conditional)
+   */
+  public static final Property<Integer> WINDOW_SIZE =
+      Property.of("online_window_size", Integer.class, 1000, i -> i > 0);
+
+  /**
+   * The maximum age (in milliseconds, unless explicit time stamps are given) of a calibration score
+   */
+  public static final Property<Long> MAX_AGE =
+      Property.of("online_max_age", Long.class, Long.MAX_VALUE, t -> t > 0);
+
+  /**
+   * Compute the calibration scores conditional on the class
+   */
+  public static final Property<Boolean> CLASS_CONDITIONAL =
+      Property.of("online_class_conditional", Boolean.class, false);
+
+  private final Nonconformity<In, Out> nonconformity;
+  private final int windowSize;
+  private final long maxAge;
+  private final boolean classConditional;
+
+  private final CalibrationWindow window;
+  private final ConcurrentMap<Out, CalibrationWindow> classWindows;
+
+  private OnlineConformalClassifier(Array<Out> classes, Nonconformity<In, Out> nonconformity,
+      int windowSize, long maxAge, boolean classConditional, boolean stochasticSmoothing) {
+    super(classes, stochasticSmoothing);
+    this.nonconformity = Objects.requireNonNull(nonconformity, "Requires nonconformity scorer");
+    this.windowSize = windowSize;
+    this.maxAge = maxAge;
+    this.classConditional = classConditional;
+    this.window = classConditional ? null : new CalibrationWindow(windowSize, maxAge);
+    this.classWindows = classConditional ? new ConcurrentHashMap<>() : null;
+  }
+
+  /**
+   * Calibrate the classifier using the given labeled example, observed now.
+   *
+   * @param example the example
+   * @param label the label
+   */
+  public void calibrate(In example, Out label) {
+    calibrate(example, label, System.currentTimeMillis());
+  }
+
+  /**
+   * Calibrate the classifier using the given labeled example observed at the given time.
+   *
+   * @param example the example
+   * @param label the label
+   * @param time the time stamp (non-decreasing)
+   */
+  public void calibrate(In example, Out label, long time) {
+    getOrCreateWindow(label).add(nonconformity.estimate(example, label), time);
+  }
+
+  /**
+   * Calibrate the classifier using the given labeled examples, observed now. The nonconformity
+   * scores are computed in parallel and added to the calibration window in order.
+   *
+   * @param x the examples
+   * @param y the labels
+   */
+  public void calibrate(Input<In> x, List<Out> y) {
+    Check.argument(x.size() == y.size(), "The size of input data and input target don't match.");
+    TraceEvent event = TraceEvent.begin(TraceEvent.Kind.CALIBRATION, getClass().getName());
+    DoubleArray scores = nonconformity.estimate(x, y);
+    long time = System.currentTimeMillis();
+    for (int i = 0; i < scores.size(); i++) {
+      getOrCreateWindow(y.get(i)).add(scores.get(i), time);
+    }
+    event.input(x).classes(getClasses().size()).commit();
+  }
+
+  /**
+   * Evict all calibration scores older than the maximum age relative to the given time.
+   *
+   * @param time the current time
+   */
+  public void evict(long time) {
+    if (classConditional) {
+      classWindows.values().forEach(w -> w.evict(time));
+    } else {
+      window.evict(time);
+    }
+  }
+
+  /**
+   * Returns the number of calibration scores for the given label.
+   *
+   * @param label the label
+   * @return the number of calibration scores
+   */
+  public int getCalibrationSize(Out label) {
+    CalibrationWindow calibration = getWindow(label);
+    return calibration != null ? calibration.size() : 0;
+  }
+
+  private CalibrationWindow getWindow(Out label) {
+    return classConditional ? classWindows.get(label) : window;
+  }
+
+  private CalibrationWindow getOrCreateWindow(Out label) {
+    if (classConditional) {
+      return classWindows.computeIfAbsent(label, l -> new CalibrationWindow(windowSize, maxAge));
+    } else {
+      return window;
+    }
+  }
+
+  @Override
+  protected Nonconformity<In, Out> getClassifierNonconformity() {
+    return nonconformity;
+  }
+
+  /**
+   * Returns the scores of the calibration window of the label. If there is no calibration window
+   * for the label, the scores are empty.
+   */
+  @Override
+  protected CalibratorScores<In, Out> getCalibrationScores() {
+    return (example, label) -> {
+      CalibrationWindow calibration = getWindow(label);
+      return calibration != null ? calibration.getScores() : DoubleArray.zeros(0);
+    };
+  }
+
+  /**
+   * Returns the p-value of the score using the calibration window of the label. If there is no
+   * calibration window for the label, the p-value is computed from an empty calibration set.
+   */
+  @Override
+  protected double getPValue(In example, Out label, double score, double tau) {
+    CalibrationWindow calibration = getWindow(label);
+    return calibration != null ? calibration.getPValue(score, tau) : tau;
+  }
+
+  /**
+   * @author Isak Karlsson
+   */
+  public static class Learner<In, Out>
+      extends ConformalClassifier.Learner<In, Out, OnlineConformalClassifier<In, Out>> {
+
+    private final Nonconformity.Learner<In, Out> learner;
+
+    public Learner(Nonconformity.Learner<In, Out> learner) {
+      this.learner = Objects.requireNonNull(learner, "Nonconformity learner is required.");
+    }
+
+    public Learner(Predictor.Learner<In, Out, ? extends ProbabilityEstimator<In, Out>> pet) {
+      this(new ProbabilityEstimateNonconformity.Learner<>(pet));
+    }
+
+    /**
+     * Fit the nonconformity measure. The returned classifier has an empty calibration window and
+     * must be calibrated before it is used.
+     */
+    @Override
+    public OnlineConformalClassifier<In, Out> fit(Input<In> in, List<Out> out) {
+      Objects.requireNonNull(in, "Input data is required.");
+      Objects.requireNonNull(out, "Input target is required.");
+      Check.argument(in.size() == out.size(),
+          "The size of input data and input target don't match.");
+      Nonconformity<In, Out> nc = learner.fit(in, out);
+      return new OnlineConformalClassifier<>(nc.getUniqueOutputs(), nc,
+          getOrDefault(WINDOW_SIZE), getOrDefault(MAX_AGE), getOrDefault(CLASS_CONDITIONAL),
+          getOrDefault(STOCHASTIC_SMOOTHING));
+    }
+  }
+}
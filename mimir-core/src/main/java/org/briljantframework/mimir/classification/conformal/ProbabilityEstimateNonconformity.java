@@ -87,6 +87,24 @@ public class ProbabilityEstimateNonconformity<In, Out> implements Nonconformity<
     }
   }
 
+  /**
+   * Evaluates the probability estimator once and applies the cost function to each label
+   */
+  @Override
+  public DoubleArray estimate(In example, Array<? extends Out> labels) {
+    Objects.requireNonNull(example, "Require an example.");
+    Array<Out> classes = classifier.getClasses();
+    DoubleArray estimate = getProbabilityEstimator().estimate(example);
+    DoubleArray scores = DoubleArray.zeros(labels.size());
+    for (int i = 0; i < labels.size(); i++) {
+      int classIndex = classes.indexOf(labels.get(i));
+      if (classIndex >= 0) {
+        scores.set(i, getProbabilityCostFunction().apply(estimate, classIndex));
+      }
+    }
+    return scores;
+  }
+
   @Override
   public Array<Out> getUniqueOutputs() {
     return getProbabilityEstimator().getClasses();
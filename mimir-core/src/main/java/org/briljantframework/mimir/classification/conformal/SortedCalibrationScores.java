@@ -0,0 +1,149 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.util.Precision;
+import org.briljantframework.array.DoubleArray;
+
+/**
+ * Calibration scores sorted in increasing order, such that the p-value of a nonconformity score is
+ * computed using two binary searches instead of a scan of all calibration scores.
+ *
+ * @author Isak Karlsson
+ */
+public final class SortedCalibrationScores {
+
+  /**
+   * The tolerance for considering a calibration score equal to a nonconformity score
+   */
+  public static final double EPSILON = 10e-6;
+
+  private final DoubleArray scores;
+  private final double[] sorted;
+
+  private SortedCalibrationScores(DoubleArray scores, double[] sorted) {
+    this.scores = scores;
+    this.sorted = sorted;
+  }
+
+  /**
+   * Sort the given calibration scores. Scores that are {@code NaN} are never counted as larger
+   * than or equal to a nonconformity score, but are included in the size.
+   *
+   * @param scores the calibration scores
+   * @return the sorted calibration scores
+   */
+  public static SortedCalibrationScores of(DoubleArray scores) {
+    double[] sorted = new double[scores.size()];
+    int n = 0;
+    for (int i = 0; i < scores.size(); i++) {
+      double v = scores.get(i);
+      if (!Double.isNaN(v)) {
+        sorted[n++] = v;
+      }
+    }
+    sorted = n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    Arrays.sort(sorted);
+    return new SortedCalibrationScores(scores, sorted);
+  }
+
+  /**
+   * @return the number of calibration scores
+   */
+  public int size() {
+    return scores.size();
+  }
+
+  /**
+   * @return the calibration scores (in the original order)
+   */
+  public DoubleArray getScores() {
+    return scores;
+  }
+
+  /**
+   * Returns the number of calibration scores larger than {@code nc}
+   *
+   * @param nc the nonconformity score
+   * @return the number of larger calibration scores
+   */
+  public int getGreaterCount(double nc) {
+    return sorted.length - firstGreater(nc);
+  }
+
+  /**
+   * Returns the number of calibration scores not larger than {@code nc} but equal to {@code nc}
+   * within the {@linkplain #EPSILON tolerance}
+   *
+   * @param nc the nonconformity score
+   * @return the number of equal calibration scores
+   */
+  public int getEqualCount(double nc) {
+    return firstGreater(nc) - firstGreaterOrEqual(nc);
+  }
+
+  /**
+   * Returns the (smoothed) p-value of the nonconformity score {@code nc}, i.e.,
+   * {@code (gt + (eq + 1) * tau) / (n + 1)}, where {@code gt} is the number of larger and
+   * {@code eq} the number of equal calibration scores.
+   *
+   * @param nc the nonconformity score
+   * @param tau the smoothing factor in {@code [0, 1]} (1 for no smoothing)
+   * @return the p-value
+   */
+  public double getPValue(double nc, double tau) {
+    int greater = firstGreater(nc);
+    double gt = sorted.length - greater;
+    double eq = greater - firstGreaterOrEqual(nc) + 1;
+    return (gt + eq * tau) / (size() + 1);
+  }
+
+  private int firstGreater(double nc) {
+    int lo = 0;
+    int hi = sorted.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (sorted[mid] > nc) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  private int firstGreaterOrEqual(double nc) {
+    int lo = 0;
+    int hi = sorted.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      double v = sorted[mid];
+      if (v > nc || Precision.equals(v, nc, EPSILON)) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+}
@@ -36,10 +36,28 @@ import java.util.List;
  */
 public class ConformalClassifierEvaluator<In, Out> implements Evaluator<In, Out> {
 
-  private final double significance;
+  private final DoubleArray significances;
 
   public ConformalClassifierEvaluator(double significance) {
-    this.significance = significance;
+    this(DoubleArray.of(significance));
+  }
+
+  /**
+   * Evaluate the conformal classifier for all the given significance levels in one pass over the
+   * p-values. For each significance level, one value per measure is added to the measure
+   * collection.
+   *
+   * @param significances the significance levels
+   */
+  public ConformalClassifierEvaluator(DoubleArray significances) {
+    this.significances = significances.copy();
+  }
+
+  /**
+   * @return the significance levels
+   */
+  public DoubleArray getSignificances() {
+    return significances.copy();
   }
 
   @Override
@@ -51,12 +69,24 @@ public class ConformalClassifierEvaluator<In, Out> implements Evaluator<In, Out>
       return false;
     }
     ConformalClassifierEvaluator that = (ConformalClassifierEvaluator) o;
-    return Precision.equals(significance, that.significance);
+    if (significances.size() != that.significances.size()) {
+      return false;
+    }
+    for (int i = 0; i < significances.size(); i++) {
+      if (!Precision.equals(significances.get(i), that.significances.get(i))) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return Double.hashCode(significance);
+    int result = 1;
+    for (int i = 0; i < significances.size(); i++) {
+      result = 31 * result + Double.hashCode(significances.get(i));
+    }
+    return result;
   }
 
   @Override
@@ -66,17 +96,20 @@ public class ConformalClassifierEvaluator<In, Out> implements Evaluator<In, Out>
     ConformalClassifier<In, Out> predictor = (ConformalClassifier<In, Out>) ctx.getPredictor();
     Array<?> classes = predictor.getClasses();
     DoubleArray scores = ctx.getEstimates();
-    ConformalClassifierMeasure cm =
-        new ConformalClassifierMeasure(truth, scores, significance, classes);
+    List<ConformalClassifierMeasure> measures =
+        ConformalClassifierMeasure.of(truth, scores, significances, classes);
 
     MeasureCollection measureCollection = ctx.getMeasureCollection();
-    measureCollection.add("significance", significance);
-    measureCollection.add("accuracy", cm.getAccuracy());
-    measureCollection.add("error", cm.getError());
-    measureCollection.add("confidence", cm.getConfidence());
-    measureCollection.add("credibility", cm.getCredibility());
-    measureCollection.add("singletons", cm.getSingletons());
-    measureCollection.add("meanPvalue", cm.getAveragePvalue());
-    measureCollection.add("noClasses", cm.getNoClasses());
+    for (int i = 0; i < significances.size(); i++) {
+      ConformalClassifierMeasure cm = measures.get(i);
+      measureCollection.add("significance", significances.get(i));
+      measureCollection.add("accuracy", cm.getAccuracy());
+      measureCollection.add("error", cm.getError());
+      measureCollection.add("confidence", cm.getConfidence());
+      measureCollection.add("credibility", cm.getCredibility());
+      measureCollection.add("singletons", cm.getSingletons());
+      measureCollection.add("meanPvalue", cm.getAveragePvalue());
+      measureCollection.add("noClasses", cm.getNoClasses());
+    }
   }
 }
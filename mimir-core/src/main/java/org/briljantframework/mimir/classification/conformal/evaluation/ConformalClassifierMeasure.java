@@ -20,11 +20,13 @@
  */
 package org.briljantframework.mimir.classification.conformal.evaluation;
 
+import org.briljantframework.Check;
 import org.briljantframework.array.Array;
 import org.briljantframework.array.Arrays;
 import org.briljantframework.array.BooleanArray;
 import org.briljantframework.array.DoubleArray;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -77,6 +79,132 @@ public class ConformalClassifierMeasure {
     noClasses = avgNoClasses;
   }
 
+  private ConformalClassifierMeasure(double accuracy, double averagePvalue, double confidence,
+      double credibility, double singletons, double noClasses) {
+    this.accuracy = accuracy;
+    this.error = 1 - accuracy;
+    this.averagePvalue = averagePvalue;
+    this.confidence = confidence;
+    this.credibility = credibility;
+    this.singletons = singletons;
+    this.noClasses = noClasses;
+  }
+
+  /**
+   * Compute the measures for several significance levels in a single pass over the p-values. The
+   * result is the same as constructing one measure per significance level, but the cost is
+   * (almost) independent of the number of significance levels.
+   *
+   * <p>
+   * For each example, a p-value {@code p} is included in the prediction set for all significance
+   * levels smaller than {@code p}, i.e., a prefix of the sorted significance levels. Hence, each
+   * p-value only requires a binary search over the sorted significance levels and the counts for
+   * all levels are recovered using a prefix sum.
+   *
+   * @param truth the true labels
+   * @param score the p-values (one row per example and one column per class)
+   * @param significances the significance levels
+   * @param classes the classes
+   * @return a list of measures, one for each significance level (in the given order)
+   */
+  public static List<ConformalClassifierMeasure> of(List<?> truth, DoubleArray score,
+      DoubleArray significances, Array<?> classes) {
+    Check.argument(truth.size() == score.rows(), "illegal number of p-values");
+    int m = significances.size();
+    Integer[] order = new Integer[m];
+    for (int i = 0; i < m; i++) {
+      order[i] = i;
+    }
+    java.util.Arrays.sort(order,
+        (a, b) -> Double.compare(significances.get(a), significances.get(b)));
+    double[] sorted = new double[m];
+    for (int i = 0; i < m; i++) {
+      sorted[i] = significances.get(order[i]);
+    }
+
+    // Difference arrays over the sorted significance levels; the count for the i:th level is the
+    // sum of the first i + 1 elements
+    long[] noPredictions = new long[m + 1];
+    long[] correct = new long[m + 1];
+    long[] noSingletons = new long[m + 1];
+    double sumCredibility = 0;
+    double sumConfidence = 0;
+    double sumPValue = 0;
+    int rows = score.rows();
+    int columns = score.columns();
+    for (int i = 0; i < rows; i++) {
+      DoubleArray estimate = score.getRow(i);
+      double sum = 0;
+      for (int j = 0; j < columns; j++) {
+        double p = estimate.get(j);
+        noPredictions[0]++;
+        noPredictions[countSmaller(sorted, p)]--;
+        sum += p;
+      }
+
+      int prediction = Arrays.argmax(estimate);
+      double credibility = estimate.get(prediction);
+      double secondLargest = Arrays.maxExcluding(estimate, prediction);
+      int trueClassIndex = classes.indexOf(truth.get(i));
+      // if the true class wasn't included during training, it can't be correct
+      if (trueClassIndex < 0) {
+        correct[0]++;
+        correct[m]--;
+      } else {
+        correct[0]++;
+        correct[countSmaller(sorted, estimate.get(trueClassIndex))]--;
+
+        // the prediction is a singleton for significance levels in [secondLargest, credibility)
+        // and includes the true class only if the true class has the largest p-value
+        if (trueClassIndex == prediction) {
+          int start = columns > 1 ? countSmaller(sorted, secondLargest) : 0;
+          int end = countSmaller(sorted, credibility);
+          if (start < end) {
+            noSingletons[start]++;
+            noSingletons[end]--;
+          }
+        }
+      }
+      sumCredibility += credibility;
+      sumConfidence += 1 - secondLargest;
+      sumPValue += sum / columns;
+    }
+
+    List<ConformalClassifierMeasure> measures = new ArrayList<>(m);
+    for (int i = 0; i < m; i++) {
+      measures.add(null);
+    }
+    long accPredictions = 0, accCorrect = 0, accSingletons = 0;
+    for (int i = 0; i < m; i++) {
+      accPredictions += noPredictions[i];
+      accCorrect += correct[i];
+      accSingletons += noSingletons[i];
+      measures.set(order[i],
+          new ConformalClassifierMeasure((double) accCorrect / truth.size(), sumPValue / rows,
+              sumConfidence / rows, sumCredibility / rows, (double) accSingletons / truth.size(),
+              (double) accPredictions / rows));
+    }
+    return measures;
+  }
+
+  /**
+   * Returns the number of significance levels strictly smaller than {@code p}, i.e., the number
+   * of significance levels for which {@code p} is included in the prediction set.
+   */
+  private static int countSmaller(double[] significances, double p) {
+    int lo = 0;
+    int hi = significances.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (significances[mid] < p) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
   public double getAccuracy() {
     return accuracy;
   }
@@ -22,7 +22,6 @@ package org.briljantframework.mimir.classification.conformal.evaluation;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.briljantframework.Check;
 import org.briljantframework.array.DoubleArray;
@@ -37,13 +36,12 @@ import org.briljantframework.mimir.evaluation.partition.Partitioner;
  * @author Isak Karlsson <isak-kar@dsv.su.se>
  */
 public abstract class ConformalClassifierValidator<In, Out, P extends ConformalClassifier<In, Out>> {
-  private final List<? extends ConformalClassifierEvaluator<In, Out>> conformalEvaluators;
+  private final ConformalClassifierEvaluator<In, Out> conformalEvaluator;
 
   protected ConformalClassifierValidator(Partitioner<In, Out> partitioner,
       DoubleArray confidences) {
     // super(partitioner);
-    this.conformalEvaluators = confidences.doubleStream()
-        .mapToObj(i -> new ConformalClassifierEvaluator<In, Out>(i)).collect(Collectors.toList());
+    this.conformalEvaluator = new ConformalClassifierEvaluator<>(confidences);
   }
 
   protected ConformalClassifierValidator(Partitioner<In, Out> partitioner) {
@@ -52,11 +50,12 @@ public abstract class ConformalClassifierValidator<In, Out, P extends ConformalC
 
   // @Override
   protected void evaluate(EvaluationContext<In, Out> evaluationContext, int fold) {
-    for (ConformalClassifierEvaluator<In, Out> evaluator : conformalEvaluators) {
+    int significances = conformalEvaluator.getSignificances().size();
+    for (int i = 0; i < significances; i++) {
       evaluationContext.getMeasureCollection().add("fold", fold);
-      evaluator.accept(evaluationContext);
-      // acceptEvaluators(evaluationContext);
     }
+    conformalEvaluator.accept(evaluationContext);
+    // acceptEvaluators(evaluationContext);
   }
 
   // @Override
@@ -0,0 +1,385 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tree;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.evaluation.EvaluationContext;
+import org.briljantframework.mimir.evaluation.Evaluator;
+import org.briljantframework.mimir.evaluation.MeasureCollection;
+
+/**
+ * Per-phase timings and counters recorded while fitting a tree. Profiling is opt-in and enabled
+ * by setting {@link #PROFILE} for the tree (or ensemble) learner. When disabled, the learners use a
+ * shared disabled profile for which every operation is a single branch.
+ *
+ * <p>
+ * A profile is recorded by a single thread during a fit and is not modified once the tree has
+ * been fitted, i.e., the profile returned by a fitted {@linkplain Profiled predictor} is a
+ * snapshot. Ensembles {@linkplain #merge(Iterable) merge} the profiles of their members.
+ *
+ * <pre>
+ * RandomPatternForest.Learner&lt;...&gt; forest = ...;
+ * forest.set(TrainingProfile.PROFILE, true);
+ * validator.add(new TrainingProfile.ProfileEvaluator&lt;&gt;());
+ * </pre>
+ *
+ * @author Isak Karlsson
+ */
+public final class TrainingProfile {
+
+  /**
+   * Record a training profile for each fitted tree
+   */
+  public static final Property<Boolean> PROFILE = Property.of("profile", Boolean.class, false);
+
+  private static final TrainingProfile DISABLED = new TrainingProfile(false);
+
+  /**
+   * The timed phases of fitting a tree
+   */
+  public enum Phase {
+    /**
+     * Sampling candidate patterns
+     */
+    PATTERN_SAMPLING,
+
+    /**
+     * Computing the distances between the candidate patterns and the examples
+     */
+    DISTANCE,
+
+    /**
+     * Searching for the best threshold (including sorting the distances)
+     */
+    THRESHOLD_SCAN,
+
+    /**
+     * Partitioning the examples according to the best split
+     */
+    SPLIT
+  }
+
+  /**
+   * The counted events of fitting a tree
+   */
+  public enum Counter {
+    /**
+     * The number of sampled candidate patterns
+     */
+    PATTERNS,
+
+    /**
+     * The number of distance evaluations
+     */
+    DISTANCES,
+
+    /**
+     * The number of distance evaluations that resulted in a missing or infinite distance
+     */
+    MISSING_DISTANCES,
+
+    /**
+     * The number of evaluated candidate thresholds
+     */
+    THRESHOLDS,
+
+    /**
+     * The number of materialized splits
+     */
+    SPLITS
+  }
+
+  private final boolean enabled;
+  private final long[] time = new long[Phase.values().length];
+  private final long[] count = new long[Counter.values().length];
+  private int[] nodes = new int[0];
+  private int leaves = 0;
+  private double leafWeight = 0;
+  private double maxLeafWeight = 0;
+  private double minLeafWeight = Double.POSITIVE_INFINITY;
+
+  private TrainingProfile(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns a new profile if {@link #PROFILE} is set or the shared disabled profile otherwise
+   *
+   * @param properties the learner properties
+   * @return a profile
+   */
+  public static TrainingProfile newProfile(Properties properties) {
+    return properties.getOrDefault(PROFILE) ? new TrainingProfile(true) : DISABLED;
+  }
+
+  /**
+   * @return the shared disabled profile
+   */
+  public static TrainingProfile disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Merge the enabled profiles, e.g., of the members of an ensemble. The depths of the profiles
+   * are aligned.
+   *
+   * @param profiles the profiles
+   * @return a merged profile (or the disabled profile if no profile is enabled)
+   */
+  public static TrainingProfile merge(Iterable<TrainingProfile> profiles) {
+    TrainingProfile merged = null;
+    for (TrainingProfile profile : profiles) {
+      if (profile.enabled) {
+        if (merged == null) {
+          merged = new TrainingProfile(true);
+        }
+        for (int i = 0; i < merged.time.length; i++) {
+          merged.time[i] += profile.time[i];
+        }
+        for (int i = 0; i < merged.count.length; i++) {
+          merged.count[i] += profile.count[i];
+        }
+        for (int i = 0; i < profile.nodes.length; i++) {
+          merged.addNodes(i, profile.nodes[i]);
+        }
+        merged.leaves += profile.leaves;
+        merged.leafWeight += profile.leafWeight;
+        merged.maxLeafWeight = Math.max(merged.maxLeafWeight, profile.maxLeafWeight);
+        merged.minLeafWeight = Math.min(merged.minLeafWeight, profile.minLeafWeight);
+      }
+    }
+    return merged != null ? merged : DISABLED;
+  }
+
+  /**
+   * @return true if the profile is recorded
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Start timing a phase.
+   *
+   * @return the start time (or {@code 0} if disabled)
+   * @see #stop(Phase, long)
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Stop timing the phase started at {@code start}
+   *
+   * @param phase the phase
+   * @param start the start time returned by {@link #start()}
+   */
+  public void stop(Phase phase, long start) {
+    if (enabled) {
+      time[phase.ordinal()] += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * Increment the given counter
+   *
+   * @param counter the counter
+   * @param n the increment
+   */
+  public void count(Counter counter, long n) {
+    if (enabled) {
+      count[counter.ordinal()] += n;
+    }
+  }
+
+  /**
+   * Record a branch at the given depth
+   *
+   * @param depth the depth (the root has depth {@code 0})
+   */
+  public void branch(int depth) {
+    if (enabled) {
+      addNodes(depth, 1);
+    }
+  }
+
+  /**
+   * Record a leaf at the given depth
+   *
+   * @param depth the depth (the root has depth {@code 0})
+   * @param weight the weight of the examples in the leaf
+   */
+  public void leaf(int depth, double weight) {
+    if (enabled) {
+      addNodes(depth, 1);
+      leaves += 1;
+      leafWeight += weight;
+      maxLeafWeight = Math.max(maxLeafWeight, weight);
+      minLeafWeight = Math.min(minLeafWeight, weight);
+    }
+  }
+
+  private void addNodes(int depth, int n) {
+    if (depth >= nodes.length) {
+      nodes = Arrays.copyOf(nodes, Math.max(depth + 1, nodes.length * 2));
+    }
+    nodes[depth] += n;
+  }
+
+  /**
+   * Returns the time spent in the given phase
+   *
+   * @param phase the phase
+   * @return the time in milliseconds
+   */
+  public double getTime(Phase phase) {
+    return time[phase.ordinal()] / 1e6;
+  }
+
+  /**
+   * @param counter the counter
+   * @return the value of the counter
+   */
+  public long getCount(Counter counter) {
+    return count[counter.ordinal()];
+  }
+
+  /**
+   * Returns the number of nodes (branches and leaves) per depth
+   *
+   * @return an array where the i:th element is the number of nodes at depth {@code i}
+   */
+  public int[] getNodesPerDepth() {
+    int depth = nodes.length;
+    while (depth > 0 && nodes[depth - 1] == 0) {
+      depth--;
+    }
+    return Arrays.copyOf(nodes, depth);
+  }
+
+  /**
+   * @return the number of leaves
+   */
+  public int getLeaves() {
+    return leaves;
+  }
+
+  /**
+   * @return the mean weight of the examples in the leaves
+   */
+  public double getMeanLeafSize() {
+    return leaves > 0 ? leafWeight / leaves : 0;
+  }
+
+  /**
+   * @return the smallest weight of the examples in a leaf
+   */
+  public double getMinLeafSize() {
+    return leaves > 0 ? minLeafWeight : 0;
+  }
+
+  /**
+   * @return the largest weight of the examples in a leaf
+   */
+  public double getMaxLeafSize() {
+    return maxLeafWeight;
+  }
+
+  /**
+   * Add the profile to the given measure collection. The measures are prefixed with
+   * {@code profile_}, e.g., {@code profile_distance_time} and {@code profile_distances}. Nothing
+   * is added if the profile is disabled.
+   *
+   * @param measures the measure collection
+   */
+  public void addTo(MeasureCollection measures) {
+    if (!enabled) {
+      return;
+    }
+    for (Phase phase : Phase.values()) {
+      measures.add("profile_" + key(phase) + "_time", getTime(phase));
+    }
+    for (Counter counter : Counter.values()) {
+      measures.add("profile_" + key(counter), getCount(counter));
+    }
+    int[] nodes = getNodesPerDepth();
+    int total = 0;
+    for (int n : nodes) {
+      total += n;
+    }
+    measures.add("profile_nodes", total);
+    measures.add("profile_depth", nodes.length);
+    measures.add("profile_leaves", getLeaves());
+    measures.add("profile_mean_leaf_size", getMeanLeafSize());
+    measures.add("profile_min_leaf_size", getMinLeafSize());
+    measures.add("profile_max_leaf_size", getMaxLeafSize());
+  }
+
+  private static String key(Enum<?> value) {
+    return value.name().toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  public String toString() {
+    if (!enabled) {
+      return "TrainingProfile(disabled)";
+    }
+    StringBuilder builder = new StringBuilder("TrainingProfile(");
+    for (Phase phase : Phase.values()) {
+      builder.append(key(phase)).append("=")
+          .append(String.format(Locale.ROOT, "%.2fms", getTime(phase))).append(", ");
+    }
+    for (Counter counter : Counter.values()) {
+      builder.append(key(counter)).append("=").append(getCount(counter)).append(", ");
+    }
+    return builder.append("nodes=").append(Arrays.toString(getNodesPerDepth())).append(")")
+        .toString();
+  }
+
+  /**
+   * A predictor that exposes the profile recorded during training
+   */
+  public interface Profiled {
+
+    /**
+     * @return the training profile (which is disabled if profiling was not enabled)
+     */
+    TrainingProfile getTrainingProfile();
+  }
+
+  /**
+   * An evaluator that adds the training profile of {@linkplain Profiled profiled} predictors to
+   * the measure collection of the evaluation context.
+   */
+  public static class ProfileEvaluator<In, Out> implements Evaluator<In, Out> {
+
+    @Override
+    public void accept(EvaluationContext<In, Out> ctx) {
+      if (ctx.getPredictor() instanceof Profiled) {
+        ((Profiled) ctx.getPredictor()).getTrainingProfile().addTo(ctx.getMeasureCollection());
+      }
+    }
+  }
+}
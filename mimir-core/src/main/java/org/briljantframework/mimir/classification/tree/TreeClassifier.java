@@ -33,18 +33,37 @@ import org.briljantframework.mimir.data.Schema;
  * @author Isak Karlsson
  */
 public class TreeClassifier<In, Out> extends AbstractClassifier<In, Out>
-    implements ProbabilityEstimator<In, Out> {
+    implements ProbabilityEstimator<In, Out>, TrainingProfile.Profiled {
 
   private final TreeVisitor<In> predictionVisitor;
   private final TreeNode<In> root;
   private final Schema<In> schema;
+  private final TrainingProfile profile;
 
   protected TreeClassifier(Schema<In> schema, Array<Out> classes, TreeNode<In> root,
       TreeVisitor<In> predictionVisitor) {
+    this(schema, classes, root, predictionVisitor, TrainingProfile.disabled());
+  }
+
+  protected TreeClassifier(Schema<In> schema, Array<Out> classes, TreeNode<In> root,
+      TreeVisitor<In> predictionVisitor, TrainingProfile profile) {
     super(classes);
     this.schema = schema;
     this.root = root;
     this.predictionVisitor = predictionVisitor;
+    this.profile = profile;
+  }
+
+  /**
+   * @return the root node of the tree
+   */
+  public TreeNode<In> getRootNode() {
+    return root;
+  }
+
+  @Override
+  public TrainingProfile getTrainingProfile() {
+    return profile;
   }
 
   @Override
@@ -52,4 +71,22 @@ public class TreeClassifier<In, Out> extends AbstractClassifier<In, Out>
     Check.argument(schema.isValid(record));
     return root.visit(predictionVisitor, record);
   }
+
+  @Override
+  public void estimate(In record, double[] out, int offset) {
+    Check.argument(schema.isValid(record));
+    DoubleArray estimate = root.visit(predictionVisitor, record);
+    for (int i = 0; i < estimate.size(); i++) {
+      out[offset + i] = estimate.get(i);
+    }
+  }
+
+  @Override
+  public void accumulate(In record, double weight, double[] out, int offset) {
+    Check.argument(schema.isValid(record));
+    DoubleArray estimate = root.visit(predictionVisitor, record);
+    for (int i = 0; i < estimate.size(); i++) {
+      out[offset + i] += weight * estimate.get(i);
+    }
+  }
 }
@@ -31,6 +31,7 @@ import org.briljantframework.data.series.Series;
 import org.briljantframework.data.statistics.FastStatistics;
 import org.briljantframework.mimir.Properties;
 import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.classification.tree.*;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.data.Schema;
@@ -66,8 +67,8 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
   private final TreeNode<In> rootNode;
 
   private PatternTree(Schema<In> schema, Array<Out> classes, TreeVisitor<In> predictionVisitor,
-      TreeNode<In> rootNode, int depth) {
-    super(schema, classes, rootNode, predictionVisitor);
+      TreeNode<In> rootNode, int depth, TrainingProfile profile) {
+    super(schema, classes, rootNode, predictionVisitor, profile);
     this.depth = depth;
     this.rootNode = rootNode;
   }
@@ -76,6 +77,7 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
     return depth;
   }
 
+  @Override
   public TreeNode<In> getRootNode() {
     return rootNode;
   }
@@ -105,6 +107,7 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
     }
 
     PatternTree<In, Out> fit(Input<In> x, List<Out> y) {
+      TraceEvent event = TraceEvent.begin(TraceEvent.Kind.TREE_FIT, PatternTree.class.getName());
       ClassSet classSet = this.classSet;
       Array<Out> classes = this.classes != null ? this.classes : Array.copyOf(new HashSet<>(y));
       if (classSet == null) {
@@ -113,42 +116,56 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
 
       Learner.Params params = new Learner.Params();
       params.noExamples = classSet.getTotalWeight();
-      TreeNode<In> node = build(x, y, classSet, params);
+      params.profile = TrainingProfile.newProfile(properties);
+      TreeNode<In> node = build(x, y, classSet, params, 0);
       // DefaultPatternTreeVisitor<In, E> visitor =
       // new DefaultPatternTreeVisitor<>(node, patternDistance);
       // WeightVisitor
 
       TreeVisitor<In> visitor = patternVisitorFactory.createVisitor(node, patternDistance);
-      return new PatternTree<>(x.getSchema(), classes, visitor, node, params.depth);
+      event.input(x).classes(classes.size()).commit();
+      return new PatternTree<>(x.getSchema(), classes, visitor, node, params.depth,
+          params.profile);
     }
 
     private Gain getGain() {
       return gain;
     }
 
-    protected TreeNode<In> build(Input<? extends In> x, List<?> y, ClassSet classSet,
+    /**
+     * @deprecated use the overload with a {@link TrainingProfile}; the tree is only built using
+     *             that overload, so this method is final
+     */
+    @Deprecated
+    protected final TreeNode<In> build(Input<? extends In> x, List<?> y, ClassSet classSet,
         Learner.Params params) {
+      return build(x, y, classSet, params, 0);
+    }
+
+    protected TreeNode<In> build(Input<? extends In> x, List<?> y, ClassSet classSet,
+        Learner.Params params, int depth) {
       if (classSet.getTotalWeight() <= properties.getOrDefault(MIN_SPLIT_SIZE)
           || classSet.getTargetCount() == 1) {
-        return TreeLeaf.fromExamples(classSet, classSet.getTotalWeight() / params.noExamples);
+        return leaf(classSet, params, depth);
       }
       params.depth += 1;
-      TreeSplit<In> maxSplit = find(classSet, x, y);
+      TreeSplit<In> maxSplit = find(classSet, x, y, params.profile);
       if (maxSplit == null) {
-        return TreeLeaf.fromExamples(classSet, classSet.getTotalWeight() / params.noExamples);
+        return leaf(classSet, params, depth);
       } else {
         ClassSet left = maxSplit.getLeft();
         ClassSet right = maxSplit.getRight();
         if (left.isEmpty()) {
-          return TreeLeaf.fromExamples(right, right.getTotalWeight() / params.noExamples);
+          return leaf(right, params, depth);
         } else if (right.isEmpty()) {
-          return TreeLeaf.fromExamples(left, left.getTotalWeight() / params.noExamples);
+          return leaf(left, params, depth);
         } else {
-          TreeNode<In> leftNode = build(x, y, left, params);
-          TreeNode<In> rightNode = build(x, y, right, params);
+          params.profile.branch(depth);
+          TreeNode<In> leftNode = build(x, y, left, params, depth + 1);
+          TreeNode<In> rightNode = build(x, y, right, params, depth + 1);
           TreeNode<In> missingNode = null;
           if (maxSplit.getMissing() != null && !maxSplit.getMissing().isEmpty()) {
-            missingNode = build(x, y, maxSplit.getMissing(), params);
+            missingNode = build(x, y, maxSplit.getMissing(), params, depth + 1);
           }
 
           Series.Builder classDist = Series.Builder.of(double.class);
@@ -162,18 +179,36 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
       }
     }
 
-    public TreeSplit<In> find(ClassSet c, Input<? extends In> x, List<?> y) {
+    private TreeLeaf<In> leaf(ClassSet classSet, Learner.Params params, int depth) {
+      params.profile.leaf(depth, classSet.getTotalWeight());
+      return TreeLeaf.fromExamples(classSet, classSet.getTotalWeight() / params.noExamples);
+    }
+
+    /**
+     * @deprecated use the overload with a {@link TrainingProfile}; the tree is only built using
+     *             that overload, so this method is final
+     */
+    @Deprecated
+    public final TreeSplit<In> find(ClassSet c, Input<? extends In> x, List<?> y) {
+      return find(c, x, y, TrainingProfile.disabled());
+    }
+
+    public TreeSplit<In> find(ClassSet c, Input<? extends In> x, List<?> y,
+        TrainingProfile profile) {
 
       // Extract this into createPattern().
       // this means that pattern count is no longer a param of the tree
       int patternCount = properties.getOrDefault(PATTERN_COUNT);
       List<E> shapelets = new ArrayList<>(patternCount);
+      long start = profile.start();
       for (int i = 0; i < patternCount; i++) {
         E pattern = patternFactory.createPattern(x, c);
         if (pattern != null) {
           shapelets.add(pattern);
         }
       }
+      profile.stop(TrainingProfile.Phase.PATTERN_SAMPLING, start);
+      profile.count(TrainingProfile.Counter.PATTERNS, shapelets.size());
 
       if (shapelets.isEmpty()) {
         System.err.println("debug: empty sample");
@@ -182,22 +217,32 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
 
       TreeSplit<In> bestSplit;
       if (properties.getOrDefault(ASSESSMENT) == PatternTree.Learner.Assessment.IG) {
-        bestSplit = findBestSplit(c, x, y, shapelets);
+        bestSplit = findBestSplit(c, x, y, shapelets, profile);
       } else {
-        bestSplit = findBestSplitFstat(c, x, y, shapelets);
+        bestSplit = findBestSplitFstat(c, x, y, shapelets, profile);
       }
       return bestSplit;
     }
 
-    protected TreeSplit<In> findBestSplit(ClassSet classSet, Input<? extends In> x, List<?> y,
+    /**
+     * @deprecated use the overload with a {@link TrainingProfile}; the tree is only built using
+     *             that overload, so this method is final
+     */
+    @Deprecated
+    protected final TreeSplit<In> findBestSplit(ClassSet classSet, Input<? extends In> x, List<?> y,
         List<E> subPatterns) {
+      return findBestSplit(classSet, x, y, subPatterns, TrainingProfile.disabled());
+    }
+
+    protected TreeSplit<In> findBestSplit(ClassSet classSet, Input<? extends In> x, List<?> y,
+        List<E> subPatterns, TrainingProfile profile) {
       Learner.Threshold bestThreshold = PatternTree.Learner.Threshold.inf();
       IntDoubleMap bestDistanceMap = null;
       E bestShapelet = null;
       for (E subPattern : subPatterns) {
         IntDoubleMap distanceMap = new IntDoubleOpenHashMap();
         Learner.Threshold threshold =
-            bestDistanceThresholdInSample(classSet, x, y, subPattern, distanceMap);
+            bestDistanceThresholdInSample(classSet, x, y, subPattern, distanceMap, profile);
         boolean lowerImpurity = threshold.impurity < bestThreshold.impurity;
         boolean equalImpuritySmallerGap =
             threshold.impurity == bestThreshold.impurity && threshold.gap > bestThreshold.gap;
@@ -210,7 +255,7 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
 
       if (bestDistanceMap != null && bestShapelet != null) {
         TreeSplit<In> bestSplit =
-            split(bestDistanceMap, classSet, bestThreshold.threshold, bestShapelet);
+            split(bestDistanceMap, classSet, bestThreshold.threshold, bestShapelet, profile);
         bestSplit.setImpurity(bestThreshold.impurity);
         // PatternTree.Threshold threshold = bestSplit.getThreshold();
         // TODO: fixme
@@ -241,10 +286,24 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
       return builder.build();
     }
 
-    protected Learner.Threshold bestDistanceThresholdInSample(ClassSet classSet,
+    /**
+     * @deprecated use the overload with a {@link TrainingProfile}; the tree is only built using
+     *             that overload, so this method is final
+     */
+    @Deprecated
+    protected final Learner.Threshold bestDistanceThresholdInSample(ClassSet classSet,
         Input<? extends In> x, List<?> y, E shapelet, IntDoubleMap memoizedDistances) {
+      return bestDistanceThresholdInSample(classSet, x, y, shapelet, memoizedDistances,
+          TrainingProfile.disabled());
+    }
+
+    protected Learner.Threshold bestDistanceThresholdInSample(ClassSet classSet,
+        Input<? extends In> x, List<?> y, E shapelet, IntDoubleMap memoizedDistances,
+        TrainingProfile profile) {
       double sum = 0.0;
+      int missing = 0;
       List<Learner.ExampleDistance> distances = new ArrayList<>();
+      long start = profile.start();
       for (Example example : classSet) {
         In record = x.get(example.getIndex());
         double distance = patternDistance.computeDistance(record, shapelet);
@@ -252,25 +311,46 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
         distances.add(new Learner.ExampleDistance(distance, example));
         if (!Is.NA(distance) && !Double.isInfinite(distance)) {
           sum += distance;
+        } else {
+          missing++;
         }
       }
-
-      if (patternDistance.isCategoric(shapelet)) {
-        TreeSplit<?> split = split(memoizedDistances, classSet, 0.5, shapelet);
-        double impurity = gain.compute(split);
-        return new Learner.Threshold(0.5, impurity, 0, Double.POSITIVE_INFINITY);
-      } else {
-        Collections.sort(distances);
-        int firstNa = distances.indexOf(PatternTree.Learner.ExampleDistance.NA);
-        if (firstNa >= 0) {
-          distances = distances.subList(0, firstNa);
+      profile.stop(TrainingProfile.Phase.DISTANCE, start);
+      profile.count(TrainingProfile.Counter.DISTANCES, distances.size());
+      profile.count(TrainingProfile.Counter.MISSING_DISTANCES, missing);
+
+      start = profile.start();
+      try {
+        if (patternDistance.isCategoric(shapelet)) {
+          TreeSplit<?> split = split(memoizedDistances, classSet, 0.5, shapelet);
+          double impurity = gain.compute(split);
+          profile.count(TrainingProfile.Counter.THRESHOLDS, 1);
+          return new Learner.Threshold(0.5, impurity, 0, Double.POSITIVE_INFINITY);
+        } else {
+          Collections.sort(distances);
+          int firstNa = distances.indexOf(PatternTree.Learner.ExampleDistance.NA);
+          if (firstNa >= 0) {
+            distances = distances.subList(0, firstNa);
+          }
+          return findBestThreshold(distances, classSet, shapelet, y, sum, firstNa, profile);
         }
-        return findBestThreshold(distances, classSet, shapelet, y, sum, firstNa);
+      } finally {
+        profile.stop(TrainingProfile.Phase.THRESHOLD_SCAN, start);
       }
     }
 
+    /**
+     * @deprecated use the overload with a {@link TrainingProfile}; the tree is only built using
+     *             that overload, so this method is final
+     */
+    @Deprecated
+    protected final TreeSplit<In> findBestSplitFstat(ClassSet classSet, Input<? extends In> x,
+        List<?> y, List<E> shapelets) {
+      return findBestSplitFstat(classSet, x, y, shapelets, TrainingProfile.disabled());
+    }
+
     protected TreeSplit<In> findBestSplitFstat(ClassSet classSet, Input<? extends In> x, List<?> y,
-        List<E> shapelets) {
+        List<E> shapelets, TrainingProfile profile) {
       IntDoubleMap bestDistanceMap = null;
       List<Learner.ExampleDistance> bestDistances = null;
       double bestStat = Double.NEGATIVE_INFINITY;
@@ -281,6 +361,8 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
         List<Learner.ExampleDistance> distances = new ArrayList<>();
         IntDoubleMap distanceMap = new IntDoubleOpenHashMap();
         double sum = 0;
+        int missing = 0;
+        long start = profile.start();
         for (Example example : classSet) {
           In record = x.get(example.getIndex());
           double dist = patternDistance.computeDistance(record, shapelet);
@@ -288,9 +370,17 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
           distances.add(new Learner.ExampleDistance(dist, example));
           if (!Is.NA(dist) && !Double.isInfinite(dist)) {
             sum += dist;
+          } else {
+            missing++;
           }
         }
+        profile.stop(TrainingProfile.Phase.DISTANCE, start);
+        profile.count(TrainingProfile.Counter.DISTANCES, distances.size());
+        profile.count(TrainingProfile.Counter.MISSING_DISTANCES, missing);
+
+        start = profile.start();
         double stat = assessFstatShapeletQuality(distances, y);
+        profile.stop(TrainingProfile.Phase.THRESHOLD_SCAN, start);
         if (stat > bestStat || bestDistances == null) {
           bestStat = stat;
           bestDistanceMap = distanceMap;
@@ -300,9 +390,11 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
         }
       }
 
+      long start = profile.start();
       Learner.Threshold t =
-          findBestThreshold(bestDistances, classSet, bestShapelet, y, bestSum, -1);
-      TreeSplit<In> split = split(bestDistanceMap, classSet, t.threshold, bestShapelet);
+          findBestThreshold(bestDistances, classSet, bestShapelet, y, bestSum, -1, profile);
+      profile.stop(TrainingProfile.Phase.THRESHOLD_SCAN, start);
+      TreeSplit<In> split = split(bestDistanceMap, classSet, t.threshold, bestShapelet, profile);
       split.setImpurity(t.impurity);
       return split;
     }
@@ -351,8 +443,20 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
       return Double.isNaN(f) ? 0 : f;
     }
 
-    public Learner.Threshold findBestThreshold(List<Learner.ExampleDistance> distances,
+    /**
+     * @deprecated use the overload with a {@link TrainingProfile}; the tree is only built using
+     *             that overload, so this method is final
+     */
+    @Deprecated
+    public final Learner.Threshold findBestThreshold(List<Learner.ExampleDistance> distances,
         ClassSet classSet, E x, List<?> y, double distanceSum, int firstNa) {
+      return findBestThreshold(distances, classSet, x, y, distanceSum, firstNa,
+          TrainingProfile.disabled());
+    }
+
+    public Learner.Threshold findBestThreshold(List<Learner.ExampleDistance> distances,
+        ClassSet classSet, E x, List<?> y, double distanceSum, int firstNa,
+        TrainingProfile profile) {
       ObjectDoubleMap<Object> lt = new ObjectDoubleOpenHashMap<>();
       ObjectDoubleMap<Object> gt = new ObjectDoubleOpenHashMap<>();
 
@@ -386,6 +490,7 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
       Gain gain = getGain();
       double ltGap = 0.0, gtGap = distanceSum, largestGap = Double.NEGATIVE_INFINITY;
       double patternWeight = weight(x);
+      int thresholds = 0;
       for (int i = 1; i < distances.size(); i++) {
         if (firstNa >= 0 && i >= firstNa) {
           break;
@@ -399,6 +504,7 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
         boolean firstOrEqualTarget = prevTarget == null || !prevTarget.equals(target);
         boolean firstIteration = i == 1;
         if (firstIteration || notSameDistance && firstOrEqualTarget) {
+          thresholds++;
 
           // Generate the relative frequency distribution
           for (int j = 0; j < presentTargets.size(); j++) {
@@ -441,6 +547,7 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
         prevTarget = target;
       }
 
+      profile.count(TrainingProfile.Counter.THRESHOLDS, thresholds);
       double minimumMargin = Double.POSITIVE_INFINITY;
       return new Learner.Threshold(threshold, lowestImpurity, largestGap, minimumMargin);
     }
@@ -449,6 +556,15 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
       return weighter.applyAsDouble(ex);
     }
 
+    protected TreeSplit<In> split(IntDoubleMap distanceMap, ClassSet classSet, double threshold,
+        E shapelet, TrainingProfile profile) {
+      long start = profile.start();
+      TreeSplit<In> split = split(distanceMap, classSet, threshold, shapelet);
+      profile.stop(TrainingProfile.Phase.SPLIT, start);
+      profile.count(TrainingProfile.Counter.SPLITS, 1);
+      return split;
+    }
+
     protected TreeSplit<In> split(IntDoubleMap distanceMap, ClassSet classSet, double threshold,
         E shapelet) {
       ClassSet left = new ClassSet(classSet.getDomain());
@@ -579,6 +695,7 @@ public class PatternTree<In, Out> extends TreeClassifier<In, Out> {
       public int features;
       public double noExamples;
       private int depth = 0;
+      private TrainingProfile profile = TrainingProfile.disabled();
     }
 
 
@@ -20,7 +20,6 @@
  */
 package org.briljantframework.mimir.classification.tree.pattern;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
@@ -30,12 +29,13 @@ import java.util.function.ToDoubleFunction;
 
 import org.briljantframework.Check;
 import org.briljantframework.array.Array;
-import org.briljantframework.array.Arrays;
 import org.briljantframework.array.BooleanArray;
 import org.briljantframework.array.DoubleArray;
 import org.briljantframework.mimir.Properties;
 import org.briljantframework.mimir.classification.Classifier;
 import org.briljantframework.mimir.classification.Ensemble;
+import org.briljantframework.mimir.classification.OutOfBagAccumulator;
+import org.briljantframework.mimir.classification.ProbabilityEstimator;
 import org.briljantframework.mimir.classification.tree.ClassSet;
 import org.briljantframework.mimir.classification.tree.Example;
 import org.briljantframework.mimir.data.Input;
@@ -56,8 +56,9 @@ public class RandomPatternForest<In, Out> extends Ensemble<In, Out> {
   private final Schema<In> schema;
 
   private RandomPatternForest(Schema<In> schema, Array<Out> classes,
-      List<? extends PatternTree<In, Out>> members, BooleanArray oobIndicator) {
-    super(classes, members, oobIndicator);
+      List<? extends ProbabilityEstimator<In, Out>> members, BooleanArray oobIndicator,
+      OutOfBagAccumulator outOfBag) {
+    super(classes, members, oobIndicator, outOfBag);
     this.schema = schema;
   }
 
@@ -78,6 +79,12 @@ public class RandomPatternForest<In, Out> extends Ensemble<In, Out> {
     return averageProbabilities(input);
   }
 
+  @Override
+  public RandomPatternForest<In, Out> subEnsemble(int size) {
+    return new RandomPatternForest<>(schema, getClasses(), getEnsembleMembers(size),
+        getOobIndicator(size), null);
+  }
+
   public static class DepthEvaluator<In>
       implements org.briljantframework.mimir.evaluation.Evaluator<In, Object> {
 
@@ -139,26 +146,24 @@ public class RandomPatternForest<In, Out> extends Ensemble<In, Out> {
     @Override
     public RandomPatternForest<In, Out> fit(Input<In> x, List<Out> y) {
       Array<Out> classes = Array.copyOf(new HashSet<>(y));
-      ClassSet classSet = new ClassSet(y, classes);
-      List<FitTask<In, Out>> tasks = new ArrayList<>();
-      int members = get(Ensemble.SIZE);
-      BooleanArray oobIndicator = Arrays.booleanArray(x.size(), members);
-      for (int i = 0; i < members; i++) {
-        BooleanArray oobI = oobIndicator.getColumn(i);
-        ClassSet sample = sample(classSet, ThreadLocalRandom.current(), oobI);
-        PatternTree.Learner<In, Out> patternTree =
-            treeFitHelper.getPatternTree(classes, sample, getParameters());
-        tasks.add(new FitTask<>(x, y, patternTree));
-      }
+      return fit(x, y, classes, get(Ensemble.SIZE));
+    }
 
-      try {
-        List<PatternTree<In, Out>> models = Ensemble.Learner.execute(tasks);
-        return new RandomPatternForest<>(x.getSchema(), classes, models, oobIndicator);
-      } catch (Exception e) {
-        e.printStackTrace();
-        throw new RuntimeException(e);
-      }
+    @Override
+    protected Callable<PatternTree<In, Out>> newFitTask(Input<In> x, List<Out> y,
+        Array<Out> classes, ClassSet classSet, BooleanArray oobIndicator,
+        OutOfBagAccumulator outOfBag) {
+      ClassSet sample = sample(classSet, ThreadLocalRandom.current(), oobIndicator);
+      PatternTree.Learner<In, Out> patternTree =
+          treeFitHelper.getPatternTree(classes, sample, getParameters());
+      return new FitTask<>(x, y, patternTree, oobIndicator, outOfBag);
+    }
 
+    @Override
+    protected RandomPatternForest<In, Out> newEnsemble(Input<In> x, Array<Out> classes,
+        List<? extends ProbabilityEstimator<In, Out>> members, BooleanArray oobIndicator,
+        OutOfBagAccumulator outOfBag) {
+      return new RandomPatternForest<>(x.getSchema(), classes, members, oobIndicator, outOfBag);
     }
 
     public ClassSet sample(ClassSet classSet, Random random, BooleanArray oobIndicator) {
@@ -200,16 +205,23 @@ public class RandomPatternForest<In, Out> extends Ensemble<In, Out> {
       private final Input<In> x;
       private final List<Out> y;
       private final PatternTree.Learner<In, Out> patternTree;
+      private final BooleanArray oobIndicator;
+      private final OutOfBagAccumulator outOfBag;
 
-      public FitTask(Input<In> x, List<Out> y, PatternTree.Learner<In, Out> patternTree) {
+      public FitTask(Input<In> x, List<Out> y, PatternTree.Learner<In, Out> patternTree,
+          BooleanArray oobIndicator, OutOfBagAccumulator outOfBag) {
         this.patternTree = patternTree;
         this.x = x;
         this.y = y;
+        this.oobIndicator = oobIndicator;
+        this.outOfBag = outOfBag;
       }
 
       @Override
       public PatternTree<In, Out> call() throws Exception {
-        return patternTree.fit(x, y);
+        PatternTree<In, Out> tree = patternTree.fit(x, y);
+        outOfBag.add(tree, x, oobIndicator);
+        return tree;
       }
     }
   }
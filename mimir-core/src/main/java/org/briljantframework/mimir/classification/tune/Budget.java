@@ -0,0 +1,146 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tune;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.briljantframework.Check;
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.Property;
+
+/**
+ * A budget decides how a configuration is evaluated cheaply using a fraction {@code (0, 1]} of the
+ * full budget, e.g., using fewer ensemble members or a subsample of the examples. The fraction
+ * {@code 1} corresponds to the full evaluation.
+ *
+ * @author Isak Karlsson
+ */
+public interface Budget {
+
+  /**
+   * Returns the parameters used when evaluating the configuration with the given fraction of the
+   * budget. The default implementation returns the parameters unchanged.
+   *
+   * @param parameters the parameters of the configuration
+   * @param fraction the fraction of the budget
+   * @return the parameters
+   */
+  default Properties apply(Properties parameters, double fraction) {
+    return parameters;
+  }
+
+  /**
+   * Returns the indexes of the examples used when evaluating a configuration with the given
+   * fraction of the budget, or {@code null} to use all examples. The default implementation
+   * returns {@code null}.
+   *
+   * @param size the number of examples
+   * @param fraction the fraction of the budget
+   * @return the indexes of the examples (or {@code null})
+   */
+  default int[] sample(int size, double fraction) {
+    return null;
+  }
+
+  /**
+   * Returns the full budget, i.e., every evaluation uses all resources
+   *
+   * @return the full budget
+   */
+  static Budget full() {
+    return new Budget() {};
+  }
+
+  /**
+   * Returns a budget that scales the given integer property, e.g., the number of members of an
+   * ensemble, such that the fraction {@code 1} corresponds to {@code max}
+   *
+   * @param property the property
+   * @param max the value of the property for the full budget
+   * @return a budget
+   */
+  static Budget property(Property<Integer> property, int max) {
+    Check.argument(max > 0, "max must be positive");
+    return new Budget() {
+      @Override
+      public Properties apply(Properties parameters, double fraction) {
+        Properties copy = new Properties(parameters);
+        copy.set(property, Math.max(1, (int) Math.round(max * fraction)));
+        return copy;
+      }
+    };
+  }
+
+  /**
+   * Returns a budget that evaluates configurations on a random subsample of the examples, where
+   * the subsample size is proportional to the fraction. For a given number of examples, the
+   * subsamples are the same for all configurations and smaller subsamples are subsets of larger.
+   *
+   * @param seed the seed of the subsample
+   * @return a budget
+   */
+  static Budget rows(long seed) {
+    return new Budget() {
+      @Override
+      public int[] sample(int size, double fraction) {
+        if (fraction >= 1) {
+          return null;
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+          order[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = size - 1; i > 0; i--) {
+          int j = random.nextInt(i + 1);
+          int tmp = order[i];
+          order[i] = order[j];
+          order[j] = tmp;
+        }
+        int[] sample = Arrays.copyOf(order, Math.max(1, (int) Math.round(size * fraction)));
+        Arrays.sort(sample);
+        return sample;
+      }
+    };
+  }
+
+  /**
+   * Returns a budget that combines the parameters and the subsample of the given budgets
+   *
+   * @param parameters the budget of the parameters
+   * @param sample the budget of the subsample
+   * @return a combined budget
+   */
+  static Budget of(Budget parameters, Budget sample) {
+    return new Budget() {
+      @Override
+      public Properties apply(Properties p, double fraction) {
+        return parameters.apply(p, fraction);
+      }
+
+      @Override
+      public int[] sample(int size, double fraction) {
+        return sample.sample(size, fraction);
+      }
+    };
+  }
+}
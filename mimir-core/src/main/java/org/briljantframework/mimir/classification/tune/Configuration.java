@@ -0,0 +1,78 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tune;
+
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.evaluation.Result;
+
+/**
+ * A configuration (i.e., the parameters of a learner) and the result of evaluating it.
+ *
+ * @author Isak Karlsson
+ */
+public final class Configuration<Out> {
+
+  private final Properties parameters;
+  private final double fraction;
+  private final Result<Out> result;
+  private final double score;
+
+  Configuration(Properties parameters, double fraction, Result<Out> result, double score) {
+    this.parameters = Properties.unmodifiableProperties(parameters);
+    this.fraction = fraction;
+    this.result = result;
+    this.score = score;
+  }
+
+  /**
+   * @return the parameters of the configuration
+   */
+  public Properties getParameters() {
+    return parameters;
+  }
+
+  /**
+   * @return the fraction of the budget used to evaluate the configuration
+   */
+  public double getFraction() {
+    return fraction;
+  }
+
+  /**
+   * @return the result of the evaluation
+   */
+  public Result<Out> getResult() {
+    return result;
+  }
+
+  /**
+   * @return the score of the configuration (higher is better)
+   */
+  public double getScore() {
+    return score;
+  }
+
+  @Override
+  public String toString() {
+    return "Configuration{" + "parameters=" + parameters + ", fraction=" + fraction + ", score="
+        + score + '}';
+  }
+}
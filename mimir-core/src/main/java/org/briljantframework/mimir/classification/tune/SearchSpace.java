@@ -0,0 +1,170 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tune;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.briljantframework.Check;
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.Property;
+
+/**
+ * A search space over {@linkplain Property property} values. Each dimension is either a finite
+ * list of values, which can be enumerated as a grid or sampled uniformly, or a sampler which can
+ * only be sampled.
+ *
+ * <pre>
+ * {@code
+ * SearchSpace space = new SearchSpace()
+ *     .add(Ensemble.SIZE, 100, 500, 1000)
+ *     .add(PatternTree.PATTERN_COUNT, 10, 100)
+ *     .add(PatternTree.MIN_SPLIT_SIZE, r -> r.nextDouble() * 0.1);
+ * List<Properties> candidates = space.sample(50, new Random(123));
+ * }
+ * </pre>
+ *
+ * @author Isak Karlsson
+ */
+public final class SearchSpace {
+
+  private final List<Dimension<?>> dimensions = new ArrayList<>();
+
+  /**
+   * Add a dimension with the given values
+   *
+   * @param property the property
+   * @param values the values
+   * @return this search space
+   */
+  @SafeVarargs
+  public final <T> SearchSpace add(Property<T> property, T... values) {
+    return add(property, Arrays.asList(values));
+  }
+
+  /**
+   * Add a dimension with the given values
+   *
+   * @param property the property
+   * @param values the values
+   * @return this search space
+   */
+  public <T> SearchSpace add(Property<T> property, List<? extends T> values) {
+    Check.argument(!values.isEmpty(), "requires at least one value");
+    for (T value : values) {
+      Check.argument(property.validate(value), "illegal value for %s: %s", property.getName(),
+          value);
+    }
+    dimensions.add(new Dimension<>(property, new ArrayList<>(values), null));
+    return this;
+  }
+
+  /**
+   * Add a dimension sampled from the given sampler. A search space with sampled dimensions cannot
+   * be enumerated as a grid.
+   *
+   * @param property the property
+   * @param sampler the sampler
+   * @return this search space
+   */
+  public <T> SearchSpace add(Property<T> property, Function<? super Random, ? extends T> sampler) {
+    dimensions.add(new Dimension<>(property, null, Objects.requireNonNull(sampler)));
+    return this;
+  }
+
+  /**
+   * Returns all combinations of the values of the dimensions, i.e., the grid.
+   *
+   * @return the grid
+   */
+  public List<Properties> grid() {
+    List<Properties> grid = Collections.singletonList(new Properties());
+    for (Dimension<?> dimension : dimensions) {
+      Check.state(dimension.values != null, "cannot enumerate the sampled dimension %s",
+          dimension.property.getName());
+      List<Properties> next = new ArrayList<>(grid.size() * dimension.values.size());
+      for (Properties properties : grid) {
+        for (int i = 0; i < dimension.values.size(); i++) {
+          Properties copy = new Properties(properties);
+          dimension.set(copy, i);
+          next.add(copy);
+        }
+      }
+      grid = next;
+    }
+    return grid;
+  }
+
+  /**
+   * Returns {@code n} random configurations, where the value of each dimension is sampled
+   * independently.
+   *
+   * @param n the number of configurations
+   * @param random the random number generator
+   * @return the sampled configurations
+   */
+  public List<Properties> sample(int n, Random random) {
+    List<Properties> sample = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      Properties properties = new Properties();
+      for (Dimension<?> dimension : dimensions) {
+        dimension.sample(properties, random);
+      }
+      sample.add(properties);
+    }
+    return sample;
+  }
+
+  @Override
+  public String toString() {
+    return "SearchSpace{" + "dimensions=" + dimensions.size() + '}';
+  }
+
+  private static final class Dimension<T> {
+    private final Property<T> property;
+    private final List<T> values;
+    private final Function<? super Random, ? extends T> sampler;
+
+    private Dimension(Property<T> property, List<T> values,
+        Function<? super Random, ? extends T> sampler) {
+      this.property = Objects.requireNonNull(property);
+      this.values = values;
+      this.sampler = sampler;
+    }
+
+    private void set(Properties properties, int index) {
+      properties.set(property, values.get(index));
+    }
+
+    private void sample(Properties properties, Random random) {
+      if (values != null) {
+        set(properties, random.nextInt(values.size()));
+      } else {
+        properties.set(property, sampler.apply(random));
+      }
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tune;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import org.briljantframework.Check;
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.data.Inputs;
+import org.briljantframework.mimir.evaluation.Result;
+import org.briljantframework.mimir.evaluation.Validator;
+import org.briljantframework.mimir.supervised.Parameterized;
+import org.briljantframework.mimir.supervised.Predictor;
+
+/**
+ * Search for the configuration (i.e., the {@linkplain Properties parameters}) of a learner that
+ * maximizes an objective, estimated using a {@link Validator}. The configurations are evaluated in
+ * parallel (see {@link #setParallelism(int)}).
+ *
+ * <p>
+ * In addition to evaluating all configurations using the full budget, the tuner supports
+ * successive halving and Hyperband, where many configurations are evaluated using a small
+ * {@linkplain Budget budget} (e.g., few ensemble members or a subsample of the examples) and only
+ * the best {@code 1 / eta} of the configurations are evaluated using a larger budget.
+ *
+ * <pre>
+ * {@code
+ * Tuner<Instance, Object, Classifier<Instance, Object>> tuner = new Tuner<>(
+ *     Tuner.parameterize(() -> new RandomForest.Learner<>(100)),
+ *     ClassifierValidator.crossValidator(10),
+ *     result -> result.getMeasure("accuracy").mean());
+ * tuner.setBudget(Budget.property(Ensemble.SIZE, 500));
+ * List<Configuration<Object>> best =
+ *     tuner.successiveHalving(space.sample(81, new Random(123)), 1 / 27.0, 3, x, y);
+ * }
+ * </pre>
+ *
+ * <h1>Publications</h1>
+ * <ul>
+ * <li>Jamieson, K., Talwalkar, A. Non-stochastic best arm identification and hyperparameter
+ * optimization. In Proc. AISTATS, 2016</li>
+ * <li>Li, L., Jamieson, K., DeSalvo, G., Rostamizadeh, A., Talwalkar, A. Hyperband: A novel
+ * bandit-based approach to hyperparameter optimization. JMLR, 2018</li>
+ * </ul>
+ *
+ * @author Isak Karlsson
+ */
+public class Tuner<In, Out, P extends Predictor<In, Out>> {
+
+  private final Function<? super Properties, ? extends Predictor.Learner<In, Out, ? extends P>>
+      learner;
+  private final Validator<In, Out, P> validator;
+  private final ToDoubleFunction<? super Result<Out>> objective;
+
+  private Budget budget = Budget.full();
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Create a new tuner
+   *
+   * @param learner a function that creates a learner using the given parameters
+   * @param validator the validator used to evaluate a configuration (without a
+   *        {@linkplain Validator#setResultSink result sink})
+   * @param objective the objective to maximize
+   */
+  public Tuner(
+      Function<? super Properties, ? extends Predictor.Learner<In, Out, ? extends P>> learner,
+      Validator<In, Out, P> validator, ToDoubleFunction<? super Result<Out>> objective) {
+    this.learner = Objects.requireNonNull(learner, "requires a learner");
+    this.validator = Objects.requireNonNull(validator, "requires a validator");
+    Check.argument(validator.getResultSink() == null, "the validator cannot have a result sink");
+    this.objective = Objects.requireNonNull(objective, "requires an objective");
+  }
+
+  /**
+   * Returns a function that creates a learner using the supplier and sets the given parameters
+   *
+   * @param supplier the learner supplier
+   * @return a function that creates a parameterized learner
+   */
+  public static <L extends Parameterized> Function<Properties, L> parameterize(
+      Supplier<? extends L> supplier) {
+    return parameters -> {
+      L learner = supplier.get();
+      for (Property<?> property : parameters.keySet()) {
+        set(learner, property, parameters);
+      }
+      return learner;
+    };
+  }
+
+  private static <T> void set(Parameterized learner, Property<T> property, Properties parameters) {
+    learner.set(property, parameters.get(property));
+  }
+
+  /**
+   * Set the budget used to evaluate configurations cheaply
+   *
+   * @param budget the budget
+   */
+  public void setBudget(Budget budget) {
+    this.budget = Objects.requireNonNull(budget, "requires a budget");
+  }
+
+  /**
+   * Set the number of configurations evaluated concurrently. The configurations share the
+   * validator, and if the {@linkplain Validator#setParallelism(int) validator's parallelism} is
+   * larger than {@code 1}, each configuration evaluates its partitions in a dedicated pool, i.e.,
+   * up to {@code parallelism * validator.getParallelism()} predictors are fitted concurrently.
+   * Hence, either the tuner or the validator should usually be sequential.
+   *
+   * @param parallelism the number of concurrently evaluated configurations
+   */
+  public void setParallelism(int parallelism) {
+    Check.argument(parallelism > 0, "parallelism must be positive");
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Evaluate all configurations using the full budget.
+   *
+   * @param candidates the configurations
+   * @param x the input
+   * @param y the output
+   * @return the evaluated configurations, with the best configuration first
+   */
+  public List<Configuration<Out>> tune(List<Properties> candidates, Input<In> x, List<Out> y) {
+    List<Configuration<Out>> configurations = evaluate(candidates, 1, x, y);
+    configurations.sort(Comparator.comparingDouble(Configuration<Out>::getScore).reversed());
+    return configurations;
+  }
+
+  /**
+   * Evaluate the configurations using successive halving. All configurations are evaluated using
+   * {@code minFraction} of the budget, and the best {@code 1 / eta} configurations are evaluated
+   * using {@code eta} times larger budget until the full budget is reached.
+   *
+   * @param candidates the configurations
+   * @param minFraction the fraction of the budget of the first round
+   * @param eta the reduction factor
+   * @param x the input
+   * @param y the output
+   * @return the configurations evaluated using the full budget, with the best configuration first
+   */
+  public List<Configuration<Out>> successiveHalving(List<Properties> candidates,
+      double minFraction, int eta, Input<In> x, List<Out> y) {
+    Check.argument(minFraction > 0 && minFraction <= 1, "illegal fraction");
+    Check.argument(eta > 1, "eta must be larger than 1");
+    Check.argument(!candidates.isEmpty(), "requires at least one configuration");
+    int rounds = (int) Math.floor(Math.log(1 / minFraction) / Math.log(eta) + 1e-9);
+    List<Properties> remaining = candidates;
+    List<Configuration<Out>> configurations = null;
+    for (int i = 0; i <= rounds; i++) {
+      double fraction = i == rounds ? 1 : minFraction * Math.pow(eta, i);
+      configurations = evaluate(remaining, fraction, x, y);
+      configurations.sort(Comparator.comparingDouble(Configuration<Out>::getScore).reversed());
+      if (i < rounds) {
+        int keep = Math.max(1, configurations.size() / eta);
+        remaining = new ArrayList<>(keep);
+        for (int j = 0; j < keep; j++) {
+          remaining.add(configurations.get(j).getParameters());
+        }
+      }
+    }
+    return configurations;
+  }
+
+  /**
+   * Search the space using Hyperband, i.e., successive halving with different trade-offs between
+   * the number of configurations and the budget of the first round. The configurations are sampled
+   * from the search space.
+   *
+   * @param space the search space
+   * @param minFraction the smallest fraction of the budget
+   * @param eta the reduction factor
+   * @param random the random number generator used to sample configurations
+   * @param x the input
+   * @param y the output
+   * @return the configurations evaluated using the full budget, with the best configuration first
+   */
+  public List<Configuration<Out>> hyperband(SearchSpace space, double minFraction, int eta,
+      Random random, Input<In> x, List<Out> y) {
+    Check.argument(minFraction > 0 && minFraction <= 1, "illegal fraction");
+    Check.argument(eta > 1, "eta must be larger than 1");
+    int brackets = (int) Math.floor(Math.log(1 / minFraction) / Math.log(eta) + 1e-9);
+    List<Configuration<Out>> configurations = new ArrayList<>();
+    for (int s = brackets; s >= 0; s--) {
+      int n = (int) Math.ceil((brackets + 1.0) / (s + 1) * Math.pow(eta, s));
+      configurations.addAll(
+          successiveHalving(space.sample(n, random), Math.pow(eta, -s), eta, x, y));
+    }
+    configurations.sort(Comparator.comparingDouble(Configuration<Out>::getScore).reversed());
+    return configurations;
+  }
+
+  /**
+   * Evaluate the configurations in parallel (and return them in the given order).
+   */
+  private List<Configuration<Out>> evaluate(List<Properties> candidates, double fraction,
+      Input<In> x, List<Out> y) {
+    int[] sample = budget.sample(x.size(), fraction);
+    Input<In> xSample = x;
+    List<Out> ySample = y;
+    if (sample != null) {
+      xSample = Inputs.view(x, sample);
+      ySample = new ArrayList<>(sample.length);
+      for (int index : sample) {
+        ySample.add(y.get(index));
+      }
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, candidates.size()));
+    try {
+      List<ForkJoinTask<Configuration<Out>>> tasks = new ArrayList<>(candidates.size());
+      for (Properties candidate : candidates) {
+        Input<In> xs = xSample;
+        List<Out> ys = ySample;
+        tasks.add(pool.submit(() -> evaluate(candidate, fraction, xs, ys)));
+      }
+      List<Configuration<Out>> configurations = new ArrayList<>(candidates.size());
+      for (ForkJoinTask<Configuration<Out>> task : tasks) {
+        configurations.add(task.get());
+      }
+      return configurations;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private Configuration<Out> evaluate(Properties candidate, double fraction, Input<In> x,
+      List<Out> y) {
+    // The sink would receive the interleaved partitions of all configurations
+    Check.state(validator.getResultSink() == null, "the validator cannot have a result sink");
+    Properties parameters = budget.apply(candidate, fraction);
+    Result<Out> result = validator.test(learner.apply(parameters), x, y);
+    return new Configuration<>(candidate, fraction, result, objective.applyAsDouble(result));
+  }
+}
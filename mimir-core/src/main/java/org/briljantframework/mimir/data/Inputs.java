@@ -54,6 +54,60 @@ public final class Inputs {
     return new UnmodifiableInput<>(input);
   }
 
+  /**
+   * Returns an unmodifiable view of the elements at the given indexes of the input, i.e., the
+   * {@code i}:th element of the view is {@code input.get(indexes[i])}. The elements are neither
+   * copied nor revalidated against the schema. Views of views are collapsed to a single view of the
+   * original input.
+   *
+   * <p>
+   * The index array is not copied and must not be modified.
+   *
+   * @param input the input
+   * @param indexes the indexes
+   * @return an unmodifiable view of the given indexes
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Input<T> view(Input<? extends T> input, int[] indexes) {
+    if (input instanceof UnmodifiableInput) {
+      input = ((UnmodifiableInput<? extends T>) input).c;
+    }
+    if (input instanceof IndexInput) {
+      IndexInput<? extends T> view = (IndexInput<? extends T>) input;
+      int[] composed = new int[indexes.length];
+      for (int i = 0; i < indexes.length; i++) {
+        composed[i] = view.indexes[indexes[i]];
+      }
+      return new IndexInput<>(view.input, composed);
+    }
+    return new IndexInput<>(input, indexes);
+  }
+
+  private static class IndexInput<E> extends Input<E> {
+    private final Input<? extends E> input;
+    private final int[] indexes;
+
+    IndexInput(Input<? extends E> input, int[] indexes) {
+      this.input = input;
+      this.indexes = indexes;
+    }
+
+    @Override
+    public E get(int index) {
+      return input.get(indexes[index]);
+    }
+
+    @Override
+    public int size() {
+      return indexes.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Schema<E> getSchema() {
+      return (Schema<E>) input.getSchema();
+    }
+  }
 
   private static class UnmodifiableInput<E> extends Input<E> {
     private final Input<? extends E> c;
@@ -56,4 +56,18 @@ public interface Distance<T> {
    * @return the distance
    */
   double compute(T a, T b);
+
+  /**
+   * Compute the distance between two points, allowing the computation to be abandoned as soon as
+   * the distance is known to be larger than {@code cutoff}. If abandoned, the returned value is
+   * larger than {@code cutoff} (but not necessarily the distance).
+   *
+   * @param a a vector
+   * @param b a vector
+   * @param cutoff the largest distance of interest
+   * @return the distance or a value larger than {@code cutoff}
+   */
+  default double compute(T a, T b, double cutoff) {
+    return compute(a, b);
+  }
 }
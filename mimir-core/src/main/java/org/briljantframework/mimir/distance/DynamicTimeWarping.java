@@ -58,6 +58,15 @@ public class DynamicTimeWarping implements Distance<Series> {
 
   @Override
   public double compute(Series a, Series b) {
+    return compute(a, b, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Since the cost of a warping path never decreases, the computation is abandoned when every
+   * cell of a row exceeds {@code cutoff}.
+   */
+  @Override
+  public double compute(Series a, Series b, double cutoff) {
     int n = a.size(), m = b.size();
     DoubleArray dtw = DoubleArray.zeros(n, m);
     dtw.assign(Double.POSITIVE_INFINITY);
@@ -67,10 +76,18 @@ public class DynamicTimeWarping implements Distance<Series> {
     for (int i = 1; i < n; i++) {
       int end = constraint <= -1 ? m : Math.min(m, i + width);
       int start = constraint <= -1 ? 1 : Math.max(1, i - width);
+      double rowMin = Double.POSITIVE_INFINITY;
       for (int j = start; j < end; j++) {
         double cost = compute(a.values().getDouble(i), b.values().getDouble(j));
-        dtw.set(i, j,
-            cost + Math.min(dtw.get(i - 1, j), Math.min(dtw.get(i, j - 1), dtw.get(i - 1, j - 1))));
+        double value =
+            cost + Math.min(dtw.get(i - 1, j), Math.min(dtw.get(i, j - 1), dtw.get(i - 1, j - 1)));
+        dtw.set(i, j, value);
+        if (value < rowMin) {
+          rowMin = value;
+        }
+      }
+      if (rowMin > cutoff) {
+        return Double.POSITIVE_INFINITY;
       }
     }
 
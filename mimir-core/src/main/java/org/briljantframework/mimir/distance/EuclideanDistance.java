@@ -60,6 +60,21 @@ public class EuclideanDistance implements Distance<DoubleVector> {
     return Math.sqrt(residual);
   }
 
+  @Override
+  public double compute(DoubleVector a, DoubleVector b, double cutoff) {
+    int size = Math.min(a.size(), b.size());
+    double limit = cutoff * cutoff;
+    double residual = 0.0;
+    for (int i = 0; i < size; i++) {
+      residual += compute(a.getDouble(i), b.getDouble(i));
+      if (residual > limit) {
+        return Double.POSITIVE_INFINITY;
+      }
+    }
+
+    return Math.sqrt(residual);
+  }
+
   @Override
   public String toString() {
     return "EuclideanDistance";
@@ -47,6 +47,19 @@ public class ManhattanDistance implements Distance<Series> {
     return distance;
   }
 
+  @Override
+  public double compute(Series a, Series b, double cutoff) {
+    int size = Math.min(a.size(), b.size());
+    double distance = 0.0;
+    for (int i = 0; i < size; i++) {
+      distance += Math.abs(a.values().getDouble(i) - b.values().getDouble(i));
+      if (distance > cutoff) {
+        return Double.POSITIVE_INFINITY;
+      }
+    }
+    return distance;
+  }
+
   @Override
   public String toString() {
     return "ManhattanDistance";
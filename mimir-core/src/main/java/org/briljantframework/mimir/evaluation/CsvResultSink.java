@@ -0,0 +1,205 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.briljantframework.Check;
+
+/**
+ * A result sink that appends the measures (and optionally the predictions) of each partition to
+ * CSV files. The measures are written in long format, i.e., with the columns
+ * {@code partition,measure,sample,index,value}, and the predictions with the columns
+ * {@code partition,index,actual,prediction}.
+ *
+ * <p>
+ * The files are written through a bounded buffer and synced to disk when a partition is
+ * completed. The number of completed partitions and the size of the files are recorded in a
+ * progress file (the measure file with the suffix {@code .progress}). If the progress file exists
+ * when the sink is created, the files are truncated to the last completed partition and the
+ * evaluation is resumed from there. If a file is shorter than recorded in the progress file, the
+ * file has been modified and the sink refuses to resume. Similarly, the sink refuses to overwrite
+ * a non-empty file that is not recorded in a progress file, e.g., the results of a previous
+ * evaluation whose progress file has been removed.
+ *
+ * @author Isak Karlsson
+ */
+public class CsvResultSink<Out> implements ResultSink<Out> {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String MEASURE_HEADER = "partition,measure,sample,index,value\n";
+  private static final String PREDICTION_HEADER = "partition,index,actual,prediction\n";
+
+  private final Path progress;
+  private final Output measures;
+  private final Output predictions;
+  private int completed;
+
+  /**
+   * Create a sink that writes the measures to the given file
+   *
+   * @param measures the measure file
+   * @throws IOException if the files cannot be opened
+   * @throws IllegalStateException if the progress file does not match the file or if the file is
+   *         not empty and not recorded in the progress file
+   */
+  public CsvResultSink(Path measures) throws IOException {
+    this(measures, null);
+  }
+
+  /**
+   * Create a sink that writes the measures and predictions to the given files
+   *
+   * @param measures the measure file
+   * @param predictions the prediction file (or {@code null} to not write the predictions)
+   * @throws IOException if the files cannot be opened
+   * @throws IllegalStateException if the progress file does not match the files or if a file is
+   *         not empty and not recorded in the progress file
+   */
+  public CsvResultSink(Path measures, Path predictions) throws IOException {
+    this.progress = measures.resolveSibling(measures.getFileName() + ".progress");
+    long measuresOffset = 0, predictionsOffset = 0;
+    if (Files.exists(progress)) {
+      String[] state = new String(Files.readAllBytes(progress), StandardCharsets.UTF_8).trim()
+          .split(" ");
+      Check.state(state.length == 3, "illegal progress file");
+      this.completed = Integer.parseInt(state[0]);
+      measuresOffset = Long.parseLong(state[1]);
+      predictionsOffset = Long.parseLong(state[2]);
+    }
+    this.measures = new Output(measures, measuresOffset, MEASURE_HEADER);
+    this.predictions =
+        predictions != null ? new Output(predictions, predictionsOffset, PREDICTION_HEADER) : null;
+    writeProgress();
+  }
+
+  @Override
+  public int getCompletedPartitions() {
+    return completed;
+  }
+
+  @Override
+  public void accept(int partition, MeasureCollection measures, List<? extends Out> actual,
+      List<? extends Out> predictions) throws IOException {
+    Check.state(partition == completed, "expected partition %s but got %s", completed, partition);
+    for (MeasureSample sample : MeasureSample.values()) {
+      for (String measure : measures.getMeasures(sample)) {
+        double[] values = measures.get(measure, sample);
+        for (int i = 0; i < values.length; i++) {
+          this.measures.write(partition + "," + escape(measure) + "," + sample + "," + i + ","
+              + values[i] + "\n");
+        }
+      }
+    }
+    if (this.predictions != null) {
+      for (int i = 0; i < predictions.size(); i++) {
+        this.predictions.write(partition + "," + i + "," + escape(actual.get(i)) + ","
+            + escape(predictions.get(i)) + "\n");
+      }
+      this.predictions.sync();
+    }
+    this.measures.sync();
+    completed = partition + 1;
+    writeProgress();
+  }
+
+  private void writeProgress() throws IOException {
+    String state = completed + " " + measures.offset + " "
+        + (predictions != null ? predictions.offset : 0) + "\n";
+    Path tmp = progress.resolveSibling(progress.getFileName() + ".tmp");
+    Files.write(tmp, state.getBytes(StandardCharsets.UTF_8));
+    Files.move(tmp, progress, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static String escape(Object value) {
+    String str = String.valueOf(value);
+    if (str.indexOf(',') >= 0 || str.indexOf('"') >= 0 || str.indexOf('\n') >= 0) {
+      return '"' + str.replace("\"", "\"\"") + '"';
+    }
+    return str;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      measures.close();
+    } finally {
+      if (predictions != null) {
+        predictions.close();
+      }
+    }
+  }
+
+  /**
+   * An append-only output that keeps track of the number of written bytes
+   */
+  private static final class Output {
+    private final FileOutputStream file;
+    private final BufferedOutputStream out;
+    private long offset;
+
+    private Output(Path path, long offset, String header) throws IOException {
+      long length = Files.exists(path) ? Files.size(path) : 0;
+      Check.state(offset <= length, "%s (%s bytes) is shorter than recorded in the progress file",
+          path, length);
+      Check.state(offset > 0 || length == 0,
+          "%s is not empty and not recorded in a progress file; refusing to overwrite it", path);
+
+      // Discard everything written after the last completed partition
+      try (FileChannel channel =
+          FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        channel.truncate(offset);
+      }
+      this.file = new FileOutputStream(path.toFile(), true);
+      this.out = new BufferedOutputStream(file, BUFFER_SIZE);
+      this.offset = offset;
+      if (offset == 0) {
+        write(header);
+        sync();
+      }
+    }
+
+    private void write(String line) throws IOException {
+      byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+      out.write(bytes);
+      offset += bytes.length;
+    }
+
+    private void sync() throws IOException {
+      out.flush();
+      file.getFD().sync();
+    }
+
+    private void close() throws IOException {
+      out.close();
+    }
+  }
+}
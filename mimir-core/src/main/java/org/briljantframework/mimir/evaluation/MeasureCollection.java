@@ -20,9 +20,17 @@
  */
 package org.briljantframework.mimir.evaluation;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.briljantframework.data.dataframe.DataFrame;
 import org.briljantframework.data.dataframe.DataFrames;
@@ -30,45 +38,256 @@ import org.briljantframework.data.series.DoubleSeries;
 import org.briljantframework.data.series.Series;
 
 /**
+ * A collection of measures, where each measure is a sequence of values.
+ *
+ * <p>
+ * Measures can be added concurrently from multiple threads without contention. Each thread appends
+ * to its own primitive buffer and every value is tagged with a sequence number, so that the values
+ * of a measure are merged in the order they were added when the measures are
+ * {@linkplain #toDataFrame() collected}.
+ *
  * @author Isak Karlsson <isak-kar@dsv.su.se>
  */
 public final class MeasureCollection {
 
-  private final Map<Key, Series.Builder> measures;
+  /**
+   * The suffix of the name of in-sample measures in the {@linkplain #toDataFrame() data frame}
+   */
+  public static final String IN_SAMPLE_SUFFIX = "InSample";
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * The buffer of each thread (by thread id) that has added measures to this collection. The
+   * buffers are owned by the collection (rather than by the threads), so they are released with
+   * the collection.
+   */
+  private final ConcurrentMap<Long, Buffer> buffers = new ConcurrentHashMap<>();
 
+  /**
+   * Create a new measure collection with the measures of the given collection
+   *
+   * @param collection the measure collection
+   */
   public MeasureCollection(MeasureCollection collection) {
-    this.measures = new HashMap<>(collection.measures);
+    addAll(collection);
   }
 
-  public MeasureCollection() {
-    this.measures = new HashMap<>();
+  public MeasureCollection() {}
+
+  /**
+   * Add all values of the given collection (in the order they were added to the collection)
+   *
+   * @param collection the measure collection
+   */
+  public void addAll(MeasureCollection collection) {
+    List<Entry> entries = new ArrayList<>();
+    for (Buffer buffer : collection.buffers.values()) {
+      buffer.entries(entries);
+    }
+    entries.sort(Comparator.comparingLong(e -> e.sequence));
+    Buffer buffer = buffer();
+    for (Entry entry : entries) {
+      buffer.add(entry.key, sequence.getAndIncrement(), entry.value);
+    }
   }
 
-  public synchronized void add(String measure, double value) {
+  /**
+   * Returns the names of the measures of the given sample (in the order they were first added)
+   *
+   * @param sample the sample
+   * @return the names of the measures
+   */
+  public Set<String> getMeasures(MeasureSample sample) {
+    Set<String> measures = new LinkedHashSet<>();
+    for (Key key : keys()) {
+      if (key.sample == sample) {
+        measures.add(key.measure);
+      }
+    }
+    return measures;
+  }
+
+  public void add(String measure, double value) {
     add(measure, MeasureSample.OUT_SAMPLE, value);
   }
 
-  public synchronized void add(String measure, MeasureSample sample, double value) {
-    measures.computeIfAbsent(new Key(measure, sample), (a) -> new DoubleSeries.Builder())
-        .add(value);
+  public void add(String measure, MeasureSample sample, double value) {
+    buffer().add(new Key(measure, sample), sequence.getAndIncrement(), value);
   }
 
-  public synchronized DataFrame toDataFrame() {
+  private Buffer buffer() {
+    Long thread = Thread.currentThread().getId();
+    Buffer buffer = buffers.get(thread);
+    if (buffer == null) {
+      buffer = buffers.computeIfAbsent(thread, t -> new Buffer());
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns the keys of all measures in the order they were first added
+   */
+  private List<Key> keys() {
+    Map<Key, Long> first = new HashMap<>();
+    for (Buffer buffer : buffers.values()) {
+      buffer.keys(first);
+    }
+    List<Key> keys = new ArrayList<>(first.keySet());
+    keys.sort(Comparator.comparingLong(first::get));
+    return keys;
+  }
+
+  /**
+   * Returns the (out-of-sample) values of the given measure in the order they were added
+   *
+   * @param measure the measure
+   * @return the values
+   */
+  public double[] get(String measure) {
+    return get(measure, MeasureSample.OUT_SAMPLE);
+  }
+
+  /**
+   * Returns the values of the given measure in the order they were added
+   *
+   * @param measure the measure
+   * @param sample the sample
+   * @return the values
+   */
+  public double[] get(String measure, MeasureSample sample) {
+    return merge(new Key(measure, sample));
+  }
+
+  /**
+   * Returns the measures as a data frame with one column per measure. In-sample measures are
+   * suffixed with {@value #IN_SAMPLE_SUFFIX}.
+   *
+   * @return a data frame
+   */
+  public DataFrame toDataFrame() {
     DataFrame.Builder df = DataFrame.newBuilder();
-    for (Map.Entry<Key, Series.Builder> entry : measures.entrySet()) {
-      if (entry.getKey().sample == MeasureSample.IN_SAMPLE) {
-        continue;
-      }
-      // TODO: don't ignore in sample measures
+    for (Key key : keys()) {
       // TODO: ensure that all measures are of the same length
-      // TODO: measures with both in-sample and out-sample will be overwritten
-      df.setColumn(entry.getKey().measure, entry.getValue());
+      Series.Builder column = new DoubleSeries.Builder();
+      for (double value : merge(key)) {
+        column.add(value);
+      }
+      String name = key.sample == MeasureSample.IN_SAMPLE ? key.measure + IN_SAMPLE_SUFFIX
+          : key.measure;
+      df.setColumn(name, column);
     }
     return DataFrames.sortColumns(df.build(), Comparator.comparing(Object::toString));
   }
 
-  private final static class Key {
+  /**
+   * Merge the values of the given key from all buffers in sequence order
+   */
+  private double[] merge(Key key) {
+    List<Column> columns = new ArrayList<>();
+    int size = 0;
+    for (Buffer buffer : buffers.values()) {
+      Column column = buffer.snapshot(key);
+      if (column != null) {
+        columns.add(column);
+        size += column.size;
+      }
+    }
+    double[] values = new double[size];
+    int[] position = new int[columns.size()];
+    for (int i = 0; i < size; i++) {
+      int next = -1;
+      for (int j = 0; j < columns.size(); j++) {
+        Column column = columns.get(j);
+        if (position[j] < column.size && (next < 0
+            || column.sequence[position[j]] < columns.get(next).sequence[position[next]])) {
+          next = j;
+        }
+      }
+      values[i] = columns.get(next).values[position[next]++];
+    }
+    return values;
+  }
+
+  /**
+   * A buffer of measures added by a single thread. The buffer is only locked by the owning thread,
+   * except when the measures are merged.
+   */
+  private static final class Buffer {
+    private final Map<Key, Column> columns = new HashMap<>();
 
+    private synchronized void add(Key key, long sequence, double value) {
+      Column column = columns.get(key);
+      if (column == null) {
+        column = new Column();
+        columns.put(key, column);
+      }
+      column.add(sequence, value);
+    }
+
+    private synchronized Column snapshot(Key key) {
+      Column column = columns.get(key);
+      return column != null ? column.copy() : null;
+    }
+
+    private synchronized void keys(Map<Key, Long> first) {
+      for (Map.Entry<Key, Column> e : columns.entrySet()) {
+        first.merge(e.getKey(), e.getValue().sequence[0], Math::min);
+      }
+    }
+
+    private synchronized void entries(List<Entry> entries) {
+      for (Map.Entry<Key, Column> e : columns.entrySet()) {
+        Column column = e.getValue();
+        for (int i = 0; i < column.size; i++) {
+          entries.add(new Entry(e.getKey(), column.sequence[i], column.values[i]));
+        }
+      }
+    }
+  }
+
+  private static final class Column {
+    private long[] sequence;
+    private double[] values;
+    private int size;
+
+    private Column() {
+      this(new long[8], new double[8], 0);
+    }
+
+    private Column(long[] sequence, double[] values, int size) {
+      this.sequence = sequence;
+      this.values = values;
+      this.size = size;
+    }
+
+    private void add(long seq, double value) {
+      if (size == values.length) {
+        sequence = Arrays.copyOf(sequence, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      sequence[size] = seq;
+      values[size++] = value;
+    }
+
+    private Column copy() {
+      return new Column(Arrays.copyOf(sequence, size), Arrays.copyOf(values, size), size);
+    }
+  }
+
+  private static final class Entry {
+    private final Key key;
+    private final long sequence;
+    private final double value;
+
+    private Entry(Key key, long sequence, double value) {
+      this.key = key;
+      this.sequence = sequence;
+      this.value = value;
+    }
+  }
+
+  private static final class Key {
     private final String measure;
     private final MeasureSample sample;
 
@@ -82,20 +301,16 @@ public final class MeasureCollection {
       if (this == o) {
         return true;
       }
-      if (o == null || getClass() != o.getClass()) {
+      if (!(o instanceof Key)) {
         return false;
       }
       Key key = (Key) o;
-      return !(measure != null ? !measure.equals(key.measure) : key.measure != null)
-          && sample == key.sample;
-
+      return sample == key.sample && measure.equals(key.measure);
     }
 
     @Override
     public int hashCode() {
-      int result = measure != null ? measure.hashCode() : 0;
-      result = 31 * result + (sample != null ? sample.hashCode() : 0);
-      return result;
+      return 31 * measure.hashCode() + sample.hashCode();
     }
   }
 }
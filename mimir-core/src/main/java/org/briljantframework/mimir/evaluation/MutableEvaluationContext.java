@@ -32,14 +32,26 @@ import org.briljantframework.mimir.supervised.Predictor;
  */
 public class MutableEvaluationContext<In, Out> implements EvaluationContext<In, Out> {
 
-  private final ImmutableEvaluationContext evaluationContext = new ImmutableEvaluationContext();
+  private final ImmutableEvaluationContext evaluationContext;
 
   private List<Out> predictions;
   private Predictor<In, Out> predictor;
   private Partition<In, Out> partition;
   private DoubleArray estimates;
 
-  public MutableEvaluationContext() {}
+  public MutableEvaluationContext() {
+    this(new MeasureCollection());
+  }
+
+  /**
+   * Create a new evaluation context which adds measures to the given measure collection
+   *
+   * @param measureCollection the measure collection
+   */
+  public MutableEvaluationContext(MeasureCollection measureCollection) {
+    this.evaluationContext = new ImmutableEvaluationContext(
+        Objects.requireNonNull(measureCollection, "requires a measure collection"));
+  }
 
   public void setPartition(Partition<In, Out> partition) {
     this.partition = Objects.requireNonNull(partition, "requires a partition");
@@ -102,7 +114,11 @@ public class MutableEvaluationContext<In, Out> implements EvaluationContext<In,
 
   private class ImmutableEvaluationContext implements EvaluationContext<In, Out> {
 
-    private final MeasureCollection measureCollection = new MeasureCollection();
+    private final MeasureCollection measureCollection;
+
+    private ImmutableEvaluationContext(MeasureCollection measureCollection) {
+      this.measureCollection = measureCollection;
+    }
 
     @Override
     public Partition<In, Out> getPartition() {
@@ -0,0 +1,61 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A result sink receives the measures (and predictions) of each partition as soon as the partition
+ * is evaluated, e.g., to stream the results of long-running evaluations to disk. If a
+ * {@link Validator} is given a result sink, the measures and predictions are written to the sink
+ * instead of the returned {@link Result}, and each partition is released once it has been
+ * written.
+ *
+ * <p>
+ * A sink can resume an interrupted evaluation by reporting the number of completed partitions, in
+ * which case the validator skips the completed partitions. Note that resuming requires that the
+ * partitioner produces the same partitions, e.g., by using a seeded random number generator.
+ *
+ * @author Isak Karlsson
+ */
+public interface ResultSink<Out> extends Closeable {
+
+  /**
+   * Returns the number of partitions already completed (i.e., the partitions to skip)
+   *
+   * @return the number of completed partitions
+   */
+  int getCompletedPartitions();
+
+  /**
+   * Accept the result of a partition
+   *
+   * @param partition the index of the partition
+   * @param measures the measures of the partition
+   * @param actual the actual outputs of the validation examples
+   * @param predictions the predicted outputs of the validation examples
+   * @throws IOException if the result cannot be written
+   */
+  void accept(int partition, MeasureCollection measures, List<? extends Out> actual,
+      List<? extends Out> predictions) throws IOException;
+}
@@ -20,8 +20,15 @@
  */
 package org.briljantframework.mimir.evaluation;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import org.briljantframework.Check;
+import org.briljantframework.mimir.TraceEvent;
 import org.briljantframework.mimir.classification.Classifier;
 import org.briljantframework.mimir.data.Input;
 import org.briljantframework.mimir.evaluation.partition.FoldPartitioner;
@@ -72,6 +79,8 @@ public abstract class Validator<In, Out, P extends Predictor<In, Out>> {
 
   private final Set<Evaluator<In, Out>> evaluators;
   private final Partitioner<In, Out> partitioner;
+  private int parallelism = 1;
+  private ResultSink<Out> sink = null;
 
   public Validator(Set<? extends Evaluator<In, Out>> evaluators, Partitioner<In, Out> partitioner) {
     this.evaluators = new HashSet<>(evaluators);
@@ -82,56 +91,207 @@ public abstract class Validator<In, Out, P extends Predictor<In, Out>> {
     this(Collections.emptySet(), partitioner);
   }
 
+  /**
+   * Set the number of partitions that are fitted and evaluated concurrently. If larger than
+   * {@code 1}, the predictors are fitted and the predictions are made in a dedicated fork-join
+   * pool, while the measures are computed in partition order. Parallel streams used by the
+   * learners and predictors are executed in the same pool. By default, the partitions are
+   * evaluated sequentially.
+   *
+   * @param parallelism the number of concurrently evaluated partitions
+   */
+  public final void setParallelism(int parallelism) {
+    Check.argument(parallelism > 0, "parallelism must be positive");
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * @return the number of concurrently evaluated partitions
+   */
+  public final int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Set the sink to which the measures and predictions of each partition are written as soon as
+   * the partition is evaluated. If a sink is set, neither the measures nor the predictions are
+   * retained in the {@link Result} (which only reports the mean sizes and times of the partitions
+   * evaluated by the current call) and the partitions already completed by the sink are skipped,
+   * i.e., an interrupted evaluation is resumed (given that the partitioner is deterministic).
+   *
+   * <p>
+   * Each evaluated partition is released once it has been written to the sink, so at most
+   * {@linkplain #getParallelism() parallelism} partitions (with their predictors and predictions)
+   * are kept in memory at once.
+   *
+   * @param sink the result sink (or {@code null} to retain the results in memory)
+   */
+  public final void setResultSink(ResultSink<Out> sink) {
+    this.sink = sink;
+  }
+
+  /**
+   * @return the result sink or {@code null}
+   */
+  public final ResultSink<Out> getResultSink() {
+    return sink;
+  }
+
   /**
    * Evaluate {@code classifier} using the given data
    *
    * @param learner classifier to use for classification
    * @param x the data frame to use during evaluation
    * @param y the target to used during evaluation
-   * @return a result
+   * @return a result (without measures and predictions if a {@linkplain #setResultSink(ResultSink)
+   *         result sink} is set)
    */
   public Result<Out> test(Predictor.Learner<In, Out, ? extends P> learner, Input<In> x,
       List<Out> y) {
     Collection<Partition<In, Out>> partitions = getPartitioner().partition(x, y);
-    MutableEvaluationContext<In, Out> ctx = new MutableEvaluationContext<>();
+    MeasureCollection measureCollection = new MeasureCollection();
     List<Out> actual = new ArrayList<>();
     List<Out> predictions = new ArrayList<>();
     double avgFitTime = 0, avgPredictTime = 0, avgTrainingSize = 0, avgValidationSize = 0;
-    double noPartition = partitions.size();
-    int iteration = 0;
-    for (Partition<In, Out> partition : partitions) {
-      Input<In> trainingData = partition.getTrainingData();
-      List<Out> trainingTarget = partition.getTrainingTarget();
-      Input<In> validationData = partition.getValidationData();
-      List<Out> validationTarget = partition.getValidationTarget();
-      ctx.setPartition(partition);
-
-      // Step 1: Fit the classifier using the training data
-      long start = preFit();
-      P predictor = fit(learner, trainingData, trainingTarget);
-      ctx.setPredictor(predictor);
-      double fitTime = postFit(start);
-
-      // Step 3: Make predictions on the validation data
-      start = prePredict();
-      predict(ctx);
-      double predictTime = postPredict(start);
-
-      // Step 4: Compute the given measures
-      EvaluationContext<In, Out> evaluationContext = ctx.getEvaluationContext();
-      evaluate(evaluationContext, iteration++);
-
-      actual.addAll(validationTarget);
-      predictions.addAll(evaluationContext.getPredictions());
-
-      avgFitTime += fitTime / noPartition;
-      avgPredictTime += predictTime / noPartition;
-      avgTrainingSize += trainingData.size() / noPartition;
-      avgValidationSize += validationData.size() / noPartition;
+
+    // Skip the partitions already written to the sink
+    int iteration = sink != null ? sink.getCompletedPartitions() : 0;
+    Check.state(iteration <= partitions.size(), "sink has more partitions than the partitioner");
+    Iterator<Partition<In, Out>> remaining = partitions.iterator();
+    for (int i = 0; i < iteration; i++) {
+      remaining.next();
     }
+    int size = partitions.size() - iteration;
+    double noPartition = size;
+    Iterator<Fold> folds = parallelism > 1 && size > 1 ? parallelFolds(learner, remaining, size)
+        : sequentialFolds(learner, remaining);
+    while (folds.hasNext()) {
+      Fold fold = folds.next();
+      Partition<In, Out> partition = fold.ctx.getPartition();
 
-    return new Result<>(ctx.getEvaluationContext().getMeasureCollection(), actual, predictions,
-        avgTrainingSize, avgValidationSize, avgFitTime, avgPredictTime);
+      // Step 4: Compute the given measures (in partition order)
+      EvaluationContext<In, Out> evaluationContext = fold.ctx.getEvaluationContext();
+      MeasureCollection foldMeasures = evaluationContext.getMeasureCollection();
+      evaluate(evaluationContext, iteration);
+
+      if (sink != null) {
+        try {
+          sink.accept(iteration, foldMeasures, partition.getValidationTarget(),
+              evaluationContext.getPredictions());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      } else {
+        measureCollection.addAll(foldMeasures);
+        actual.addAll(partition.getValidationTarget());
+        predictions.addAll(evaluationContext.getPredictions());
+      }
+      iteration++;
+
+      avgFitTime += fold.fitTime / noPartition;
+      avgPredictTime += fold.predictTime / noPartition;
+      avgTrainingSize += partition.getTrainingData().size() / noPartition;
+      avgValidationSize += partition.getValidationData().size() / noPartition;
+    }
+
+    return new Result<>(measureCollection, actual, predictions, avgTrainingSize,
+        avgValidationSize, avgFitTime, avgPredictTime);
+  }
+
+  /**
+   * Fit and predict each partition when requested, i.e., one partition at a time.
+   */
+  private Iterator<Fold> sequentialFolds(Predictor.Learner<In, Out, ? extends P> learner,
+      Iterator<Partition<In, Out>> it) {
+    return new Iterator<Fold>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public Fold next() {
+        return fitAndPredict(learner, it.next());
+      }
+    };
+  }
+
+  /**
+   * Fit and predict the partitions concurrently and return the folds in partition order as they
+   * are completed. At most {@code parallelism} partitions are in flight at once, and a new
+   * partition is submitted only when a completed fold has been consumed, so the folds waiting to be
+   * consumed are bounded by the parallelism rather than by the number of partitions.
+   *
+   * <p>
+   * Since the window only advances when the fold at its head is consumed, a slow fold keeps the
+   * workers that have completed the folds behind it idle until it is done. This trades some
+   * throughput for the bound on the number of fitted (but unconsumed) predictors.
+   */
+  private Iterator<Fold> parallelFolds(Predictor.Learner<In, Out, ? extends P> learner,
+      Iterator<Partition<In, Out>> partitions, int size) {
+    ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, size));
+    Deque<ForkJoinTask<Fold>> tasks = new ArrayDeque<>(parallelism);
+    return new Iterator<Fold>() {
+      {
+        submit();
+      }
+
+      private void submit() {
+        // Refill the window up to the bound (see above for why a slow head fold stalls it)
+        while (tasks.size() < parallelism && partitions.hasNext()) {
+          Partition<In, Out> partition = partitions.next();
+          tasks.addLast(pool.submit(() -> fitAndPredict(learner, partition)));
+        }
+        if (!partitions.hasNext()) {
+          pool.shutdown();
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return !tasks.isEmpty();
+      }
+
+      @Override
+      public Fold next() {
+        if (tasks.isEmpty()) {
+          throw new NoSuchElementException();
+        }
+        try {
+          Fold fold = tasks.pollFirst().get();
+          submit();
+          return fold;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          pool.shutdownNow();
+          throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+          pool.shutdownNow();
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    };
+  }
+
+  private Fold fitAndPredict(Predictor.Learner<In, Out, ? extends P> learner,
+      Partition<In, Out> partition) {
+    // Each partition has its own measures which are merged in partition order
+    MutableEvaluationContext<In, Out> ctx = new MutableEvaluationContext<>();
+    ctx.setPartition(partition);
+    TraceEvent event = TraceEvent.begin(TraceEvent.Kind.FOLD, learner.getClass().getName());
+
+    // Step 1: Fit the classifier using the training data
+    long start = preFit();
+    P predictor = fit(learner, partition.getTrainingData(), partition.getTrainingTarget());
+    ctx.setPredictor(predictor);
+    double fitTime = postFit(start);
+
+    // Step 3: Make predictions on the validation data
+    start = prePredict();
+    predict(ctx);
+    double predictTime = postPredict(start);
+    event.input(partition.getTrainingData()).commit();
+    return new Fold(ctx, fitTime, predictTime);
   }
 
   protected double postPredict(long start) {
@@ -231,4 +391,15 @@ public abstract class Validator<In, Out, P extends Predictor<In, Out>> {
   public final Partitioner<In, Out> getPartitioner() {
     return partitioner;
   }
+
+  private final class Fold {
+    private final MutableEvaluationContext<In, Out> ctx;
+    private final double fitTime, predictTime;
+
+    private Fold(MutableEvaluationContext<In, Out> ctx, double fitTime, double predictTime) {
+      this.ctx = ctx;
+      this.fitTime = fitTime;
+      this.predictTime = predictTime;
+    }
+  }
 }
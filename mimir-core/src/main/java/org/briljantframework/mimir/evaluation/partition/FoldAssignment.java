@@ -0,0 +1,96 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation.partition;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.briljantframework.mimir.data.Input;
+
+/**
+ * Partitions given by an assignment of each example to a fold.
+ *
+ * @author Isak Karlsson
+ */
+final class FoldAssignment {
+
+  private FoldAssignment() {}
+
+  /**
+   * Returns an iterator over the partitions, where the {@code i}:th partition use the examples
+   * assigned to the {@code i}:th fold as validation examples and all other examples as training
+   * examples.
+   *
+   * @param x the input
+   * @param y the output
+   * @param assignment the fold of each example
+   * @param folds the number of folds
+   * @return an iterator over the partitions
+   */
+  static <In, Out> Iterator<Partition<In, Out>> iterator(Input<In> x, List<Out> y,
+      int[] assignment, int folds) {
+    int[] foldSize = new int[folds];
+    for (int fold : assignment) {
+      foldSize[fold]++;
+    }
+    return new Iterator<Partition<In, Out>>() {
+      private int current = 0;
+
+      @Override
+      public boolean hasNext() {
+        return current < folds;
+      }
+
+      @Override
+      public Partition<In, Out> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int[] validation = new int[foldSize[current]];
+        int[] training = new int[assignment.length - validation.length];
+        int v = 0, t = 0;
+        for (int i = 0; i < assignment.length; i++) {
+          if (assignment[i] == current) {
+            validation[v++] = i;
+          } else {
+            training[t++] = i;
+          }
+        }
+        current++;
+        return Partition.of(x, y, training, validation);
+      }
+    };
+  }
+
+  /**
+   * Shuffle the given array in place
+   */
+  static void shuffle(int[] array, int from, int to, Random random) {
+    for (int i = to - 1; i > from; i--) {
+      int j = from + random.nextInt(i - from + 1);
+      int tmp = array[i];
+      array[i] = array[j];
+      array[j] = tmp;
+    }
+  }
+}
@@ -29,7 +29,6 @@ import org.briljantframework.array.Range;
 import org.briljantframework.data.dataframe.DataFrame;
 import org.briljantframework.mimir.classification.ClassifierValidator;
 import org.briljantframework.mimir.data.Input;
-import org.briljantframework.mimir.data.Inputs;
 
 /**
  * Lazy iterator that partitions the supplied {@linkplain DataFrame data frame} and {@code Vector
@@ -103,7 +102,7 @@ public class FoldIterator<In, Out> implements Iterator<Partition<In, Out>> {
   private final int reminder;
 
   private int current = 0;
-  private IntArray order;
+  private final int[] order;
 
   public FoldIterator(Input<In> x, List<Out> y, int folds) {
     this(x, y, folds, false);
@@ -119,10 +118,10 @@ public class FoldIterator<In, Out> implements Iterator<Partition<In, Out>> {
     this.folds = folds;
     this.foldSize = rows / folds;
     this.reminder = rows % folds;
-    if (random) {
-      order = Arrays.shuffle(Range.of(x.size()));
-    } else {
-      order = Range.of(x.size());
+    IntArray order = random ? Arrays.shuffle(Range.of(x.size())) : Range.of(x.size());
+    this.order = new int[rows];
+    for (int i = 0; i < rows; i++) {
+      this.order[i] = order.get(i);
     }
   }
 
@@ -138,13 +137,6 @@ public class FoldIterator<In, Out> implements Iterator<Partition<In, Out>> {
     }
 
     current += 1;
-    Input<In> xTraining = x.getSchema().newInput();
-    List<Out> yTraining = new ArrayList<>();
-
-    Input<In> xValidation = x.getSchema().newInput();
-    List<Out> yValidation = new ArrayList<>();
-
-    int index = 0;
     int foldEnd = rows - foldSize * current;
 
     // Account for the case when rows % folds != 0
@@ -155,36 +147,16 @@ public class FoldIterator<In, Out> implements Iterator<Partition<In, Out>> {
       pad = 1;
     }
 
-    // Part 1: this is a training part add the first
-    // foldSize * current examples as training examples
+    // Part 1 and 3 are training parts and part 2 is
+    // the validation part, i.e., [0, trainingEnd)
+    // and [validationEnd, rows) are training examples
     int trainingEnd = foldEnd - pad;
-    for (int i = 0; i < trainingEnd; i++) {
-      int ind = order.get(index);
-      xTraining.add(x.get(ind));
-      yTraining.add(y.get(ind));
-      index += 1;
-    }
-
-    // Part 2: this is a validation part. Add the second
-    // next foldSize * current examples until validation end
     int validationEnd = foldEnd + foldSize;
-    for (int i = trainingEnd; i < validationEnd; i++) {
-      int ind = order.get(index);
-      xValidation.add(x.get(ind));
-      yValidation.add(y.get(ind));
-      index += 1;
-    }
-
-    // Part 3: this is a training part
-    for (int i = validationEnd; i < rows; i++) {
-      int ind = order.get(index);
-      xTraining.add(x.get(ind));
-      yTraining.add(y.get(ind));
-      index += 1;
-    }
-
-    return new Partition<>(Inputs.unmodifiableInput(xTraining),
-        Inputs.unmodifiableInput(xValidation), Collections.unmodifiableList(yTraining),
-        Collections.unmodifiableList(yValidation));
+    int[] training = new int[rows - (validationEnd - trainingEnd)];
+    int[] validation = new int[validationEnd - trainingEnd];
+    System.arraycopy(order, 0, training, 0, trainingEnd);
+    System.arraycopy(order, trainingEnd, validation, 0, validation.length);
+    System.arraycopy(order, validationEnd, training, trainingEnd, rows - validationEnd);
+    return Partition.of(x, y, training, validation);
   }
 }
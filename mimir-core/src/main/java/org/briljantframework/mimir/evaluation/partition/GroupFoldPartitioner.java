@@ -0,0 +1,145 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation.partition;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.briljantframework.Check;
+import org.briljantframework.mimir.data.Input;
+
+/**
+ * Partitions the data into {@code k} folds such that all examples of a group (e.g., all
+ * measurements of the same patient) are in the same fold, i.e., no group is in both the training
+ * and validation partition.
+ *
+ * <p>
+ * The groups are assigned, from the largest to the smallest, to the fold with the fewest examples
+ * so that the folds are of (approximately) equal size. If shuffled, groups of equal size are
+ * assigned in random order.
+ *
+ * @author Isak Karlsson
+ */
+public class GroupFoldPartitioner<In, Out> implements Partitioner<In, Out> {
+
+  private final int folds;
+  private final Function<? super In, ?> group;
+  private final Random random;
+
+  public GroupFoldPartitioner(int folds, Function<? super In, ?> group) {
+    this(folds, group, false);
+  }
+
+  public GroupFoldPartitioner(int folds, Function<? super In, ?> group, boolean shuffle) {
+    this(folds, group, shuffle ? new Random() : null);
+  }
+
+  /**
+   * @param folds the number of folds
+   * @param group the function returning the group key of an example
+   * @param random the random number generator used to shuffle the groups (or {@code null} to not
+   *        shuffle)
+   */
+  public GroupFoldPartitioner(int folds, Function<? super In, ?> group, Random random) {
+    Check.argument(folds > 1, "Invalid fold count.");
+    this.folds = folds;
+    this.group = Objects.requireNonNull(group, "requires a group function");
+    this.random = random;
+  }
+
+  @Override
+  public Collection<Partition<In, Out>> partition(Input<In> x, List<Out> y) {
+    Check.dimension(x.size(), y.size());
+    int n = x.size();
+    Map<Object, Integer> codes = new HashMap<>();
+    int[] code = new int[n];
+    for (int i = 0; i < n; i++) {
+      code[i] = codes.computeIfAbsent(group.apply(x.get(i)), key -> codes.size());
+    }
+    Check.argument(folds <= codes.size(), "The number of groups must be at least the fold count.");
+    int[] groupSize = new int[codes.size()];
+    for (int c : code) {
+      groupSize[c]++;
+    }
+
+    return new AbstractCollection<Partition<In, Out>>() {
+      @Override
+      public Iterator<Partition<In, Out>> iterator() {
+        int[] groupFold = assign(groupSize);
+        int[] assignment = new int[n];
+        for (int i = 0; i < n; i++) {
+          assignment[i] = groupFold[code[i]];
+        }
+        return FoldAssignment.iterator(x, y, assignment, folds);
+      }
+
+      @Override
+      public int size() {
+        return folds;
+      }
+    };
+  }
+
+  private int[] assign(int[] groupSize) {
+    int groups = groupSize.length;
+    Integer[] order = new Integer[groups];
+    for (int i = 0; i < groups; i++) {
+      order[i] = i;
+    }
+    if (random != null) {
+      for (int i = groups - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        Integer tmp = order[i];
+        order[i] = order[j];
+        order[j] = tmp;
+      }
+    }
+    // stable, i.e., groups of equal size keep the (shuffled) order
+    Arrays.sort(order, (a, b) -> Integer.compare(groupSize[b], groupSize[a]));
+
+    int[] foldSize = new int[folds];
+    int[] groupFold = new int[groups];
+    for (int g : order) {
+      int smallest = 0;
+      for (int f = 1; f < folds; f++) {
+        if (foldSize[f] < foldSize[smallest]) {
+          smallest = f;
+        }
+      }
+      groupFold[g] = smallest;
+      foldSize[smallest] += groupSize[g];
+    }
+    return groupFold;
+  }
+
+  @Override
+  public String toString() {
+    return "GroupFoldPartitioner{" + "folds=" + folds + '}';
+  }
+}
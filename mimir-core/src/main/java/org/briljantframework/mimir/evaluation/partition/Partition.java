@@ -22,8 +22,11 @@ package org.briljantframework.mimir.evaluation.partition;
 
 import org.briljantframework.Check;
 import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.data.Inputs;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * @author Isak Karlsson
@@ -80,4 +83,42 @@ public final class Partition<In, Out> {
     Check.state(trainingY != null, "No validation target available");
     return validationY;
   }
+
+  /**
+   * Create a partition of lightweight views over the given input and output, where the training
+   * and validation partitions consists of the elements at the given indexes. No elements are
+   * copied.
+   *
+   * @param x the input
+   * @param y the output
+   * @param training the indexes of the training examples
+   * @param validation the indexes of the validation examples
+   * @return a new partition
+   */
+  public static <In, Out> Partition<In, Out> of(Input<In> x, List<Out> y, int[] training,
+      int[] validation) {
+    Check.dimension(x.size(), y.size());
+    return new Partition<>(Inputs.view(x, training), Inputs.view(x, validation),
+        new IndexList<>(y, training), new IndexList<>(y, validation));
+  }
+
+  private static final class IndexList<E> extends AbstractList<E> implements RandomAccess {
+    private final List<E> list;
+    private final int[] indexes;
+
+    private IndexList(List<E> list, int[] indexes) {
+      this.list = list;
+      this.indexes = indexes;
+    }
+
+    @Override
+    public E get(int index) {
+      return list.get(indexes[index]);
+    }
+
+    @Override
+    public int size() {
+      return indexes.length;
+    }
+  }
 }
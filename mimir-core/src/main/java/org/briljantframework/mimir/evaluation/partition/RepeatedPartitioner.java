@@ -0,0 +1,100 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation.partition;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.briljantframework.Check;
+import org.briljantframework.mimir.data.Input;
+
+/**
+ * Repeats the partitions of a (randomized) partitioner, e.g., repeated stratified cross-validation.
+ * The partitions of each repetition are computed lazily, so a shuffling partitioner produces new
+ * partitions for each repetition.
+ *
+ * <pre>
+ * {@code
+ * // 5 times repeated stratified 10-fold cross-validation
+ * Partitioner<Instance, Object> p =
+ *     new RepeatedPartitioner<>(new StratifiedFoldPartitioner<>(10, true), 5);
+ * }
+ * </pre>
+ *
+ * @author Isak Karlsson
+ */
+public class RepeatedPartitioner<In, Out> implements Partitioner<In, Out> {
+
+  private final Partitioner<In, Out> partitioner;
+  private final int repetitions;
+
+  public RepeatedPartitioner(Partitioner<In, Out> partitioner, int repetitions) {
+    Check.argument(repetitions > 0, "Invalid repetition count.");
+    this.partitioner = Objects.requireNonNull(partitioner, "requires a partitioner");
+    this.repetitions = repetitions;
+  }
+
+  @Override
+  public Collection<Partition<In, Out>> partition(Input<In> x, List<Out> y) {
+    Collection<Partition<In, Out>> partitions = partitioner.partition(x, y);
+    return new AbstractCollection<Partition<In, Out>>() {
+      @Override
+      public Iterator<Partition<In, Out>> iterator() {
+        return new Iterator<Partition<In, Out>>() {
+          private int repetition = 0;
+          private Iterator<Partition<In, Out>> current = partitions.iterator();
+
+          @Override
+          public boolean hasNext() {
+            while (!current.hasNext() && repetition < repetitions - 1) {
+              repetition++;
+              current = partitions.iterator();
+            }
+            return current.hasNext();
+          }
+
+          @Override
+          public Partition<In, Out> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return current.next();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return partitions.size() * repetitions;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "RepeatedPartitioner{" + "partitioner=" + partitioner + ", repetitions=" + repetitions
+        + '}';
+  }
+}
@@ -26,7 +26,6 @@ import org.briljantframework.Check;
 import org.briljantframework.array.Arrays;
 import org.briljantframework.array.IntArray;
 import org.briljantframework.mimir.data.Input;
-import org.briljantframework.mimir.data.Inputs;
 
 /**
  * @author Isak Karlsson <isak-kar@dsv.su.se>
@@ -68,25 +67,14 @@ public class SplitIterator<In, Out> implements Iterator<Partition<In, Out>> {
     has = false;
     int trainingSize = x.size() - (int) Math.round(x.size() * splitFraction);
 
-    Input<In> xTraining = x.getSchema().newInput();
-    List<Out> yTraining = new ArrayList<>();
-
+    int[] training = new int[trainingSize];
+    int[] validation = new int[x.size() - trainingSize];
     for (int i = 0; i < trainingSize; i++) {
-      int ind = order.get(i);
-      xTraining.add(x.get(ind));
-      yTraining.add(y.get(ind));
+      training[i] = order.get(i);
     }
-
-    Input<In> xValidation = x.getSchema().newInput();
-    List<Out> yValidation = new ArrayList<>();
     for (int i = trainingSize; i < x.size(); i++) {
-      int ind = order.get(i);
-      xValidation.add(x.get(ind));
-      yValidation.add(y.get(ind));
+      validation[i - trainingSize] = order.get(i);
     }
-
-    return new Partition<>(Inputs.unmodifiableInput(xTraining),
-        Inputs.unmodifiableInput(xValidation), Collections.unmodifiableList(yTraining),
-        Collections.unmodifiableList(yValidation));
+    return Partition.of(x, y, training, validation);
   }
 }
@@ -0,0 +1,125 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation.partition;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.briljantframework.Check;
+import org.briljantframework.mimir.data.Input;
+
+/**
+ * Partitions the data into {@code k} folds such that the class distribution of each fold is
+ * (approximately) equal to the class distribution of the data, i.e., stratified cross-validation.
+ *
+ * <p>
+ * The examples are sorted by class (using a counting sort) and dealt to the folds in turn, so the
+ * number of examples of each class differs by at most one between folds. If shuffled, the examples
+ * of each class are dealt in random order.
+ *
+ * @author Isak Karlsson
+ */
+public class StratifiedFoldPartitioner<In, Out> implements Partitioner<In, Out> {
+
+  private final int folds;
+  private final Random random;
+
+  public StratifiedFoldPartitioner(int folds) {
+    this(folds, false);
+  }
+
+  public StratifiedFoldPartitioner(int folds, boolean shuffle) {
+    this(folds, shuffle ? new Random() : null);
+  }
+
+  /**
+   * @param folds the number of folds
+   * @param random the random number generator used to shuffle the examples (or {@code null} to not
+   *        shuffle)
+   */
+  public StratifiedFoldPartitioner(int folds, Random random) {
+    Check.argument(folds > 1, "Invalid fold count.");
+    this.folds = folds;
+    this.random = random;
+  }
+
+  @Override
+  public Collection<Partition<In, Out>> partition(Input<In> x, List<Out> y) {
+    Check.dimension(x.size(), y.size());
+    Check.argument(folds <= x.size(), "Invalid fold count.");
+    return new AbstractCollection<Partition<In, Out>>() {
+      @Override
+      public Iterator<Partition<In, Out>> iterator() {
+        return FoldAssignment.iterator(x, y, assign(y), folds);
+      }
+
+      @Override
+      public int size() {
+        return folds;
+      }
+    };
+  }
+
+  private int[] assign(List<Out> y) {
+    int n = y.size();
+    Map<Out, Integer> codes = new HashMap<>();
+    int[] code = new int[n];
+    for (int i = 0; i < n; i++) {
+      code[i] = codes.computeIfAbsent(y.get(i), key -> codes.size());
+    }
+
+    // Counting sort of the examples by class
+    int[] start = new int[codes.size() + 1];
+    for (int c : code) {
+      start[c + 1]++;
+    }
+    for (int c = 0; c < codes.size(); c++) {
+      start[c + 1] += start[c];
+    }
+    int[] order = new int[n];
+    int[] next = Arrays.copyOf(start, codes.size());
+    for (int i = 0; i < n; i++) {
+      order[next[code[i]]++] = i;
+    }
+    if (random != null) {
+      for (int c = 0; c < codes.size(); c++) {
+        FoldAssignment.shuffle(order, start[c], start[c + 1], random);
+      }
+    }
+
+    int[] assignment = new int[n];
+    for (int i = 0; i < n; i++) {
+      assignment[order[i]] = i % folds;
+    }
+    return assignment;
+  }
+
+  @Override
+  public String toString() {
+    return "StratifiedFoldPartitioner{" + "folds=" + folds + '}';
+  }
+}
@@ -0,0 +1,433 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.neighbours;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import org.briljantframework.Check;
+import org.briljantframework.mimir.distance.Distance;
+
+/**
+ * A hierarchical navigable small world graph for approximate nearest neighbour search under any
+ * distance. Each example is inserted at a random number of layers, and at each layer connected to
+ * (at most) {@code m} of its nearest already inserted examples ({@code 2m} at the bottom layer).
+ * Queries greedily descend the layers and perform a best-first search of width {@code efSearch} in
+ * the bottom layer.
+ *
+ * <p>
+ * The examples are inserted in parallel. Larger {@code efConstruction} and {@code efSearch} values
+ * increase the recall at the cost of construction and query time.
+ *
+ * <h3>References</h3>
+ * <ul>
+ * <li>Malkov, Y. A., Yashunin, D. A. (2016) Efficient and robust approximate nearest neighbor
+ * search using Hierarchical Navigable Small World graphs. arXiv:1603.09320</li>
+ * </ul>
+ *
+ * @author Isak Karlsson
+ */
+public final class HnswGraph<T> implements NeighbourSearch<T> {
+
+  private final List<? extends T> data;
+  private final Distance<? super T> distance;
+  private final int m;
+  private final int efConstruction;
+  private final int efSearch;
+
+  /**
+   * The top layer of each example
+   */
+  private final int[] levels;
+
+  /**
+   * {@code links[i][l]} is the (copy-on-write) neighbours of the i:th example at layer l; all
+   * access is guarded by the lock of {@code links[i]}
+   */
+  private final int[][][] links;
+
+  /**
+   * Visited marks released by completed searches; owned by the graph (rather than by the threads
+   * searching it) and holds at most as many marks as there have been concurrent searches
+   */
+  private final Queue<Visited> visited = new ConcurrentLinkedQueue<>();
+
+  private final Object entryLock = new Object();
+  private volatile int entryPoint = -1;
+  private volatile int maxLevel = -1;
+
+  /**
+   * @param data the examples to search
+   * @param distance the distance
+   * @param m the number of connections per example and layer
+   * @param efConstruction the search width used when inserting examples
+   * @param efSearch the search width used when querying
+   */
+  public HnswGraph(List<? extends T> data, Distance<? super T> distance, int m, int efConstruction,
+      int efSearch) {
+    this(data, distance, m, efConstruction, efSearch, new Random());
+  }
+
+  public HnswGraph(List<? extends T> data, Distance<? super T> distance, int m, int efConstruction,
+      int efSearch, Random random) {
+    Check.argument(m > 1, "illegal number of connections: %s", m);
+    Check.argument(efConstruction > 0 && efSearch > 0, "illegal search width");
+    this.data = data;
+    this.distance = distance;
+    this.m = m;
+    this.efConstruction = efConstruction;
+    this.efSearch = efSearch;
+
+    int n = data.size();
+    double ml = 1 / Math.log(m);
+    this.levels = new int[n];
+    this.links = new int[n][][];
+    for (int i = 0; i < n; i++) {
+      levels[i] = (int) (-Math.log(1 - random.nextDouble()) * ml);
+      links[i] = new int[levels[i] + 1][];
+      Arrays.fill(links[i], new int[0]);
+    }
+
+    if (n > 0) {
+      insert(0);
+      IntStream.range(1, n).parallel().forEach(this::insert);
+    }
+  }
+
+  private int maxConnections(int level) {
+    return level == 0 ? 2 * m : m;
+  }
+
+  private double distance(int a, T b, double cutoff) {
+    return distance.compute(data.get(a), b, cutoff);
+  }
+
+  private int[] getLinks(int node, int level) {
+    synchronized (links[node]) {
+      return links[node][level];
+    }
+  }
+
+  private void insert(int node) {
+    int level = levels[node];
+    int entry;
+    int top;
+    synchronized (entryLock) {
+      if (entryPoint < 0) {
+        entryPoint = node;
+        maxLevel = level;
+        return;
+      }
+      entry = entryPoint;
+      top = maxLevel;
+    }
+
+    T q = data.get(node);
+    int[] entries = {entry};
+    for (int l = top; l > level; l--) {
+      entries = new int[] {greedySearch(q, entries[0], l)};
+    }
+
+    for (int l = Math.min(top, level); l >= 0; l--) {
+      Neighbours candidates = searchLayer(q, entries, efConstruction, l);
+      int[] neighbours = selectNeighbours(candidates, m);
+      synchronized (links[node]) {
+        links[node][l] = neighbours;
+      }
+      for (int neighbour : neighbours) {
+        connect(neighbour, node, l);
+      }
+
+      entries = new int[candidates.size()];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = candidates.getIndex(i);
+      }
+    }
+
+    if (level > top) {
+      synchronized (entryLock) {
+        if (level > maxLevel) {
+          entryPoint = node;
+          maxLevel = level;
+        }
+      }
+    }
+  }
+
+  /**
+   * Add a link from {@code node} to {@code neighbour} at the given layer, pruning the links of
+   * {@code node} if they exceed the maximum number of connections
+   */
+  private void connect(int node, int neighbour, int level) {
+    synchronized (links[node]) {
+      int[] current = links[node][level];
+      int max = maxConnections(level);
+      if (current.length < max) {
+        int[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = neighbour;
+        links[node][level] = updated;
+      } else {
+        T x = data.get(node);
+        NeighbourHeap heap = new NeighbourHeap(current.length + 1);
+        for (int c : current) {
+          heap.offer(c, distance(c, x, Double.POSITIVE_INFINITY));
+        }
+        heap.offer(neighbour, distance(neighbour, x, Double.POSITIVE_INFINITY));
+        links[node][level] = selectNeighbours(heap.toNeighbours(), max);
+      }
+    }
+  }
+
+  /**
+   * Select at most {@code max} neighbours from the candidates (ordered by increasing distance),
+   * preferring candidates that are closer to the example than to any already selected neighbour.
+   * If fewer than {@code max} candidates satisfy this, the closest of the discarded are added.
+   */
+  private int[] selectNeighbours(Neighbours candidates, int max) {
+    int[] selected = new int[Math.min(max, candidates.size())];
+    boolean[] used = new boolean[candidates.size()];
+    int size = 0;
+    for (int i = 0; i < candidates.size() && size < selected.length; i++) {
+      int candidate = candidates.getIndex(i);
+      double d = candidates.getDistance(i);
+      T c = data.get(candidate);
+      boolean keep = true;
+      for (int j = 0; j < size && keep; j++) {
+        keep = distance(selected[j], c, d) > d;
+      }
+      if (keep) {
+        selected[size++] = candidate;
+        used[i] = true;
+      }
+    }
+    for (int i = 0; i < candidates.size() && size < selected.length; i++) {
+      if (!used[i]) {
+        selected[size++] = candidates.getIndex(i);
+      }
+    }
+    return selected;
+  }
+
+  private int greedySearch(T q, int entry, int level) {
+    int current = entry;
+    double currentDistance = distance(current, q, Double.POSITIVE_INFINITY);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int neighbour : getLinks(current, level)) {
+        double d = distance(neighbour, q, currentDistance);
+        if (d < currentDistance) {
+          current = neighbour;
+          currentDistance = d;
+          changed = true;
+        }
+      }
+    }
+    return current;
+  }
+
+  private Neighbours searchLayer(T q, int[] entries, int ef, int level) {
+    Visited visited = this.visited.poll();
+    if (visited == null) {
+      visited = new Visited(data.size());
+    }
+    try {
+      return searchLayer(q, entries, ef, level, visited);
+    } finally {
+      this.visited.offer(visited);
+    }
+  }
+
+  private Neighbours searchLayer(T q, int[] entries, int ef, int level, Visited visited) {
+    visited.clear();
+    CandidateQueue candidates = new CandidateQueue(Math.max(16, entries.length));
+    NeighbourHeap results = new NeighbourHeap(ef);
+    for (int entry : entries) {
+      if (visited.visit(entry)) {
+        double d = distance(entry, q, Double.POSITIVE_INFINITY);
+        candidates.add(entry, d);
+        results.offer(entry, d);
+      }
+    }
+
+    while (candidates.size() > 0) {
+      double d = candidates.peekDistance();
+      if (d > results.bound()) {
+        break;
+      }
+      int current = candidates.poll();
+      for (int neighbour : getLinks(current, level)) {
+        if (visited.visit(neighbour)) {
+          double bound = results.bound();
+          double nd = distance(neighbour, q, bound);
+          if (nd < bound) {
+            candidates.add(neighbour, nd);
+            results.offer(neighbour, nd);
+          }
+        }
+      }
+    }
+    return results.toNeighbours();
+  }
+
+  @Override
+  public Neighbours search(T query, int k) {
+    return search(query, k, efSearch);
+  }
+
+  /**
+   * Find (approximately) the {@code k} nearest neighbours of {@code query} using the search width
+   * {@code ef}
+   *
+   * @param query the query
+   * @param k the number of neighbours
+   * @param ef the search width (at least {@code k} is used)
+   * @return the neighbours ordered by increasing distance
+   */
+  public Neighbours search(T query, int k, int ef) {
+    int entry;
+    int top;
+    synchronized (entryLock) {
+      entry = entryPoint;
+      top = maxLevel;
+    }
+    if (entry < 0) {
+      return new Neighbours(new int[0], new double[0]);
+    }
+
+    for (int l = top; l > 0; l--) {
+      entry = greedySearch(query, entry, l);
+    }
+    Neighbours found = searchLayer(query, new int[] {entry}, Math.max(k, ef), 0);
+    if (found.size() <= k) {
+      return found;
+    }
+    int[] idx = new int[k];
+    double[] dist = new double[k];
+    for (int i = 0; i < k; i++) {
+      idx[i] = found.getIndex(i);
+      dist[i] = found.getDistance(i);
+    }
+    return new Neighbours(idx, dist);
+  }
+
+  @Override
+  public int size() {
+    return data.size();
+  }
+
+  /**
+   * Visited marks that are cleared in constant time by incrementing the epoch
+   */
+  private static final class Visited {
+    private final int[] marks;
+    private int epoch = 0;
+
+    private Visited(int size) {
+      this.marks = new int[size];
+    }
+
+    private void clear() {
+      if (++epoch == Integer.MAX_VALUE) {
+        Arrays.fill(marks, 0);
+        epoch = 1;
+      }
+    }
+
+    private boolean visit(int i) {
+      if (marks[i] == epoch) {
+        return false;
+      }
+      marks[i] = epoch;
+      return true;
+    }
+  }
+
+  /**
+   * A binary min-heap of candidates ordered by distance
+   */
+  private static final class CandidateQueue {
+    private int[] indices;
+    private double[] distances;
+    private int size = 0;
+
+    private CandidateQueue(int capacity) {
+      this.indices = new int[capacity];
+      this.distances = new double[capacity];
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private double peekDistance() {
+      return distances[0];
+    }
+
+    private void add(int index, double distance) {
+      if (size == indices.length) {
+        indices = Arrays.copyOf(indices, size * 2);
+        distances = Arrays.copyOf(distances, size * 2);
+      }
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (distances[parent] <= distance) {
+          break;
+        }
+        indices[i] = indices[parent];
+        distances[i] = distances[parent];
+        i = parent;
+      }
+      indices[i] = index;
+      distances[i] = distance;
+    }
+
+    private int poll() {
+      int top = indices[0];
+      int lastIndex = indices[--size];
+      double lastDistance = distances[size];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && distances[child + 1] < distances[child]) {
+          child++;
+        }
+        if (distances[child] >= lastDistance) {
+          break;
+        }
+        indices[i] = indices[child];
+        distances[i] = distances[child];
+        i = child;
+      }
+      indices[i] = lastIndex;
+      distances[i] = lastDistance;
+      return top;
+    }
+  }
+}
@@ -0,0 +1,361 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.neighbours;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.briljantframework.Check;
+import org.briljantframework.data.Is;
+import org.briljantframework.mimir.distance.Distance;
+import org.briljantframework.mimir.supervised.data.Instance;
+
+/**
+ * A k-d tree for exact nearest neighbour and radius search among instances with numerical
+ * attributes, using the euclidean distance. The numerical attributes are read once into a packed
+ * {@code double[]} in tree order, so that the examples of a leaf are contiguous in memory. Each
+ * internal node splits the dimension with the largest spread at its median.
+ *
+ * <p>
+ * Missing (NA) values are ignored, i.e., the distance between two instances is computed over the
+ * attributes observed in both. Instances with missing values are not placed in the tree but are
+ * searched exhaustively, and a query with a missing value visits both children of nodes splitting
+ * on that attribute.
+ *
+ * @author Isak Karlsson
+ */
+public final class KDTree implements NeighbourSearch<Instance> {
+
+  /**
+   * The euclidean distance over the numerical attributes observed in both instances, i.e., the
+   * distance searched by the tree
+   */
+  public static final Distance<Instance> EUCLIDEAN = (a, b) -> {
+    double sum = 0;
+    for (int j = 0; j < a.numericalAttributes(); j++) {
+      double av = a.getNumericalAttribute(j), bv = b.getNumericalAttribute(j);
+      if (!isMissing(av) && !isMissing(bv)) {
+        sum += (av - bv) * (av - bv);
+      }
+    }
+    return Math.sqrt(sum);
+  };
+
+  private static final int LEAF_SIZE = 16;
+
+  private final int size;
+  private final int dimensions;
+
+  /**
+   * Shape = {@code [size, dimensions]} in row-major order, the complete instances first in tree
+   * order followed by the incomplete instances
+   */
+  private final double[] points;
+
+  /**
+   * The index in the searched data of each row in {@code points}
+   */
+  private final int[] indices;
+
+  /**
+   * The number of rows (from the start of {@code points}) in the tree
+   */
+  private final int complete;
+  private final Node root;
+
+  public KDTree(List<? extends Instance> data) {
+    this.size = data.size();
+    this.dimensions = size > 0 ? data.get(0).numericalAttributes() : 0;
+    double[] values = new double[size * dimensions];
+    int[] order = new int[size];
+    int complete = 0;
+    int incomplete = size;
+    for (int i = 0; i < size; i++) {
+      Instance instance = data.get(i);
+      Check.argument(instance.numericalAttributes() == dimensions,
+          "illegal number of attributes: %s (expected %s)", instance.numericalAttributes(),
+          dimensions);
+      boolean missing = false;
+      for (int j = 0; j < dimensions; j++) {
+        double v = instance.getNumericalAttribute(j);
+        values[i * dimensions + j] = v;
+        missing |= isMissing(v);
+      }
+      if (missing) {
+        order[--incomplete] = i;
+      } else {
+        order[complete++] = i;
+      }
+    }
+
+    this.complete = complete;
+    this.root = complete > 0 ? build(values, order, 0, complete) : null;
+    this.points = new double[size * dimensions];
+    for (int i = 0; i < size; i++) {
+      System.arraycopy(values, order[i] * dimensions, points, i * dimensions, dimensions);
+    }
+    this.indices = order;
+  }
+
+  private static boolean isMissing(double v) {
+    return Is.NA(v) || Double.isNaN(v);
+  }
+
+  private Node build(double[] values, int[] order, int lo, int hi) {
+    if (hi - lo <= LEAF_SIZE) {
+      return new Node(lo, hi);
+    }
+
+    int dim = 0;
+    double maxSpread = 0;
+    for (int j = 0; j < dimensions; j++) {
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int i = lo; i < hi; i++) {
+        double v = values[order[i] * dimensions + j];
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+      if (max - min > maxSpread) {
+        maxSpread = max - min;
+        dim = j;
+      }
+    }
+    if (maxSpread == 0) {
+      return new Node(lo, hi);
+    }
+
+    int mid = (lo + hi) >>> 1;
+    select(values, order, dim, lo, hi - 1, mid);
+    double split = values[order[mid] * dimensions + dim];
+    return new Node(dim, split, build(values, order, lo, mid), build(values, order, mid, hi));
+  }
+
+  /**
+   * Rearrange {@code order[lo, hi]} such that the element at {@code k} is the one that would be
+   * there if sorted by the value of {@code dim}, and no element before (after) it is larger
+   * (smaller).
+   */
+  private void select(double[] values, int[] order, int dim, int lo, int hi, int k) {
+    while (lo < hi) {
+      double pivot = values[order[(lo + hi) >>> 1] * dimensions + dim];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (values[order[i] * dimensions + dim] < pivot) {
+          i++;
+        }
+        while (values[order[j] * dimensions + dim] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          int tmp = order[i];
+          order[i++] = order[j];
+          order[j--] = tmp;
+        }
+      }
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public Neighbours search(Instance query, int k) {
+    double[] q = toArray(query);
+    NeighbourHeap heap = new NeighbourHeap(k);
+    if (root != null) {
+      search(root, q, heap);
+    }
+    for (int row = complete; row < size; row++) {
+      heap.offer(indices[row], squaredDistance(row, q, heap.bound()));
+    }
+    return toEuclidean(heap.toNeighbours());
+  }
+
+  /**
+   * Find all instances within {@code radius} of {@code query}
+   *
+   * @param query the query
+   * @param radius the radius
+   * @return the neighbours within the radius ordered by increasing distance
+   */
+  public Neighbours searchRadius(Instance query, double radius) {
+    double[] q = toArray(query);
+    double bound = radius * radius;
+    IntDoubleBuffer found = new IntDoubleBuffer();
+    if (root != null) {
+      search(root, q, bound, found);
+    }
+    for (int row = complete; row < size; row++) {
+      double d = squaredDistance(row, q, bound);
+      if (d <= bound) {
+        found.add(indices[row], d);
+      }
+    }
+
+    if (found.size == 0) {
+      return new Neighbours(new int[0], new double[0]);
+    }
+    NeighbourHeap heap = new NeighbourHeap(found.size);
+    for (int i = 0; i < found.size; i++) {
+      heap.offer(found.indices[i], found.distances[i]);
+    }
+    return toEuclidean(heap.toNeighbours());
+  }
+
+  private void search(Node node, double[] q, NeighbourHeap heap) {
+    if (node.isLeaf()) {
+      for (int row = node.lo; row < node.hi; row++) {
+        heap.offer(indices[row], squaredDistance(row, q, heap.bound()));
+      }
+      return;
+    }
+
+    double v = q[node.dim];
+    if (isMissing(v)) {
+      search(node.left, q, heap);
+      search(node.right, q, heap);
+    } else {
+      double diff = v - node.split;
+      search(diff < 0 ? node.left : node.right, q, heap);
+      if (diff * diff < heap.bound()) {
+        search(diff < 0 ? node.right : node.left, q, heap);
+      }
+    }
+  }
+
+  private void search(Node node, double[] q, double bound, IntDoubleBuffer found) {
+    if (node.isLeaf()) {
+      for (int row = node.lo; row < node.hi; row++) {
+        double d = squaredDistance(row, q, bound);
+        if (d <= bound) {
+          found.add(indices[row], d);
+        }
+      }
+      return;
+    }
+
+    double v = q[node.dim];
+    double diff = v - node.split;
+    if (isMissing(v) || diff <= 0 || diff * diff <= bound) {
+      search(node.left, q, bound, found);
+    }
+    if (isMissing(v) || diff >= 0 || diff * diff <= bound) {
+      search(node.right, q, bound, found);
+    }
+  }
+
+  /**
+   * The squared distance over the attributes observed in both the row and the query, abandoned
+   * (returning positive infinity) as soon as it exceeds {@code cutoff}
+   */
+  private double squaredDistance(int row, double[] q, double cutoff) {
+    int offset = row * dimensions;
+    double sum = 0;
+    for (int j = 0; j < dimensions; j++) {
+      double r = points[offset + j] - q[j];
+      if (!Double.isNaN(r)) {
+        sum += r * r;
+        if (sum > cutoff) {
+          return Double.POSITIVE_INFINITY;
+        }
+      }
+    }
+    return sum;
+  }
+
+  private double[] toArray(Instance query) {
+    Check.argument(query.numericalAttributes() == dimensions,
+        "illegal number of attributes: %s (expected %s)", query.numericalAttributes(), dimensions);
+    double[] q = new double[dimensions];
+    for (int j = 0; j < dimensions; j++) {
+      double v = query.getNumericalAttribute(j);
+      q[j] = isMissing(v) ? Double.NaN : v;
+    }
+    return q;
+  }
+
+  private static Neighbours toEuclidean(Neighbours neighbours) {
+    int[] idx = new int[neighbours.size()];
+    double[] dist = new double[neighbours.size()];
+    for (int i = 0; i < idx.length; i++) {
+      idx[i] = neighbours.getIndex(i);
+      dist[i] = Math.sqrt(neighbours.getDistance(i));
+    }
+    return new Neighbours(idx, dist);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private static final class Node {
+    private final int lo;
+    private final int hi;
+    private final int dim;
+    private final double split;
+    private final Node left;
+    private final Node right;
+
+    private Node(int lo, int hi) {
+      this.lo = lo;
+      this.hi = hi;
+      this.dim = -1;
+      this.split = 0;
+      this.left = null;
+      this.right = null;
+    }
+
+    private Node(int dim, double split, Node left, Node right) {
+      this.lo = -1;
+      this.hi = -1;
+      this.dim = dim;
+      this.split = split;
+      this.left = left;
+      this.right = right;
+    }
+
+    private boolean isLeaf() {
+      return left == null;
+    }
+  }
+
+  private static final class IntDoubleBuffer {
+    private int[] indices = new int[16];
+    private double[] distances = new double[16];
+    private int size = 0;
+
+    private void add(int index, double distance) {
+      if (size == indices.length) {
+        indices = Arrays.copyOf(indices, size * 2);
+        distances = Arrays.copyOf(distances, size * 2);
+      }
+      indices[size] = index;
+      distances[size++] = distance;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.neighbours;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.briljantframework.mimir.distance.Distance;
+
+/**
+ * Exhaustive search over all examples. The examples are scanned in parallel chunks, each keeping a
+ * bounded heap of its nearest neighbours whose bound is passed to the distance as an early-abandon
+ * cutoff. The chunk heaps are merged into the final neighbours.
+ *
+ * @author Isak Karlsson
+ */
+public final class LinearSearch<T> implements NeighbourSearch<T> {
+
+  private static final int CHUNK_SIZE = 512;
+
+  private final List<? extends T> data;
+  private final Distance<? super T> distance;
+
+  public LinearSearch(List<? extends T> data, Distance<? super T> distance) {
+    this.data = data;
+    this.distance = distance;
+  }
+
+  @Override
+  public Neighbours search(T query, int k) {
+    int n = data.size();
+    int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    if (chunks <= 1) {
+      return scan(query, k, 0, n).toNeighbours();
+    }
+    return IntStream.range(0, chunks).parallel()
+        .mapToObj(c -> scan(query, k, c * CHUNK_SIZE, Math.min(n, (c + 1) * CHUNK_SIZE)))
+        .reduce((a, b) -> {
+          a.offerAll(b);
+          return a;
+        }).get().toNeighbours();
+  }
+
+  private NeighbourHeap scan(T query, int k, int start, int end) {
+    NeighbourHeap heap = new NeighbourHeap(k);
+    for (int i = start; i < end; i++) {
+      heap.offer(i, distance.compute(data.get(i), query, heap.bound()));
+    }
+    return heap;
+  }
+
+  @Override
+  public int size() {
+    return data.size();
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.neighbours;
+
+import java.util.Arrays;
+
+import org.briljantframework.Check;
+
+/**
+ * A bounded max-heap retaining the {@code k} nearest neighbours offered to it. The largest
+ * retained distance is available in constant time and is used to prune (or abandon) distance
+ * computations that cannot improve the current neighbours.
+ *
+ * @author Isak Karlsson
+ */
+public final class NeighbourHeap {
+
+  private final int[] indices;
+  private final double[] distances;
+  private int size;
+
+  /**
+   * @param k the maximum number of neighbours
+   */
+  public NeighbourHeap(int k) {
+    Check.argument(k > 0, "illegal number of neighbours: %s", k);
+    this.indices = new int[k];
+    this.distances = new double[k];
+    this.size = 0;
+  }
+
+  /**
+   * @return the number of retained neighbours
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return true if {@code k} neighbours are retained
+   */
+  public boolean isFull() {
+    return size == indices.length;
+  }
+
+  /**
+   * Returns the distance a neighbour must be closer than to be retained, i.e., the largest
+   * retained distance if the heap is full and positive infinity otherwise.
+   *
+   * @return the current bound
+   */
+  public double bound() {
+    return isFull() ? distances[0] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Offer a neighbour to the heap
+   *
+   * @param index the index of the neighbour
+   * @param distance the distance to the neighbour
+   * @return true if the neighbour is retained
+   */
+  public boolean offer(int index, double distance) {
+    if (size < indices.length) {
+      indices[size] = index;
+      distances[size] = distance;
+      siftUp(size++);
+      return true;
+    } else if (distance < distances[0]) {
+      indices[0] = index;
+      distances[0] = distance;
+      siftDown(indices, distances, 0, size);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Offer all neighbours retained by {@code other} to this heap
+   *
+   * @param other the other heap
+   */
+  public void offerAll(NeighbourHeap other) {
+    for (int i = 0; i < other.size; i++) {
+      offer(other.indices[i], other.distances[i]);
+    }
+  }
+
+  /**
+   * @return the retained neighbours ordered by increasing distance
+   */
+  public Neighbours toNeighbours() {
+    int[] idx = Arrays.copyOf(indices, size);
+    double[] dist = Arrays.copyOf(distances, size);
+    for (int n = size - 1; n > 0; n--) {
+      swap(idx, dist, 0, n);
+      siftDown(idx, dist, 0, n);
+    }
+    return new Neighbours(idx, dist);
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (distances[parent] >= distances[i]) {
+        break;
+      }
+      swap(indices, distances, parent, i);
+      i = parent;
+    }
+  }
+
+  private static void siftDown(int[] indices, double[] distances, int i, int size) {
+    while (true) {
+      int largest = i;
+      int left = 2 * i + 1;
+      int right = left + 1;
+      if (left < size && distances[left] > distances[largest]) {
+        largest = left;
+      }
+      if (right < size && distances[right] > distances[largest]) {
+        largest = right;
+      }
+      if (largest == i) {
+        return;
+      }
+      swap(indices, distances, i, largest);
+      i = largest;
+    }
+  }
+
+  private static void swap(int[] indices, double[] distances, int i, int j) {
+    int index = indices[i];
+    indices[i] = indices[j];
+    indices[j] = index;
+    double distance = distances[i];
+    distances[i] = distances[j];
+    distances[j] = distance;
+  }
+}
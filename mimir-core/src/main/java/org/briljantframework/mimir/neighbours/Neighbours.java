@@ -0,0 +1,64 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.neighbours;
+
+/**
+ * The nearest neighbours of a query ordered by increasing distance
+ *
+ * @author Isak Karlsson
+ */
+public final class Neighbours {
+
+  private final int[] indices;
+  private final double[] distances;
+
+  Neighbours(int[] indices, double[] distances) {
+    this.indices = indices;
+    this.distances = distances;
+  }
+
+  /**
+   * @return the number of neighbours
+   */
+  public int size() {
+    return indices.length;
+  }
+
+  /**
+   * Returns the index (in the searched data) of the i:th nearest neighbour
+   *
+   * @param i the rank of the neighbour
+   * @return the index of the neighbour
+   */
+  public int getIndex(int i) {
+    return indices[i];
+  }
+
+  /**
+   * Returns the distance to the i:th nearest neighbour
+   *
+   * @param i the rank of the neighbour
+   * @return the distance to the neighbour
+   */
+  public double getDistance(int i) {
+    return distances[i];
+  }
+}
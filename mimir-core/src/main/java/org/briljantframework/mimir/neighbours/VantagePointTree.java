@@ -0,0 +1,190 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.neighbours;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.briljantframework.mimir.distance.Distance;
+
+/**
+ * A vantage-point tree for exact nearest neighbour search in a metric space. Each internal node
+ * selects a random vantage point and partitions the remaining examples by the median distance to
+ * it; the triangle inequality is used to prune subtrees that cannot contain a neighbour closer than
+ * the current k:th nearest.
+ *
+ * <p>
+ * The search is exact only if the distance satisfies the triangle inequality. Distances that are
+ * not metrics (e.g., dynamic time warping) can be used, but the result is then approximate.
+ *
+ * <h3>References</h3>
+ * <ul>
+ * <li>Yianilos, P. N. (1993) Data structures and algorithms for nearest neighbor search in general
+ * metric spaces. In Proc. the 4th ACM-SIAM Symposium on Discrete Algorithms (SODA)</li>
+ * </ul>
+ *
+ * @author Isak Karlsson
+ */
+public final class VantagePointTree<T> implements NeighbourSearch<T> {
+
+  private static final int LEAF_SIZE = 8;
+
+  private final List<? extends T> data;
+  private final Distance<? super T> distance;
+  private final Node root;
+
+  public VantagePointTree(List<? extends T> data, Distance<? super T> distance) {
+    this(data, distance, new Random());
+  }
+
+  public VantagePointTree(List<? extends T> data, Distance<? super T> distance, Random random) {
+    this.data = data;
+    this.distance = distance;
+    int[] indices = new int[data.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    }
+    this.root = build(indices, new double[indices.length], 0, indices.length, random);
+  }
+
+  private Node build(int[] indices, double[] distances, int lo, int hi, Random random) {
+    if (hi - lo <= LEAF_SIZE) {
+      return new Node(Arrays.copyOfRange(indices, lo, hi));
+    }
+
+    swap(indices, distances, lo, lo + random.nextInt(hi - lo));
+    int vantage = indices[lo];
+    T v = data.get(vantage);
+    for (int i = lo + 1; i < hi; i++) {
+      distances[i] = distance.compute(v, data.get(indices[i]));
+    }
+
+    int mid = (lo + 1 + hi) >>> 1;
+    select(indices, distances, lo + 1, hi - 1, mid);
+    double threshold = distances[mid];
+    Node inside = build(indices, distances, lo + 1, mid + 1, random);
+    Node outside = build(indices, distances, mid + 1, hi, random);
+    return new Node(vantage, threshold, inside, outside);
+  }
+
+  /**
+   * Rearrange {@code [lo, hi]} such that the element at {@code k} is the one that would be there
+   * if sorted by distance, and no element before (after) it is larger (smaller).
+   */
+  private static void select(int[] indices, double[] distances, int lo, int hi, int k) {
+    while (lo < hi) {
+      double pivot = distances[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (distances[i] < pivot) {
+          i++;
+        }
+        while (distances[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(indices, distances, i++, j--);
+        }
+      }
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static void swap(int[] indices, double[] distances, int i, int j) {
+    int index = indices[i];
+    indices[i] = indices[j];
+    indices[j] = index;
+    double d = distances[i];
+    distances[i] = distances[j];
+    distances[j] = d;
+  }
+
+  @Override
+  public Neighbours search(T query, int k) {
+    NeighbourHeap heap = new NeighbourHeap(k);
+    search(root, query, heap);
+    return heap.toNeighbours();
+  }
+
+  private void search(Node node, T query, NeighbourHeap heap) {
+    if (node.isLeaf()) {
+      for (int index : node.indices) {
+        heap.offer(index, distance.compute(data.get(index), query, heap.bound()));
+      }
+      return;
+    }
+
+    double d = distance.compute(data.get(node.vantage), query);
+    heap.offer(node.vantage, d);
+    if (d <= node.threshold) {
+      search(node.inside, query, heap);
+      if (d + heap.bound() >= node.threshold) {
+        search(node.outside, query, heap);
+      }
+    } else {
+      search(node.outside, query, heap);
+      if (d - heap.bound() <= node.threshold) {
+        search(node.inside, query, heap);
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return data.size();
+  }
+
+  private static final class Node {
+    private final int vantage;
+    private final double threshold;
+    private final Node inside;
+    private final Node outside;
+    private final int[] indices;
+
+    private Node(int vantage, double threshold, Node inside, Node outside) {
+      this.vantage = vantage;
+      this.threshold = threshold;
+      this.inside = inside;
+      this.outside = outside;
+      this.indices = null;
+    }
+
+    private Node(int[] indices) {
+      this.vantage = -1;
+      this.threshold = 0;
+      this.inside = null;
+      this.outside = null;
+      this.indices = indices;
+    }
+
+    private boolean isLeaf() {
+      return indices != null;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.briljantframework.mimir.classification.ClassifierValidator;
+import org.briljantframework.mimir.classification.NearestNeighbours;
+import org.briljantframework.mimir.classification.RandomForest;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.evaluation.partition.StratifiedFoldPartitioner;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class TraceEventTest {
+
+  private final Queue<TraceEvent> events = new ConcurrentLinkedQueue<>();
+  private Input<Instance> x;
+  private List<Integer> y;
+
+  @Before
+  public void setUp() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(2, 0);
+    x = schema.newInput();
+    y = new ArrayList<>();
+    Random random = new Random(123);
+    for (int i = 0; i < 60; i++) {
+      x.add(schema.newInstance().set(0, i % 3 + random.nextGaussian())
+          .set(1, random.nextGaussian()).build());
+      y.add(i % 3);
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    TraceEvent.setListener(null);
+  }
+
+  @Test
+  public void testBeginReturnsDisabledEventWithoutListener() throws Exception {
+    TraceEvent.setListener(null);
+    assertFalse(TraceEvent.isEnabled());
+    TraceEvent event = TraceEvent.begin(TraceEvent.Kind.FIT, "a");
+    assertSame(event, TraceEvent.begin(TraceEvent.Kind.PREDICT, "b"));
+
+    event.input(x).classes(3).members(10).commit();
+    assertEquals(-1, event.getExamples());
+    assertEquals(-1, event.getDuration());
+  }
+
+  @Test
+  public void testFitAndPredictEmitEvents() throws Exception {
+    TraceEvent.setListener(events::add);
+    assertTrue(TraceEvent.isEnabled());
+    RandomForest<Integer> forest = new RandomForest.Learner<Integer>(5).fit(x, y);
+    forest.predict(x);
+
+    List<TraceEvent> fit = getEvents(TraceEvent.Kind.FIT);
+    assertEquals(1, fit.size());
+    assertEvent(fit.get(0), 60, 2, 3);
+    assertEquals(5, fit.get(0).getMembers());
+
+    List<TraceEvent> treeFit = getEvents(TraceEvent.Kind.TREE_FIT);
+    assertEquals(5, treeFit.size());
+    for (TraceEvent event : treeFit) {
+      assertEvent(event, 60, 2, 3);
+    }
+
+    List<TraceEvent> predict = getEvents(TraceEvent.Kind.PREDICT);
+    assertEquals(1, predict.size());
+    assertEvent(predict.get(0), 60, 2, 3);
+  }
+
+  @Test
+  public void testValidationEmitsFoldEvents() throws Exception {
+    TraceEvent.setListener(events::add);
+    ClassifierValidator<Instance, Integer> validator =
+        new ClassifierValidator<>(new StratifiedFoldPartitioner<>(3, new Random(321)));
+    validator.test(new NearestNeighbours.Learner<>(1, (a, b) -> Math
+        .abs(a.getNumericalAttribute(0) - b.getNumericalAttribute(0))), x, y);
+
+    List<TraceEvent> folds = getEvents(TraceEvent.Kind.FOLD);
+    assertEquals(3, folds.size());
+    for (TraceEvent event : folds) {
+      assertEquals(NearestNeighbours.Learner.class.getName(), event.getName());
+      assertEquals(40, event.getExamples());
+      assertEquals(2, event.getFeatures());
+      assertTrue(event.getDuration() >= 0);
+    }
+
+    List<TraceEvent> predict = getEvents(TraceEvent.Kind.PREDICT);
+    assertEquals(3, predict.size());
+    for (TraceEvent event : predict) {
+      assertEvent(event, 20, 2, 3);
+    }
+  }
+
+  private List<TraceEvent> getEvents(TraceEvent.Kind kind) {
+    List<TraceEvent> list = new ArrayList<>();
+    for (TraceEvent event : events) {
+      if (event.getKind() == kind) {
+        list.add(event);
+      }
+    }
+    return list;
+  }
+
+  private static void assertEvent(TraceEvent event, int examples, int features, int classes) {
+    assertEquals(examples, event.getExamples());
+    assertEquals(features, event.getFeatures());
+    assertEquals(classes, event.getClasses());
+    assertTrue(event.getDuration() >= 0);
+    assertTrue(event.getThread() != null);
+  }
+}
@@ -22,7 +22,11 @@ package org.briljantframework.mimir.classification;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.briljantframework.array.Array;
+import org.briljantframework.array.DoubleArray;
 import org.briljantframework.data.series.Series;
 import org.junit.Test;
 
@@ -40,4 +44,23 @@ public class ClassifierMeasureTest {
     assertEquals(0.333, cm.getRecall(), 0.01);
     assertEquals(0.5, cm.getAccuracy(), 0.01);
   }
+
+  @Test
+  public void testAreaUnderRocCurveAndBrierScoreWithTies() throws Exception {
+    Array<String> classes = Array.of("a", "b");
+    List<String> t = Arrays.asList("a", "a", "b", "b");
+    List<String> p = Arrays.asList("a", "a", "b", "b");
+    DoubleArray score = DoubleArray.zeros(4, 2);
+    double[] a = {0.9, 0.5, 0.5, 0.1};
+    for (int i = 0; i < a.length; i++) {
+      score.set(i, 0, a[i]);
+      score.set(i, 1, 1 - a[i]);
+    }
+
+    // the tied positive and negative example counts as one half
+    ClassifierMeasure cm = new ClassifierMeasure(classes, p, t, score);
+    assertEquals(3.5 / 4, cm.getAreaUnderRocCurve(), 1e-10);
+    assertEquals((0.01 + 0.25 + 0.25 + 0.01) / 4, cm.getBrierScore(), 1e-10);
+    assertEquals(1, cm.getAccuracy(), 1e-10);
+  }
 }
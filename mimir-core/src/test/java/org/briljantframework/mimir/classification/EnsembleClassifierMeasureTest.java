@@ -0,0 +1,171 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.briljantframework.array.Array;
+import org.briljantframework.array.Arrays;
+import org.briljantframework.array.BooleanArray;
+import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class EnsembleClassifierMeasureTest {
+
+  private static final int N = 12;
+  private static final int MEMBERS = 5;
+  private static final int CLASSES = 3;
+
+  private final Array<Integer> classes = Array.of(0, 1, 2);
+  private List<ProbabilityEstimator<Instance, Integer>> members;
+  private BooleanArray oobIndicator;
+  private Input<Instance> x, validationX;
+  private List<Integer> y, validationY;
+
+  /**
+   * The members of a random forest are fitted with unseeded randomness. Instead, the ensemble
+   * consists of members with fixed (seeded) probability estimates and a seeded out-of-bag
+   * indicator.
+   */
+  @Before
+  public void setUp() throws Exception {
+    Random random = new Random(123);
+    members = new ArrayList<>();
+    for (int j = 0; j < MEMBERS; j++) {
+      double[][] estimates = new double[2 * N][CLASSES];
+      for (double[] estimate : estimates) {
+        double sum = 0;
+        for (int c = 0; c < CLASSES; c++) {
+          estimate[c] = random.nextDouble();
+          sum += estimate[c];
+        }
+        for (int c = 0; c < CLASSES; c++) {
+          estimate[c] /= sum;
+        }
+      }
+      members.add(new FixedEstimator(classes, estimates));
+    }
+
+    oobIndicator = Arrays.booleanArray(N, MEMBERS);
+    for (int i = 0; i < N; i++) {
+      for (int j = 0; j < MEMBERS; j++) {
+        oobIndicator.set(i, j, random.nextDouble() < 0.4);
+      }
+    }
+
+    // the first N rows of the estimates are used for training and the last N for validation
+    MultidimensionalSchema schema = new MultidimensionalSchema(1, 0);
+    x = schema.newInput();
+    validationX = schema.newInput();
+    y = new ArrayList<>();
+    validationY = new ArrayList<>();
+    for (int i = 0; i < N; i++) {
+      x.add(schema.newInstance().set(0, i).build());
+      validationX.add(schema.newInstance().set(0, N + i).build());
+      y.add(random.nextInt(CLASSES));
+    }
+    for (int i = 0; i < N; i++) {
+      validationY.add(random.nextInt(CLASSES));
+    }
+  }
+
+  /**
+   * The expected values were produced by the previous implementation
+   */
+  @Test
+  public void testMeasuresOfSeededEnsemble() throws Exception {
+    FixedEnsemble ensemble = new FixedEnsemble(classes, members, oobIndicator, null);
+    EnsembleClassifierMeasure measure =
+        new EnsembleClassifierMeasure(ensemble, x, y, validationX, validationY);
+    assertEquals(0.9166666666666666, measure.getOobError(), 1e-9);
+    assertEquals(-0.13339147240948912, measure.getStrength(), 1e-9);
+    assertEquals(0.023716238501645493, measure.getCorrelation(), 1e-9);
+    assertEquals(0.08870432698606219, measure.getVariance(), 1e-9);
+    assertEquals(0.758888967514498, measure.getBias(), 1e-9);
+  }
+
+  @Test
+  public void testAccumulatedEstimatesEqualsRecomputedEstimates() throws Exception {
+    OutOfBagAccumulator outOfBag = new OutOfBagAccumulator(N, CLASSES);
+    for (int j = 0; j < MEMBERS; j++) {
+      outOfBag.add(members.get(j), x, oobIndicator.getColumn(j));
+    }
+    FixedEnsemble accumulated = new FixedEnsemble(classes, members, oobIndicator, outOfBag);
+    assertTrue(accumulated.hasOutOfBagEstimates());
+
+    EnsembleClassifierMeasure expected = new EnsembleClassifierMeasure(
+        new FixedEnsemble(classes, members, oobIndicator, null), x, y, validationX, validationY);
+    EnsembleClassifierMeasure actual =
+        new EnsembleClassifierMeasure(accumulated, x, y, validationX, validationY);
+    assertEquals(expected.getOobError(), actual.getOobError(), 1e-9);
+    assertEquals(expected.getStrength(), actual.getStrength(), 1e-9);
+    assertEquals(expected.getCorrelation(), actual.getCorrelation(), 1e-9);
+  }
+
+  /**
+   * Returns the estimate at the row given by the first attribute of the instance
+   */
+  private static class FixedEstimator extends AbstractClassifier<Instance, Integer>
+      implements ProbabilityEstimator<Instance, Integer> {
+    private final double[][] estimates;
+
+    FixedEstimator(Array<Integer> classes, double[][] estimates) {
+      super(classes);
+      this.estimates = estimates;
+    }
+
+    @Override
+    public DoubleArray estimate(Instance input) {
+      return DoubleArray.of(estimates[(int) input.getNumericalAttribute(0)]);
+    }
+  }
+
+  private static class FixedEnsemble extends Ensemble<Instance, Integer> {
+
+    FixedEnsemble(Array<Integer> classes,
+        List<? extends ProbabilityEstimator<Instance, Integer>> members,
+        BooleanArray oobIndicator, OutOfBagAccumulator outOfBag) {
+      super(classes, members, oobIndicator, outOfBag);
+    }
+
+    @Override
+    public DoubleArray estimate(Instance input) {
+      return averageProbabilities(input);
+    }
+
+    @Override
+    public Ensemble<Instance, Integer> subEnsemble(int size) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
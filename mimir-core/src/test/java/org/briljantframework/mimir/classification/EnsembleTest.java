@@ -0,0 +1,295 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.briljantframework.array.Array;
+import org.briljantframework.array.Arrays;
+import org.briljantframework.array.BooleanArray;
+import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class EnsembleTest {
+
+  private Input<Instance> x;
+  private List<Integer> y;
+
+  @Before
+  public void setUp() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(2, 0);
+    x = schema.newInput();
+    y = new ArrayList<>();
+    Random random = new Random(123);
+    for (int i = 0; i < 150; i++) {
+      int label = i % 3;
+      x.add(schema.newInstance().set(0, label * 2 + random.nextGaussian())
+          .set(1, random.nextGaussian()).build());
+      y.add(label);
+    }
+  }
+
+  @Test
+  public void testAccumulatedOutOfBagEstimatesEqualsRecomputedEstimates() throws Exception {
+    RandomForest<Integer> forest = new RandomForest.Learner<Integer>(25).fit(x, y);
+    assertTrue(forest.hasOutOfBagEstimates());
+
+    DoubleArray expected = recomputeOutOfBagEstimates(forest, x);
+    assertEqualEstimates(expected, forest.getOutOfBagEstimates());
+    assertEqualEstimates(expected, Ensemble.estimateOutOfBagProbabilities(forest, x));
+
+    int errors = 0, n = 0;
+    for (int i = 0; i < x.size(); i++) {
+      if (isOutOfBag(forest, i)) {
+        if (argmax(expected.getRow(i)) != forest.getClasses().indexOf(y.get(i))) {
+          errors++;
+        }
+        n++;
+      }
+    }
+    assertEquals((double) errors / n, forest.getOutOfBagError(y), 1e-12);
+  }
+
+  @Test
+  public void testGrowPreservesFittedMembers() throws Exception {
+    RandomForest.Learner<Integer> learner = new RandomForest.Learner<>(25);
+    RandomForest<Integer> forest = learner.fit(x, y);
+    RandomForest<Integer> grown = learner.grow(forest, x, y, 10);
+    assertEquals(25, forest.getEnsembleMembers().size());
+    assertEquals(35, grown.getEnsembleMembers().size());
+
+    BooleanArray oobIndicator = forest.getOobIndicator();
+    BooleanArray grownOobIndicator = grown.getOobIndicator();
+    assertEquals(x.size(), grownOobIndicator.rows());
+    assertEquals(35, grownOobIndicator.columns());
+    for (int j = 0; j < 25; j++) {
+      assertSame(forest.getEnsembleMembers().get(j), grown.getEnsembleMembers().get(j));
+      for (int i = 0; i < x.size(); i++) {
+        assertEquals(oobIndicator.get(i, j), grownOobIndicator.get(i, j));
+      }
+    }
+    assertEqualEstimates(recomputeOutOfBagEstimates(grown, x), grown.getOutOfBagEstimates());
+  }
+
+  @Test
+  public void testSubEnsembleAveragesFirstMembers() throws Exception {
+    RandomForest<Integer> forest = new RandomForest.Learner<Integer>(25).fit(x, y);
+    RandomForest<Integer> sub = forest.subEnsemble(10);
+    List<ProbabilityEstimator<Instance, Integer>> members = forest.getEnsembleMembers();
+    assertEquals(10, sub.getEnsembleMembers().size());
+    for (int i = 0; i < x.size(); i++) {
+      DoubleArray expected = DoubleArray.zeros(forest.getClasses().size());
+      for (int j = 0; j < 10; j++) {
+        DoubleArray estimate = members.get(j).estimate(x.get(i));
+        for (int k = 0; k < expected.size(); k++) {
+          expected.set(k, expected.get(k) + estimate.get(k) / 10);
+        }
+      }
+      assertEqualEstimates(expected, sub.estimate(x.get(i)));
+    }
+
+    // the accumulated estimates cover all members, so the view recomputes them
+    assertFalse(sub.hasOutOfBagEstimates());
+    assertEqualEstimates(recomputeOutOfBagEstimates(sub, x),
+        Ensemble.estimateOutOfBagProbabilities(sub, x));
+  }
+
+  @Test
+  public void testLargeToleranceStopsAfterPatienceBatches() throws Exception {
+    RandomForest.Learner<Integer> learner = new RandomForest.Learner<>(100);
+    learner.set(Ensemble.OOB_TOLERANCE, 1.0);
+    learner.set(Ensemble.BATCH_SIZE, 5);
+    learner.set(Ensemble.PATIENCE, 2);
+    RandomForest<Integer> forest = learner.fit(x, y);
+
+    // the first batch has no previous estimates and each of the following PATIENCE batches is
+    // within the tolerance
+    assertEquals(5 * (1 + 2), forest.getEnsembleMembers().size());
+    assertEquals(5 * (1 + 2), forest.getOobIndicator().columns());
+  }
+
+  @Test
+  public void testMaxTimeCapsEnsembleSize() throws Exception {
+    RandomForest.Learner<Integer> learner = new RandomForest.Learner<>(10000);
+    learner.set(Ensemble.MAX_TIME, 1L);
+    learner.set(Ensemble.BATCH_SIZE, 5);
+    RandomForest<Integer> forest = learner.fit(x, y);
+
+    int size = forest.getEnsembleMembers().size();
+    assertTrue(size > 0 && size < 10000);
+    assertEquals(0, size % 5);
+    assertEquals(size, forest.getOobIndicator().columns());
+    assertEqualEstimates(recomputeOutOfBagEstimates(forest, x), forest.getOutOfBagEstimates());
+  }
+
+  @Test
+  public void testSequentialEstimatePredictsSameClassAsEstimate() throws Exception {
+    RandomForest<Integer> forest = new RandomForest.Learner<Integer>(25).fit(x, y);
+    for (Instance example : x) {
+      DoubleArray estimate = forest.estimate(example);
+      Ensemble.SequentialEstimate sequential = forest.estimateSequential(example);
+      assertTrue(sequential.getMembersUsed() > 0 && sequential.getMembersUsed() <= 25);
+      if (!isTied(estimate)) {
+        assertEquals(argmax(estimate), argmax(sequential.getEstimate()));
+      }
+    }
+  }
+
+  @Test
+  public void testSequentialEstimateConfidenceBound() throws Exception {
+    Instance example = x.get(0);
+
+    // the lead alternates between 0.2 and 0, so only the last member decides the leading class
+    List<ProbabilityEstimator<Instance, Integer>> alternating = new ArrayList<>();
+    for (int j = 0; j < 25; j++) {
+      alternating.add(new ConstantEstimator(j % 2 == 0 ? 0.6 : 0.4));
+    }
+    FixedEnsemble ensemble = new FixedEnsemble(alternating);
+    assertEquals(25, ensemble.estimateSequential(example, 1e-10).getMembersUsed());
+    assertEquals(25, ensemble.estimateSequential(example).getMembersUsed());
+
+    // the lead of unanimous members is certain after 13 members but the bound with alpha = 0.5,
+    // i.e., lead^2 / used >= 2 log 2, is reached after 2 members
+    List<ProbabilityEstimator<Instance, Integer>> unanimous = new ArrayList<>();
+    for (int j = 0; j < 25; j++) {
+      unanimous.add(new ConstantEstimator(1));
+    }
+    ensemble = new FixedEnsemble(unanimous);
+    assertEquals(13, ensemble.estimateSequential(example, 1e-10).getMembersUsed());
+    Ensemble.SequentialEstimate sequential = ensemble.estimateSequential(example, 0.5);
+    assertEquals(2, sequential.getMembersUsed());
+    assertEquals(0, argmax(sequential.getEstimate()));
+  }
+
+  /**
+   * Computes the mean estimate of the members for which each training example is out-of-bag (or
+   * an all-zero estimate if the example is in-bag for all members)
+   */
+  private static DoubleArray recomputeOutOfBagEstimates(Ensemble<Instance, ?> ensemble,
+      Input<Instance> x) {
+    BooleanArray oobIndicator = ensemble.getOobIndicator();
+    List<? extends ProbabilityEstimator<Instance, ?>> members = ensemble.getEnsembleMembers();
+    int classes = ensemble.getClasses().size();
+    DoubleArray estimates = DoubleArray.zeros(x.size(), classes);
+    for (int i = 0; i < x.size(); i++) {
+      int count = 0;
+      for (int j = 0; j < members.size(); j++) {
+        if (oobIndicator.get(i, j)) {
+          DoubleArray estimate = members.get(j).estimate(x.get(i));
+          for (int k = 0; k < classes; k++) {
+            estimates.set(i, k, estimates.get(i, k) + estimate.get(k));
+          }
+          count++;
+        }
+      }
+      for (int k = 0; count > 0 && k < classes; k++) {
+        estimates.set(i, k, estimates.get(i, k) / count);
+      }
+    }
+    return estimates;
+  }
+
+  private static boolean isOutOfBag(Ensemble<?, ?> ensemble, int i) {
+    BooleanArray oobIndicator = ensemble.getOobIndicator();
+    for (int j = 0; j < oobIndicator.columns(); j++) {
+      if (oobIndicator.get(i, j)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void assertEqualEstimates(DoubleArray expected, DoubleArray actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), actual.get(i), 1e-9);
+    }
+  }
+
+  private static boolean isTied(DoubleArray estimate) {
+    int argmax = argmax(estimate);
+    for (int k = 0; k < estimate.size(); k++) {
+      if (k != argmax && Math.abs(estimate.get(k) - estimate.get(argmax)) < 1e-9) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int argmax(DoubleArray estimate) {
+    int argmax = 0;
+    for (int k = 1; k < estimate.size(); k++) {
+      if (estimate.get(k) > estimate.get(argmax)) {
+        argmax = k;
+      }
+    }
+    return argmax;
+  }
+
+  /**
+   * Estimates the probability {@code p} for the first of two classes
+   */
+  private static class ConstantEstimator extends AbstractClassifier<Instance, Integer>
+      implements ProbabilityEstimator<Instance, Integer> {
+    private final double p;
+
+    ConstantEstimator(double p) {
+      super(Array.of(0, 1));
+      this.p = p;
+    }
+
+    @Override
+    public DoubleArray estimate(Instance input) {
+      return DoubleArray.of(p, 1 - p);
+    }
+  }
+
+  private static class FixedEnsemble extends Ensemble<Instance, Integer> {
+
+    FixedEnsemble(List<? extends ProbabilityEstimator<Instance, Integer>> members) {
+      super(Array.of(0, 1), members, Arrays.booleanArray(1, members.size()));
+    }
+
+    @Override
+    public DoubleArray estimate(Instance input) {
+      return averageProbabilities(input);
+    }
+
+    @Override
+    public Ensemble<Instance, Integer> subEnsemble(int size) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
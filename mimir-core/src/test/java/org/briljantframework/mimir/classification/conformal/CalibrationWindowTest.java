@@ -0,0 +1,66 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.briljantframework.array.DoubleArray;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class CalibrationWindowTest {
+
+  @Test
+  public void testPValueIsEqualToSortedCalibrationScores() throws Exception {
+    Random random = new Random(123);
+    CalibrationWindow window = new CalibrationWindow(100);
+    for (int i = 0; i < 1000; i++) {
+      // rounded to produce ties
+      window.add(i == 500 ? Double.NaN : Math.round(random.nextGaussian() * 10) / 10.0, i);
+      assertEquals(Math.min(i + 1, 100), window.size());
+
+      SortedCalibrationScores expected = SortedCalibrationScores.of(window.getScores());
+      double nc = Math.round(random.nextGaussian() * 10) / 10.0;
+      double tau = random.nextDouble();
+      assertEquals(expected.getPValue(nc, tau), window.getPValue(nc, tau), 1e-12);
+      assertEquals(expected.getPValue(nc + 5e-6, 1), window.getPValue(nc + 5e-6, 1), 1e-12);
+    }
+  }
+
+  @Test
+  public void testEvictScoresOlderThanMaxAge() throws Exception {
+    CalibrationWindow window = new CalibrationWindow(100, 10);
+    for (int i = 0; i < 20; i++) {
+      window.add(i, i);
+    }
+    assertEquals(11, window.size());
+    assertEquals(9, window.getScores().get(0), 0);
+
+    window.evict(25);
+    assertEquals(5, window.size());
+    assertEquals((5 + 1) / 6.0, window.getPValue(0, 1), 1e-12);
+    assertEquals((1 + 2) / 6.0, window.getPValue(18, 1), 1e-12);
+  }
+}
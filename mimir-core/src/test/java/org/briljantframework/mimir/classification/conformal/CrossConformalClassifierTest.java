@@ -0,0 +1,119 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.briljantframework.array.DoubleArray;
+import org.briljantframework.mimir.classification.NearestNeighbours;
+import org.briljantframework.mimir.classification.conformal.CrossConformalClassifier.Aggregation;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class CrossConformalClassifierTest {
+
+  private static final int FOLDS = 4;
+
+  private Input<Instance> x;
+  private List<Integer> y;
+
+  @Before
+  public void setUp() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(1, 0);
+    x = schema.newInput();
+    y = new ArrayList<>();
+    Random random = new Random(123);
+    for (int i = 0; i < 40; i++) {
+      x.add(schema.newInstance().set(0, i % 2 + random.nextGaussian()).build());
+      y.add(i % 2);
+    }
+  }
+
+  @Test
+  public void testEstimate() throws Exception {
+    CrossConformalClassifier<Instance, Integer> classifier =
+        newLearner(Aggregation.CROSS).fit(x, y);
+    assertEquals(FOLDS, classifier.getFolds());
+
+    DoubleArray pValues = classifier.estimate(x);
+    assertEquals(x.size(), pValues.rows());
+    assertEquals(2, pValues.columns());
+    for (int i = 0; i < pValues.size(); i++) {
+      assertTrue(pValues.get(i) > 0 && pValues.get(i) <= 1);
+    }
+  }
+
+  @Test
+  public void testCrossAndMeanAggregation() throws Exception {
+    DoubleArray cross = newLearner(Aggregation.CROSS).fit(x, y).estimate(x);
+    DoubleArray mean = newLearner(Aggregation.MEAN).fit(x, y).estimate(x);
+
+    // Each fold has 10 calibration scores. If c is the number of larger or equal calibration scores
+    // summed over the folds, the cross-conformal p-value is (c + 1) / (40 + 1) and the mean of the
+    // p-values of the folds is (c + 4) / (4 * (10 + 1)).
+    for (int i = 0; i < cross.size(); i++) {
+      double count = mean.get(i) * FOLDS * 11 - FOLDS;
+      assertEquals((count + 1) / 41, cross.get(i), 1e-12);
+    }
+  }
+
+  @Test
+  public void testFixedSeedIsReproducible() throws Exception {
+    CrossConformalClassifier.Learner<Instance, Integer> learner = newLearner(Aggregation.CROSS);
+    DoubleArray expected = learner.fit(x, y).estimate(x);
+    DoubleArray actual = learner.fit(x, y).estimate(x);
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), actual.get(i), 0);
+    }
+
+    CrossConformalClassifier.Learner<Instance, Integer> unseeded =
+        new CrossConformalClassifier.Learner<>(newNonconformityLearner(),
+            Calibrator.unconditional(), false);
+    assertEquals(x.size(), unseeded.fit(x, y).estimate(x).rows());
+  }
+
+  private static CrossConformalClassifier.Learner<Instance, Integer> newLearner(
+      Aggregation aggregation) {
+    CrossConformalClassifier.Learner<Instance, Integer> learner =
+        new CrossConformalClassifier.Learner<>(newNonconformityLearner(),
+            Calibrator.unconditional(), false);
+    learner.set(CrossConformalClassifier.FOLDS, FOLDS);
+    learner.set(CrossConformalClassifier.AGGREGATION, aggregation);
+    learner.set(CrossConformalClassifier.SEED, 42L);
+    return learner;
+  }
+
+  private static Nonconformity.Learner<Instance, Integer> newNonconformityLearner() {
+    return new ProbabilityEstimateNonconformity.Learner<>(new NearestNeighbours.Learner<>(3,
+        (a, b) -> Math.abs(a.getNumericalAttribute(0) - b.getNumericalAttribute(0))));
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.apache.commons.math3.util.Precision;
+import org.briljantframework.array.DoubleArray;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class SortedCalibrationScoresTest {
+
+  private static double linearPValue(DoubleArray calibration, double nc, double tau) {
+    double gt = 0;
+    double eq = 1;
+    for (int j = 0; j < calibration.size(); j++) {
+      double v = calibration.get(j);
+      if (v > nc) {
+        gt++;
+      } else if (Precision.equals(v, nc, 10e-6)) {
+        eq++;
+      }
+    }
+    return (gt + eq * tau) / (calibration.size() + 1);
+  }
+
+  @Test
+  public void testPValueIsEqualToLinearScan() throws Exception {
+    Random random = new Random(123);
+    DoubleArray calibration = DoubleArray.zeros(1000);
+    for (int i = 0; i < calibration.size(); i++) {
+      // rounded to produce ties
+      calibration.set(i, Math.round(random.nextGaussian() * 100) / 100.0);
+    }
+    calibration.set(10, Double.NaN);
+    calibration.set(11, 0.5 + 5e-6);
+    calibration.set(12, 0.5 - 5e-6);
+
+    SortedCalibrationScores sorted = SortedCalibrationScores.of(calibration);
+    double[] ncs = {0.5, -0.3, 0, 4, -4, 0.123, Double.NaN, Double.POSITIVE_INFINITY};
+    for (double nc : ncs) {
+      double tau = random.nextDouble();
+      assertEquals(linearPValue(calibration, nc, tau), sorted.getPValue(nc, tau), 0);
+      assertEquals(linearPValue(calibration, nc, 1), sorted.getPValue(nc, 1), 0);
+    }
+  }
+}
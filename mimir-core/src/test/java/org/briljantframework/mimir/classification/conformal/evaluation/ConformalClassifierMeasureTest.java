@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.conformal.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.briljantframework.array.Array;
+import org.briljantframework.array.DoubleArray;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class ConformalClassifierMeasureTest {
+
+  @Test
+  public void testOnePassIsEqualToOneMeasurePerSignificance() throws Exception {
+    Random random = new Random(123);
+    Array<Integer> classes = Array.of(1, 2, 3);
+    DoubleArray score = DoubleArray.zeros(500, classes.size());
+    List<Integer> truth = new ArrayList<>();
+    for (int i = 0; i < score.rows(); i++) {
+      for (int j = 0; j < score.columns(); j++) {
+        // rounded to produce ties with the significance levels
+        score.set(i, j, random.nextInt(30) / 100.0);
+      }
+      // include an unseen label
+      truth.add(random.nextInt(classes.size() + 1) + 1);
+    }
+
+    DoubleArray significances = DoubleArray.of(0.1, 0.01, 0.05, 0.2, 0.05, 0.25, 0.5);
+    List<ConformalClassifierMeasure> measures =
+        ConformalClassifierMeasure.of(truth, score, significances, classes);
+    assertEquals(significances.size(), measures.size());
+    for (int i = 0; i < significances.size(); i++) {
+      ConformalClassifierMeasure expected =
+          new ConformalClassifierMeasure(truth, score, significances.get(i), classes);
+      ConformalClassifierMeasure actual = measures.get(i);
+      assertEquals(expected.getAccuracy(), actual.getAccuracy(), 1e-10);
+      assertEquals(expected.getError(), actual.getError(), 1e-10);
+      assertEquals(expected.getSingletons(), actual.getSingletons(), 1e-10);
+      assertEquals(expected.getNoClasses(), actual.getNoClasses(), 1e-10);
+      assertEquals(expected.getConfidence(), actual.getConfidence(), 1e-10);
+      assertEquals(expected.getCredibility(), actual.getCredibility(), 1e-10);
+      assertEquals(expected.getAveragePvalue(), actual.getAveragePvalue(), 1e-10);
+    }
+  }
+}
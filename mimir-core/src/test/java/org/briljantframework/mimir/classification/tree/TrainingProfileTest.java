@@ -0,0 +1,127 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tree;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.classification.DecisionTree;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class TrainingProfileTest {
+
+  @Test
+  public void testDisabledProfileRecordsNothing() throws Exception {
+    TrainingProfile profile = TrainingProfile.newProfile(new Properties());
+    assertFalse(profile.isEnabled());
+    profile.count(TrainingProfile.Counter.DISTANCES, 10);
+    profile.leaf(2, 3);
+    assertEquals(0, profile.getCount(TrainingProfile.Counter.DISTANCES));
+    assertEquals(0, profile.getNodesPerDepth().length);
+  }
+
+  @Test
+  public void testMergeProfiles() throws Exception {
+    Properties properties = new Properties();
+    properties.set(TrainingProfile.PROFILE, true);
+    TrainingProfile a = TrainingProfile.newProfile(properties);
+    a.branch(0);
+    a.leaf(1, 2);
+    a.leaf(1, 4);
+    a.count(TrainingProfile.Counter.DISTANCES, 10);
+
+    TrainingProfile b = TrainingProfile.newProfile(properties);
+    b.branch(0);
+    b.branch(1);
+    b.leaf(1, 1);
+    b.leaf(2, 3);
+    b.leaf(2, 5);
+    b.count(TrainingProfile.Counter.DISTANCES, 5);
+
+    TrainingProfile merged =
+        TrainingProfile.merge(Arrays.asList(a, TrainingProfile.disabled(), b));
+    assertTrue(merged.isEnabled());
+    assertEquals(15, merged.getCount(TrainingProfile.Counter.DISTANCES));
+    assertArrayEquals(new int[] {2, 4, 2}, merged.getNodesPerDepth());
+    assertEquals(5, merged.getLeaves());
+    assertEquals(3, merged.getMeanLeafSize(), 1e-10);
+    assertEquals(1, merged.getMinLeafSize(), 1e-10);
+    assertEquals(5, merged.getMaxLeafSize(), 1e-10);
+  }
+
+  @Test
+  public void testProfileMatchesFittedTree() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(2, 0);
+    Input<Instance> x = schema.newInput();
+    List<Integer> y = new ArrayList<>();
+    Random random = new Random(123);
+    for (int i = 0; i < 200; i++) {
+      int label = i % 3;
+      x.add(schema.newInstance().set(0, label + random.nextGaussian())
+          .set(1, random.nextGaussian()).build());
+      y.add(label);
+    }
+
+    DecisionTree.Learner<Integer> learner = new DecisionTree.Learner<>();
+    learner.set(DecisionTree.SPLITTER, RandomSplitter.all());
+    learner.set(TrainingProfile.PROFILE, true);
+    DecisionTree<Integer> tree = learner.fit(x, y);
+    TrainingProfile profile = tree.getTrainingProfile();
+    assertTrue(profile.isEnabled());
+
+    int[] nodes = new int[0];
+    int branches = 0;
+    List<TreeNode<Instance>> level = Arrays.asList(tree.getRootNode());
+    int leaves = 0;
+    while (!level.isEmpty()) {
+      nodes = Arrays.copyOf(nodes, nodes.length + 1);
+      nodes[nodes.length - 1] = level.size();
+      List<TreeNode<Instance>> next = new ArrayList<>();
+      for (TreeNode<Instance> node : level) {
+        if (node instanceof TreeBranch) {
+          branches++;
+          next.add(((TreeBranch<Instance>) node).getLeft());
+          next.add(((TreeBranch<Instance>) node).getRight());
+        } else {
+          leaves++;
+        }
+      }
+      level = next;
+    }
+
+    assertArrayEquals(nodes, profile.getNodesPerDepth());
+    assertEquals(leaves, profile.getLeaves());
+    assertEquals(branches + 1, leaves);
+    assertTrue(profile.getCount(TrainingProfile.Counter.SPLITS) >= branches);
+    assertEquals(x.size(), profile.getMeanLeafSize() * profile.getLeaves(), 1e-6);
+  }
+}
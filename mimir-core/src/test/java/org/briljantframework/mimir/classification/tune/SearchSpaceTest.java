@@ -0,0 +1,66 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tune;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.Property;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class SearchSpaceTest {
+
+  private static final Property<Integer> SIZE = Property.of("size", Integer.class, 10);
+  private static final Property<Double> RATE = Property.of("rate", Double.class, 0.1);
+
+  @Test
+  public void testGridContainsAllCombinations() throws Exception {
+    SearchSpace space = new SearchSpace().add(SIZE, 1, 2, 3).add(RATE, 0.1, 0.2);
+    List<Properties> grid = space.grid();
+    assertEquals(6, grid.size());
+
+    Set<String> combinations = new HashSet<>();
+    for (Properties properties : grid) {
+      combinations.add(properties.get(SIZE) + ":" + properties.get(RATE));
+    }
+    assertEquals(6, combinations.size());
+  }
+
+  @Test
+  public void testSampleFromValuesAndSampler() throws Exception {
+    SearchSpace space = new SearchSpace().add(SIZE, 1, 2, 3).add(RATE, r -> r.nextDouble());
+    List<Properties> sample = space.sample(100, new Random(123));
+    assertEquals(100, sample.size());
+    for (Properties properties : sample) {
+      assertTrue(properties.get(SIZE) >= 1 && properties.get(SIZE) <= 3);
+      assertTrue(properties.get(RATE) >= 0 && properties.get(RATE) < 1);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.classification.tune;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.briljantframework.array.Array;
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.Property;
+import org.briljantframework.mimir.classification.AbstractClassifier;
+import org.briljantframework.mimir.classification.Classifier;
+import org.briljantframework.mimir.classification.ClassifierValidator;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.evaluation.partition.Partition;
+import org.briljantframework.mimir.supervised.Predictor;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class TunerTest {
+
+  private static final Property<Double> QUALITY = Property.of("quality", Double.class, 0.0);
+  private static final Property<Integer> MEMBERS = Property.of("members", Integer.class, 1);
+
+  private Input<Instance> x;
+  private List<Integer> y;
+  private AtomicInteger fitted;
+
+  @Before
+  public void setUp() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(1, 0);
+    x = schema.newInput();
+    y = new ArrayList<>();
+    for (int i = 0; i < 90; i++) {
+      x.add(schema.newInstance().set(0, i).build());
+      y.add(i % 2);
+    }
+    fitted = new AtomicInteger();
+  }
+
+  @Test
+  public void testSuccessiveHalvingKeepsBestConfigurations() throws Exception {
+    List<Properties> candidates = new ArrayList<>();
+    for (int i = 0; i < 27; i++) {
+      Properties properties = new Properties();
+      properties.set(QUALITY, (double) i);
+      candidates.add(properties);
+    }
+    Collections.shuffle(candidates, new Random(123));
+
+    Tuner<Instance, Integer, Classifier<Instance, Integer>> tuner = newTuner();
+    tuner.setBudget(Budget.property(MEMBERS, 27));
+    List<Configuration<Integer>> best = tuner.successiveHalving(candidates, 1 / 9.0, 3, x, y);
+
+    // 27 configurations with 3 members, the best 9 with 9 members and the best 3 with 27 members
+    assertEquals(27 + 9 + 3, fitted.get());
+    assertEquals(3, best.size());
+    for (int i = 0; i < best.size(); i++) {
+      Configuration<Integer> configuration = best.get(i);
+      assertEquals(26 - i, configuration.getParameters().get(QUALITY), 0);
+      assertEquals(1, configuration.getFraction(), 0);
+      assertEquals((26 - i) * 27, configuration.getScore(), 1e-9);
+    }
+  }
+
+  @Test
+  public void testHyperbandEvaluatesAllBrackets() throws Exception {
+    SearchSpace space = new SearchSpace().add(QUALITY, r -> r.nextDouble());
+    Tuner<Instance, Integer, Classifier<Instance, Integer>> tuner = newTuner();
+    tuner.setBudget(Budget.property(MEMBERS, 9));
+    List<Configuration<Integer>> best = tuner.hyperband(space, 1 / 9.0, 3, new Random(123), x, y);
+
+    // the brackets start with 9 configurations (9 -> 3 -> 1), 5 configurations (5 -> 1) and 3
+    // configurations evaluated using the full budget
+    assertEquals(9 + 3 + 1 + 5 + 1 + 3, fitted.get());
+    assertEquals(1 + 1 + 3, best.size());
+    for (int i = 0; i < best.size(); i++) {
+      Configuration<Integer> configuration = best.get(i);
+      assertEquals(1, configuration.getFraction(), 0);
+      assertEquals(configuration.getParameters().get(QUALITY) * 9, configuration.getScore(), 1e-9);
+      if (i > 0) {
+        assertTrue(best.get(i - 1).getScore() >= configuration.getScore());
+      }
+    }
+  }
+
+  @Test
+  public void testRowsBudgetEvaluatesNestedSubsamples() throws Exception {
+    Budget budget = Budget.rows(123);
+    Set<Integer> previous = new HashSet<>();
+    for (double fraction : new double[] {1 / 9.0, 1 / 3.0}) {
+      int[] sample = budget.sample(x.size(), fraction);
+      assertEquals(Math.round(x.size() * fraction), sample.length);
+      Set<Integer> current = new HashSet<>();
+      for (int index : sample) {
+        current.add(index);
+      }
+      assertTrue(current.containsAll(previous));
+      previous = current;
+    }
+    assertNull(budget.sample(x.size(), 1));
+
+    List<Properties> candidates = new ArrayList<>();
+    for (int i = 0; i < 9; i++) {
+      Properties properties = new Properties();
+      properties.set(QUALITY, (double) i);
+      candidates.add(properties);
+    }
+    Tuner<Instance, Integer, Classifier<Instance, Integer>> tuner = newTuner();
+    tuner.setBudget(Budget.of(Budget.full(), budget));
+    List<Configuration<Integer>> best = tuner.successiveHalving(candidates, 1 / 9.0, 3, x, y);
+    assertEquals(1, best.size());
+    assertEquals(8, best.get(0).getParameters().get(QUALITY), 0);
+    assertEquals(x.size(), best.get(0).getResult().getTrainingSize(), 0);
+  }
+
+  @Test
+  public void testParameterizeSetsParameters() throws Exception {
+    Properties parameters = new Properties();
+    parameters.set(QUALITY, 0.5);
+    parameters.set(MEMBERS, 3);
+    ScoreLearner learner = Tuner.parameterize(ScoreLearner::new).apply(parameters);
+    assertEquals(0.5, learner.get(QUALITY), 0);
+    assertEquals(3, (int) learner.get(MEMBERS));
+  }
+
+  /**
+   * Returns a tuner that maximizes the product of the quality and the number of members, i.e., the
+   * score of a configuration grows with its budget
+   */
+  private Tuner<Instance, Integer, Classifier<Instance, Integer>> newTuner() {
+    ClassifierValidator<Instance, Integer> validator = new ClassifierValidator<>(
+        (in, out) -> Collections.singleton(new Partition<>(in, in, out, out)));
+    validator.add(ctx -> {
+      ScoreClassifier classifier = (ScoreClassifier) ctx.getPredictor();
+      ctx.getMeasureCollection().add("score", classifier.score);
+    });
+    Function<Properties, ScoreLearner> learner = Tuner.parameterize(() -> {
+      fitted.incrementAndGet();
+      return new ScoreLearner();
+    });
+    Tuner<Instance, Integer, Classifier<Instance, Integer>> tuner =
+        new Tuner<>(learner, validator, result -> result.getMeasure("score").mean());
+    tuner.setParallelism(2);
+    return tuner;
+  }
+
+  private static class ScoreLearner
+      extends Predictor.Learner<Instance, Integer, Classifier<Instance, Integer>> {
+
+    @Override
+    public Classifier<Instance, Integer> fit(Input<Instance> in, List<Integer> out) {
+      return new ScoreClassifier(getOrDefault(QUALITY) * getOrDefault(MEMBERS));
+    }
+  }
+
+  private static class ScoreClassifier extends AbstractClassifier<Instance, Integer> {
+    private final double score;
+
+    ScoreClassifier(double score) {
+      super(Array.of(0, 1));
+      this.score = score;
+    }
+
+    @Override
+    public Integer predict(Instance input) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.briljantframework.mimir.classification.ClassifierEvaluator;
+import org.briljantframework.mimir.classification.ClassifierValidator;
+import org.briljantframework.mimir.classification.NearestNeighbours;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.evaluation.partition.StratifiedFoldPartitioner;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Isak Karlsson
+ */
+public class CsvResultSinkTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static void writePartitions(CsvResultSink<String> sink, int from, int to)
+      throws IOException {
+    for (int i = from; i < to; i++) {
+      MeasureCollection measures = new MeasureCollection();
+      measures.add("fold", i);
+      measures.add("accuracy", 1.0 / (i + 1));
+      sink.accept(i, measures, Arrays.asList("a", "b"), Arrays.asList("a", "a"));
+    }
+  }
+
+  private static void append(Path path, String garbage) throws IOException {
+    Files.write(path, garbage.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+  }
+
+  @Test
+  public void testReopenResumesFromCompletedPartitions() throws Exception {
+    Path measures = folder.getRoot().toPath().resolve("measures.csv");
+    Path predictions = folder.getRoot().toPath().resolve("predictions.csv");
+    try (CsvResultSink<String> sink = new CsvResultSink<>(measures, predictions)) {
+      writePartitions(sink, 0, 3);
+      assertEquals(3, sink.getCompletedPartitions());
+    }
+
+    try (CsvResultSink<String> sink = new CsvResultSink<>(measures, predictions)) {
+      assertEquals(3, sink.getCompletedPartitions());
+      try {
+        writePartitions(sink, 1, 2);
+        fail("accepted a completed partition");
+      } catch (IllegalStateException ignored) {
+      }
+      writePartitions(sink, 3, 4);
+    }
+
+    List<String> lines = Files.readAllLines(measures, StandardCharsets.UTF_8);
+    assertEquals("partition,measure,sample,index,value", lines.get(0));
+    assertEquals(1 + 4 * 2, lines.size());
+    assertEquals(1 + 4 * 2, Files.readAllLines(predictions, StandardCharsets.UTF_8).size());
+  }
+
+  @Test
+  public void testReopenTruncatesIncompletePartition() throws Exception {
+    Path measures = folder.getRoot().toPath().resolve("measures.csv");
+    Path predictions = folder.getRoot().toPath().resolve("predictions.csv");
+    try (CsvResultSink<String> sink = new CsvResultSink<>(measures, predictions)) {
+      writePartitions(sink, 0, 2);
+    }
+    byte[] expectedMeasures = Files.readAllBytes(measures);
+    byte[] expectedPredictions = Files.readAllBytes(predictions);
+
+    // e.g., the process was killed while writing the third partition
+    append(measures, "2,fold,OUT_SAMPLE,0,2.0\n2,accu");
+    append(predictions, "2,0,a,");
+
+    try (CsvResultSink<String> sink = new CsvResultSink<>(measures, predictions)) {
+      assertEquals(2, sink.getCompletedPartitions());
+    }
+    assertArrayEquals(expectedMeasures, Files.readAllBytes(measures));
+    assertArrayEquals(expectedPredictions, Files.readAllBytes(predictions));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRejectsFileShorterThanProgress() throws Exception {
+    Path measures = folder.getRoot().toPath().resolve("measures.csv");
+    try (CsvResultSink<String> sink = new CsvResultSink<>(measures)) {
+      writePartitions(sink, 0, 2);
+    }
+    byte[] content = Files.readAllBytes(measures);
+    Files.write(measures, Arrays.copyOf(content, content.length - 10));
+    new CsvResultSink<String>(measures).close();
+  }
+
+  @Test
+  public void testRefusesToOverwriteFileWithoutProgress() throws Exception {
+    Path measures = folder.getRoot().toPath().resolve("measures.csv");
+    byte[] previous = "partition,measure,sample,index,value\n0,fold,OUT_SAMPLE,0,0.0\n"
+        .getBytes(StandardCharsets.UTF_8);
+    Files.write(measures, previous);
+    try {
+      new CsvResultSink<String>(measures).close();
+      fail("overwrote a file without a progress file");
+    } catch (IllegalStateException ignored) {
+    }
+    assertArrayEquals(previous, Files.readAllBytes(measures));
+  }
+
+  @Test
+  public void testResumedValidationEqualsUninterruptedValidation() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(1, 0);
+    Input<Instance> x = schema.newInput();
+    List<Integer> y = new ArrayList<>();
+    Random random = new Random(123);
+    for (int i = 0; i < 60; i++) {
+      x.add(schema.newInstance().set(0, i % 3 + random.nextGaussian()).build());
+      y.add(i % 3);
+    }
+
+    Path uninterrupted = folder.newFolder("uninterrupted").toPath();
+    try (CsvResultSink<Integer> sink = new CsvResultSink<>(uninterrupted.resolve("measures.csv"),
+        uninterrupted.resolve("predictions.csv"))) {
+      newValidator(sink).test(newLearner(), x, y);
+    }
+
+    Path resumed = folder.newFolder("resumed").toPath();
+    try (CsvResultSink<Integer> sink = new CsvResultSink<>(resumed.resolve("measures.csv"),
+        resumed.resolve("predictions.csv"))) {
+      AtomicInteger evaluated = new AtomicInteger();
+      ClassifierValidator<Instance, Integer> validator = newValidator(sink);
+      validator.add(ctx -> {
+        if (evaluated.incrementAndGet() > 2) {
+          throw new IllegalStateException("interrupted");
+        }
+      });
+      try {
+        validator.test(newLearner(), x, y);
+        fail("the validation was not interrupted");
+      } catch (IllegalStateException ignored) {
+      }
+      assertEquals(2, sink.getCompletedPartitions());
+    }
+    append(resumed.resolve("measures.csv"), "2,fold,OUT_SAMPLE,0,2.0\n");
+    try (CsvResultSink<Integer> sink = new CsvResultSink<>(resumed.resolve("measures.csv"),
+        resumed.resolve("predictions.csv"))) {
+      ClassifierValidator<Instance, Integer> validator = newValidator(sink);
+      validator.setParallelism(2);
+      validator.test(newLearner(), x, y);
+      assertEquals(5, sink.getCompletedPartitions());
+    }
+
+    assertArrayEquals(Files.readAllBytes(uninterrupted.resolve("measures.csv")),
+        Files.readAllBytes(resumed.resolve("measures.csv")));
+    assertArrayEquals(Files.readAllBytes(uninterrupted.resolve("predictions.csv")),
+        Files.readAllBytes(resumed.resolve("predictions.csv")));
+  }
+
+  private static ClassifierValidator<Instance, Integer> newValidator(ResultSink<Integer> sink) {
+    ClassifierValidator<Instance, Integer> validator =
+        new ClassifierValidator<>(new StratifiedFoldPartitioner<>(5, new Random(321)));
+    validator.add(ClassifierEvaluator.getInstance());
+    validator.setResultSink(sink);
+    return validator;
+  }
+
+  private static NearestNeighbours.Learner<Instance, Integer> newLearner() {
+    return new NearestNeighbours.Learner<>(3,
+        (a, b) -> Math.abs(a.getNumericalAttribute(0) - b.getNumericalAttribute(0)));
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class MeasureCollectionTest {
+
+  @Test
+  public void testConcurrentAddKeepsAllValuesInOrder() throws Exception {
+    MeasureCollection measures = new MeasureCollection();
+    IntStream.range(0, 10000).parallel().forEach(i -> measures.add("value", i));
+    double[] values = measures.get("value");
+    assertEquals(10000, values.length);
+
+    // values added by the same thread are in order
+    MeasureCollection sequential = new MeasureCollection();
+    for (int i = 0; i < 100; i++) {
+      sequential.add("value", i);
+      sequential.add("value", MeasureSample.IN_SAMPLE, -i);
+    }
+    double[] expected = IntStream.range(0, 100).asDoubleStream().toArray();
+    assertArrayEquals(expected, sequential.get("value"), 0);
+    assertArrayEquals(expected, new MeasureCollection(sequential).get("value"), 0);
+    assertEquals(-99, sequential.get("value", MeasureSample.IN_SAMPLE)[99], 0);
+
+    // measures are listed in the order they were first added
+    sequential.add("accuracy", 1);
+    sequential.add("value", 100);
+    assertEquals(Arrays.asList("value", "accuracy"),
+        new ArrayList<>(sequential.getMeasures(MeasureSample.OUT_SAMPLE)));
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.briljantframework.mimir.classification.ClassifierEvaluator;
+import org.briljantframework.mimir.classification.ClassifierValidator;
+import org.briljantframework.mimir.classification.NearestNeighbours;
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.evaluation.partition.StratifiedFoldPartitioner;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class ValidatorTest {
+
+  @Test
+  public void testParallelFoldsEqualsSequentialFolds() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(1, 0);
+    Input<Instance> x = schema.newInput();
+    List<Integer> y = new ArrayList<>();
+    Random random = new Random(123);
+    for (int i = 0; i < 100; i++) {
+      x.add(schema.newInstance().set(0, i % 3 + random.nextGaussian()).build());
+      y.add(i % 3);
+    }
+
+    List<String> sequential = new ArrayList<>();
+    Result<Integer> expected = newValidator(sequential).test(newLearner(), x, y);
+    List<String> folds = new ArrayList<>();
+    for (String entry : sequential) {
+      if (entry.startsWith("fold=")) {
+        folds.add(entry);
+      }
+    }
+    assertEquals(Arrays.asList("fold=[0.0]", "fold=[1.0]", "fold=[2.0]", "fold=[3.0]", "fold=[4.0]",
+        "fold=[5.0]", "fold=[6.0]"), folds);
+
+    for (int parallelism : new int[] {2, 3, 10}) {
+      List<String> parallel = new ArrayList<>();
+      ClassifierValidator<Instance, Integer> validator = newValidator(parallel);
+      validator.setParallelism(parallelism);
+      Result<Integer> actual = validator.test(newLearner(), x, y);
+      assertEquals(sequential, parallel);
+      assertEquals(expected.getActual(), actual.getActual());
+      assertEquals(expected.getPredictions(), actual.getPredictions());
+    }
+  }
+
+  /**
+   * Returns a validator that logs the measures and predictions of each fold in evaluation order
+   */
+  private static ClassifierValidator<Instance, Integer> newValidator(List<String> log) {
+    ClassifierValidator<Instance, Integer> validator =
+        new ClassifierValidator<>(new StratifiedFoldPartitioner<>(7, new Random(321)));
+    validator.add(ClassifierEvaluator.getInstance());
+    validator.add(ctx -> {
+      MeasureCollection measures = ctx.getMeasureCollection();
+      for (String measure : measures.getMeasures(MeasureSample.OUT_SAMPLE)) {
+        log.add(measure + "=" + Arrays.toString(measures.get(measure)));
+      }
+      log.add("actual=" + ctx.getPartition().getValidationTarget());
+      log.add("predictions=" + ctx.getPredictions());
+    });
+    return validator;
+  }
+
+  private static NearestNeighbours.Learner<Instance, Integer> newLearner() {
+    return new NearestNeighbours.Learner<>(3,
+        (a, b) -> Math.abs(a.getNumericalAttribute(0) - b.getNumericalAttribute(0)));
+  }
+}
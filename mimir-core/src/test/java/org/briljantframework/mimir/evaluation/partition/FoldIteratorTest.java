@@ -20,7 +20,15 @@
  */
 package org.briljantframework.mimir.evaluation.partition;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.briljantframework.array.Arrays;
 import org.briljantframework.array.DoubleArray;
@@ -98,4 +106,29 @@ public class FoldIteratorTest {
       System.out.println(next.getTrainingData() +" :: " + next.getValidationData());
     }
   }
+
+  @Test
+  public void testFoldsPartitionTheInput() throws Exception {
+    MultidimensionalSchema schema = new MultidimensionalSchema(1, 0);
+    Input<Instance> input = schema.newInput();
+    List<Integer> output = new ArrayList<>();
+    for (int i = 0; i < 23; i++) {
+      input.add(schema.newInstance().set(0, i).build());
+      output.add(i);
+    }
+
+    Set<Integer> validated = new HashSet<>();
+    FoldIterator<Instance, Integer> iterator = new FoldIterator<>(input, output, 5, true);
+    while (iterator.hasNext()) {
+      Partition<Instance, Integer> next = iterator.next();
+      List<Integer> validation = next.getValidationTarget();
+      assertEquals(input.size(), next.getTrainingData().size() + validation.size());
+      for (int i = 0; i < validation.size(); i++) {
+        assertSame(input.get(validation.get(i)), next.getValidationData().get(i));
+        assertTrue(validated.add(validation.get(i)));
+        assertFalse(next.getTrainingTarget().contains(validation.get(i)));
+      }
+    }
+    assertEquals(input.size(), validated.size());
+  }
 }
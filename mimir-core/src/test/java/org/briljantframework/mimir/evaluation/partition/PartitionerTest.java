@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.evaluation.partition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.briljantframework.mimir.data.Input;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class PartitionerTest {
+
+  private final MultidimensionalSchema schema = new MultidimensionalSchema(1, 0);
+
+  private Input<Instance> newInput(int size) {
+    Input<Instance> input = schema.newInput();
+    for (int i = 0; i < size; i++) {
+      input.add(schema.newInstance().set(0, i).build());
+    }
+    return input;
+  }
+
+  @Test
+  public void testStratifiedFoldsHaveEqualClassDistribution() throws Exception {
+    Input<Instance> x = newInput(103);
+    List<Integer> y = new ArrayList<>();
+    for (int i = 0; i < x.size(); i++) {
+      y.add(i % 10 < 7 ? 0 : i % 10 < 9 ? 1 : 2);
+    }
+
+    Set<Integer> validated = new HashSet<>();
+    Partitioner<Instance, Integer> partitioner =
+        new StratifiedFoldPartitioner<>(5, new Random(123));
+    for (Partition<Instance, Integer> partition : partitioner.partition(x, y)) {
+      int[] counts = new int[3];
+      for (Instance example : partition.getValidationData()) {
+        int index = (int) example.getNumericalAttribute(0);
+        counts[y.get(index)]++;
+        assertTrue(validated.add(index));
+      }
+      int validationSize = counts[0] + counts[1] + counts[2];
+      assertEquals(x.size(), partition.getTrainingData().size() + validationSize);
+      assertEquals(73 / 5.0, counts[0], 1);
+      assertEquals(20 / 5.0, counts[1], 1);
+      assertEquals(10 / 5.0, counts[2], 1);
+    }
+    assertEquals(x.size(), validated.size());
+  }
+
+  @Test
+  public void testGroupsAreNotSplitBetweenFolds() throws Exception {
+    Input<Instance> x = newInput(100);
+    List<Integer> y = new ArrayList<>();
+    for (int i = 0; i < x.size(); i++) {
+      y.add(i % 2);
+    }
+
+    Partitioner<Instance, Integer> partitioner = new RepeatedPartitioner<>(
+        new GroupFoldPartitioner<>(4, e -> (int) e.getNumericalAttribute(0) / 7, true), 3);
+    int folds = 0;
+    for (Partition<Instance, Integer> partition : partitioner.partition(x, y)) {
+      Set<Integer> trainingGroups = new HashSet<>();
+      for (Instance example : partition.getTrainingData()) {
+        trainingGroups.add((int) example.getNumericalAttribute(0) / 7);
+      }
+      for (Instance example : partition.getValidationData()) {
+        assertFalse(trainingGroups.contains((int) example.getNumericalAttribute(0) / 7));
+      }
+      assertEquals(25, partition.getValidationData().size(), 7);
+      folds++;
+    }
+    assertEquals(12, folds);
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Isak Karlsson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.briljantframework.mimir.neighbours;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.briljantframework.mimir.Properties;
+import org.briljantframework.mimir.classification.NearestNeighbours;
+import org.briljantframework.mimir.distance.Distance;
+import org.briljantframework.mimir.supervised.data.Instance;
+import org.briljantframework.mimir.supervised.data.InstanceBuilder;
+import org.briljantframework.mimir.supervised.data.MultidimensionalSchema;
+import org.junit.Test;
+
+/**
+ * @author Isak Karlsson
+ */
+public class NeighbourSearchTest {
+
+  /**
+   * Euclidean distance ignoring missing (NaN) values
+   */
+  private static final Distance<double[]> DISTANCE = (a, b) -> {
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      double r = a[i] - b[i];
+      if (!Double.isNaN(r)) {
+        sum += r * r;
+      }
+    }
+    return Math.sqrt(sum);
+  };
+
+  private static List<double[]> randomData(Random random, int n, int dimensions) {
+    List<double[]> data = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      double[] x = new double[dimensions];
+      for (int j = 0; j < dimensions; j++) {
+        x[j] = random.nextGaussian();
+      }
+      data.add(x);
+    }
+    return data;
+  }
+
+  private static List<Integer> bruteForce(List<double[]> data, double[] query, int k) {
+    return IntStream.range(0, data.size()).boxed()
+        .sorted(Comparator.comparingDouble(i -> DISTANCE.compute(data.get(i), query))).limit(k)
+        .collect(Collectors.toList());
+  }
+
+  private static void assertExact(NeighbourSearch<double[]> search, List<double[]> data,
+      List<double[]> queries, int k) {
+    for (double[] query : queries) {
+      List<Integer> expected = bruteForce(data, query, k);
+      Neighbours actual = search.search(query, k);
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < k; i++) {
+        assertEquals(DISTANCE.compute(data.get(expected.get(i)), query), actual.getDistance(i),
+            1e-10);
+      }
+    }
+  }
+
+  @Test
+  public void testNeighbourHeap() throws Exception {
+    NeighbourHeap heap = new NeighbourHeap(3);
+    double[] distances = {5, 1, 4, 2, 8, 3};
+    for (int i = 0; i < distances.length; i++) {
+      heap.offer(i, distances[i]);
+    }
+    assertEquals(3, heap.bound(), 0);
+
+    Neighbours neighbours = heap.toNeighbours();
+    assertEquals(3, neighbours.size());
+    assertEquals(1, neighbours.getIndex(0));
+    assertEquals(3, neighbours.getIndex(1));
+    assertEquals(5, neighbours.getIndex(2));
+  }
+
+  @Test
+  public void testLinearSearch() throws Exception {
+    Random random = new Random(123);
+    List<double[]> data = randomData(random, 3000, 5);
+    assertExact(new LinearSearch<>(data, DISTANCE), data, randomData(random, 50, 5), 7);
+  }
+
+  @Test
+  public void testVantagePointTree() throws Exception {
+    Random random = new Random(123);
+    List<double[]> data = randomData(random, 3000, 5);
+    assertExact(new VantagePointTree<>(data, DISTANCE, random), data, randomData(random, 50, 5), 7);
+
+    List<double[]> small = data.subList(0, 5);
+    assertExact(new VantagePointTree<>(small, DISTANCE, random), small, randomData(random, 5, 5),
+        5);
+  }
+
+  @Test
+  public void testKDTree() throws Exception {
+    Random random = new Random(123);
+    List<double[]> data = randomData(random, 3000, 5);
+    List<double[]> queries = randomData(random, 50, 5);
+    data.get(10)[2] = Double.NaN;
+    data.get(20)[0] = Double.NaN;
+    queries.get(0)[1] = Double.NaN;
+
+    List<Instance> points = toInstances(data);
+    KDTree tree = new KDTree(points);
+    List<Instance> instances = toInstances(queries);
+    for (int i = 0; i < queries.size(); i++) {
+      double[] query = queries.get(i);
+      List<Integer> expected = bruteForce(data, query, 7);
+      Neighbours actual = tree.search(instances.get(i), 7);
+      for (int j = 0; j < expected.size(); j++) {
+        assertEquals(DISTANCE.compute(data.get(expected.get(j)), query), actual.getDistance(j),
+            1e-10);
+        assertEquals(KDTree.EUCLIDEAN.compute(points.get(actual.getIndex(j)), instances.get(i)),
+            actual.getDistance(j), 1e-10);
+      }
+
+      double radius = actual.getDistance(6) + 1e-9;
+      long within = data.stream().filter(x -> DISTANCE.compute(x, query) <= radius).count();
+      assertEquals(within, tree.searchRadius(instances.get(i), radius).size());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKDTreeRequiresEuclideanDistance() throws Exception {
+    Distance<Instance> manhattan = (a, b) -> {
+      double sum = 0;
+      for (int j = 0; j < a.numericalAttributes(); j++) {
+        sum += Math.abs(a.getNumericalAttribute(j) - b.getNumericalAttribute(j));
+      }
+      return sum;
+    };
+    NearestNeighbours.Index.KD_TREE.newSearch(toInstances(randomData(new Random(123), 10, 2)),
+        manhattan, new Properties());
+  }
+
+  @Test
+  public void testHnswGraphRecall() throws Exception {
+    Random random = new Random(123);
+    int k = 10;
+    List<double[]> data = randomData(random, 5000, 10);
+    List<double[]> queries = randomData(random, 100, 10);
+    HnswGraph<double[]> graph = new HnswGraph<>(data, DISTANCE, 16, 100, 50, random);
+
+    int found = 0;
+    for (double[] query : queries) {
+      List<Integer> expected = bruteForce(data, query, k);
+      Neighbours actual = graph.search(query, k);
+      assertEquals(k, actual.size());
+      for (int i = 0; i < actual.size(); i++) {
+        if (expected.contains(actual.getIndex(i))) {
+          found++;
+        }
+      }
+    }
+    double recall = found / (double) (k * queries.size());
+    assertTrue(recall > 0.9);
+  }
+
+  private static List<Instance> toInstances(List<double[]> data) {
+    MultidimensionalSchema schema = new MultidimensionalSchema(data.get(0).length, 0);
+    List<Instance> instances = new ArrayList<>();
+    for (double[] x : data) {
+      InstanceBuilder builder = schema.newInstance();
+      for (int j = 0; j < x.length; j++) {
+        builder.set(j, x[j]);
+      }
+      instances.add(builder.build());
+    }
+    return instances;
+  }
+}